@@ -0,0 +1,211 @@
+package edu.cbet.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The byte source shared by {@link JsonParser} and {@link JsonReader}, each call to {@link #readBytes()} moves to the next window
+ * of input and returns how many bytes of {@link #getBuffer()} are valid starting at index 0.
+ * The buffer can be replaced by a call to {@link #readBytes()} so it should be fetched again after every call
+ */
+class ByteContainer {
+    static final int BUFFER_SIZE = 8192;
+    static final long MAPPED_WINDOW_SIZE = 1L << 30; //Has to stay under Integer.MAX_VALUE, a single mapping can't be any larger
+    private final InputStream is;
+    private final FileChannel channel;
+    private final long channelSize;
+    private long channelPosition;
+    private final Reader reader;
+    private final CharBuffer chars;
+    private final CharsetEncoder encoder;
+    private boolean charsEnd;
+    private ByteBuffer buffer;
+    private boolean eof;
+
+    ByteContainer(InputStream is) {
+        this(is, new byte[BUFFER_SIZE]);
+    }
+
+    /**
+     * Reads through a caller owned buffer so it can be reused between documents
+     */
+    ByteContainer(InputStream is, byte[] buffer) {
+        this.is = is;
+        this.channel = null;
+        this.channelSize = 0;
+        this.reader = null;
+        this.chars = null;
+        this.encoder = null;
+        this.buffer = ByteBuffer.wrap(buffer);
+        this.eof = false;
+    }
+
+    ByteContainer(@NotNull FileInputStream fileInputStream) throws IOException {
+        long fileSize = fileInputStream.getChannel().size();
+
+        this.is = fileInputStream;
+        this.channel = null;
+        this.channelSize = 0;
+        this.reader = null;
+        this.chars = null;
+        this.encoder = null;
+
+        if(fileSize < BUFFER_SIZE) {
+            this.buffer = ByteBuffer.wrap(new byte[(int)fileSize]);
+        } else {
+            this.buffer = ByteBuffer.wrap(new byte[BUFFER_SIZE]);
+        }
+        this.eof = false;
+    }
+
+    /**
+     * Maps the channel into memory a window at a time instead of copying it through a heap buffer, windows are
+     * {@link #MAPPED_WINDOW_SIZE} bytes so files larger than 2GB can still be read
+     */
+    ByteContainer(@NotNull FileChannel channel) throws IOException {
+        this.is = null;
+        this.channel = channel;
+        this.channelSize = channel.size();
+        this.channelPosition = 0;
+        this.reader = null;
+        this.chars = null;
+        this.encoder = null;
+        this.buffer = ByteBuffer.allocate(0);
+        this.eof = false;
+    }
+
+    ByteContainer(@NotNull String str) {
+        this(ByteBuffer.wrap(str.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Reads the whole buffer as a single window, it has to start at index 0 so pass a {@link ByteBuffer#slice()} for anything else
+     */
+    ByteContainer(@NotNull ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.is = null;
+        this.channel = null;
+        this.channelSize = 0;
+        this.reader = null;
+        this.chars = null;
+        this.encoder = null;
+        this.eof = false;
+    }
+
+    /**
+     * Text sources are encoded to UTF-8 a window at a time into the caller owned buffer, so the parser works on them the same as on bytes
+     * without the whole input ever being encoded up front. Lone surrogates are replaced with '?' like {@link String#getBytes} does
+     */
+    ByteContainer(@NotNull Reader reader, byte[] buffer) {
+        this(reader, CharBuffer.allocate(BUFFER_SIZE).flip(), buffer);
+    }
+
+    /**
+     * Encodes the chars between the buffer's position and limit, array backed buffers are encoded much faster than wrapped {@link CharSequence}s
+     */
+    ByteContainer(@NotNull CharBuffer chars, byte[] buffer) {
+        this(null, chars, buffer);
+    }
+
+    private ByteContainer(Reader reader, CharBuffer chars, byte[] buffer) {
+        this.is = null;
+        this.channel = null;
+        this.channelSize = 0;
+        this.reader = reader;
+        this.chars = chars;
+        this.charsEnd = reader == null;
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = ByteBuffer.wrap(buffer);
+        this.eof = false;
+    }
+
+    int readBytes() throws IOException {
+        if(!eof) {
+            if (this.is != null) {
+                if(this.buffer.capacity() == 0) {
+                    this.eof = true;
+                    return -1;
+                }
+
+                int read = this.is.read(buffer.array(), 0, buffer.capacity());
+
+                if (read == -1) {
+                    this.eof = true;
+                }
+
+                return read;
+            } else if(this.encoder != null) {
+                int read = encodeChars();
+
+                if(read == 0) {
+                    this.eof = true;
+                    return -1;
+                }
+
+                return read;
+            } else if(this.channel != null) {
+                if(channelPosition >= channelSize) {
+                    this.eof = true;
+                    return -1;
+                }
+
+                int len = (int) Math.min(MAPPED_WINDOW_SIZE, channelSize - channelPosition);
+                this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, channelPosition, len);
+                channelPosition += len;
+
+                return len;
+            } else { //The whole buffer is returned by the initial read
+                eof = true;
+                return this.buffer.limit();
+            }
+        }
+
+        return -1;
+    }
+
+    private int encodeChars() throws IOException {
+        buffer.clear();
+
+        while(true) {
+            CoderResult result = encoder.encode(chars, buffer, charsEnd);
+
+            if(result.isOverflow() || charsEnd)
+                break;
+
+            chars.compact(); //Keeps the first half of a surrogate pair that was split by the last read
+
+            if(reader.read(chars) == -1)
+                charsEnd = true;
+
+            chars.flip();
+        }
+
+        return buffer.flip().limit(); //The limit marks the end of the window for error previews
+    }
+
+    ByteBuffer getBuffer() {
+        return this.buffer;
+    }
+
+    void close() throws IOException {
+        if(this.is != null)
+            this.is.close();
+        if(this.channel != null)
+            this.channel.close();
+        if(this.reader != null)
+            this.reader.close();
+    }
+}
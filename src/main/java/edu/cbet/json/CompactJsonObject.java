@@ -0,0 +1,464 @@
+package edu.cbet.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The {@link JsonObject} produced by the parsers. Up to {@link #MAX_COMPACT_SIZE} members are kept in a pair of parallel arrays and looked up with a
+ * linear scan, which for a handful of keys is as fast as hashing and costs two small arrays instead of a hash table and a node per member.
+ * Adding a member past that, or any of the less common map operations, moves the members into the regular map storage for good.
+ * Members are kept in insertion order while compact
+ */
+class CompactJsonObject extends JsonObject {
+    static final int MAX_COMPACT_SIZE = 8;
+    private static final int INITIAL_CAPACITY = 4;
+
+    private String[] names;
+    private JsonValue[] members;
+    private int size;
+    private int modifications;
+    private boolean inflated;
+
+    CompactJsonObject() {}
+
+    private void inflate() {
+        if(inflated)
+            return;
+
+        inflated = true;
+
+        for(int x = 0; x < size; x++)
+            super.put(names[x], members[x]);
+
+        names = null;
+        members = null;
+        size = 0;
+        modifications++;
+    }
+
+    private int indexOf(Object key) {
+        for(int x = 0; x < size; x++) {
+            String name = names[x];
+
+            if(name == key || name.equals(key)) //Parsed names usually come from the key cache, so the identity check tends to hit first
+                return x;
+        }
+
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        mutated();
+        int moved = size - index - 1;
+
+        if(moved > 0) {
+            System.arraycopy(names, index + 1, names, index, moved);
+            System.arraycopy(members, index + 1, members, index, moved);
+        }
+
+        size--;
+        names[size] = null;
+        members[size] = null;
+        modifications++;
+    }
+
+    @Override
+    public int size() {
+        return inflated? super.size(): size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public JsonValue get(Object key) {
+        if(inflated)
+            return super.get(key);
+
+        int index = indexOf(key);
+        return index == -1? null: members[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return inflated? super.containsKey(key): indexOf(key) != -1;
+    }
+
+    @Override
+    public JsonValue getOrDefault(Object key, JsonValue defaultValue) {
+        JsonValue value = get(key);
+        return value == null? defaultValue: value;
+    }
+
+    @Override
+    public JsonValue put(String key, JsonValue value) {
+        if(inflated)
+            return super.put(key, value);
+
+        Objects.requireNonNull(key);
+        mutated();
+
+        if(value == null)
+            value = JsonNull.NULL;
+
+        int index = indexOf(key);
+
+        if(index != -1) {
+            JsonValue old = members[index];
+            members[index] = value;
+            return old;
+        }
+
+        if(size == MAX_COMPACT_SIZE) {
+            inflate();
+            return super.put(key, value);
+        }
+
+        if(names == null) {
+            names = new String[INITIAL_CAPACITY];
+            members = new JsonValue[INITIAL_CAPACITY];
+        } else if(size == names.length) {
+            names = Arrays.copyOf(names, Math.min(size * 2, MAX_COMPACT_SIZE));
+            members = Arrays.copyOf(members, names.length);
+        }
+
+        names[size] = key;
+        members[size++] = value;
+        modifications++;
+
+        return null;
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends JsonValue> m) {
+        if(!inflated && size + m.size() > MAX_COMPACT_SIZE)
+            inflate();
+
+        if(inflated) {
+            super.putAll(m);
+            return;
+        }
+
+        for(Entry<? extends String, ? extends JsonValue> entry: m.entrySet())
+            put(entry.getKey(), entry.getValue());
+    }
+
+    @Override
+    public JsonValue remove(Object key) {
+        if(inflated)
+            return super.remove(key);
+
+        int index = indexOf(key);
+
+        if(index == -1)
+            return null;
+
+        JsonValue old = members[index];
+        removeAt(index);
+
+        return old;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if(inflated)
+            return super.remove(key, value);
+
+        int index = indexOf(key);
+
+        if(index == -1 || !Objects.equals(members[index], value))
+            return false;
+
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        if(inflated) {
+            super.clear();
+        } else if(size > 0) {
+            mutated();
+            Arrays.fill(names, 0, size, null);
+            Arrays.fill(members, 0, size, null);
+            size = 0;
+            modifications++;
+        }
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if(inflated)
+            return super.containsValue(value);
+
+        for(int x = 0; x < size; x++) {
+            if(members[x].equals(value))
+                return true;
+        }
+
+        return false;
+    }
+
+    @NotNull
+    @Override
+    public Set<String> keySet() {
+        return inflated? super.keySet(): new KeyView();
+    }
+
+    @NotNull
+    @Override
+    public Collection<JsonValue> values() {
+        return inflated? super.values(): new ValueView();
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<String, JsonValue>> entrySet() {
+        return inflated? super.entrySet(): new EntryView();
+    }
+
+    @Override
+    Set<Entry<String, JsonValue>> entries() {
+        return inflated? super.entries(): new EntryView();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super JsonValue> action) {
+        if(inflated) {
+            super.forEach(action);
+            return;
+        }
+
+        int expected = modifications;
+
+        for(int x = 0; x < size; x++) {
+            action.accept(names[x], members[x]);
+
+            if(inflated || modifications != expected)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public JsonValue putIfAbsent(String key, JsonValue value) {
+        inflate();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, JsonValue oldValue, JsonValue newValue) {
+        inflate();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public JsonValue replace(String key, JsonValue value) {
+        inflate();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public JsonValue computeIfAbsent(String key, @NotNull Function<? super String, ? extends JsonValue> mappingFunction) {
+        inflate();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public JsonValue computeIfPresent(String key, @NotNull BiFunction<? super String, ? super JsonValue, ? extends JsonValue> remappingFunction) {
+        inflate();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public JsonValue compute(String key, @NotNull BiFunction<? super String, ? super JsonValue, ? extends JsonValue> remappingFunction) {
+        inflate();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public JsonValue merge(String key, @NotNull JsonValue value, @NotNull BiFunction<? super JsonValue, ? super JsonValue, ? extends JsonValue> remappingFunction) {
+        inflate();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super JsonValue, ? extends JsonValue> function) {
+        inflate();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public Object clone() {
+        inflate();
+        return super.clone();
+    }
+
+    @Override
+    public String getType() {
+        return "JsonObject";
+    }
+
+    private abstract class MemberIterator<T> implements Iterator<T> {
+        private int next;
+        private int last = -1;
+        private int expected = modifications;
+
+        abstract T element(int index);
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public T next() {
+            checkModifications();
+
+            if(next >= size)
+                throw new NoSuchElementException();
+
+            last = next++;
+            return element(last);
+        }
+
+        @Override
+        public void remove() {
+            if(last == -1)
+                throw new IllegalStateException();
+
+            checkModifications();
+            removeAt(last);
+            next = last;
+            last = -1;
+            expected = modifications;
+        }
+
+        private void checkModifications() {
+            if(inflated || modifications != expected)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    //The views stay valid after the object inflates, so they check where the members are on every call
+    private final class EntryView extends AbstractSet<Entry<String, JsonValue>> {
+        @NotNull
+        @Override
+        public Iterator<Entry<String, JsonValue>> iterator() {
+            if(inflated)
+                return CompactJsonObject.super.entrySet().iterator();
+
+            return new MemberIterator<>() {
+                @Override
+                Entry<String, JsonValue> element(int index) {
+                    return new Member(names[index], members[index]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return CompactJsonObject.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if(!(o instanceof Entry<?, ?> entry))
+                return false;
+
+            JsonValue value = get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return o instanceof Entry<?, ?> entry && CompactJsonObject.this.remove(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public void clear() {
+            CompactJsonObject.this.clear();
+        }
+    }
+
+    private final class KeyView extends AbstractSet<String> {
+        @NotNull
+        @Override
+        public Iterator<String> iterator() {
+            if(inflated)
+                return CompactJsonObject.super.keySet().iterator();
+
+            return new MemberIterator<>() {
+                @Override
+                String element(int index) {
+                    return names[index];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return CompactJsonObject.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return CompactJsonObject.this.remove(o) != null;
+        }
+
+        @Override
+        public void clear() {
+            CompactJsonObject.this.clear();
+        }
+    }
+
+    private final class ValueView extends AbstractCollection<JsonValue> {
+        @NotNull
+        @Override
+        public Iterator<JsonValue> iterator() {
+            if(inflated)
+                return CompactJsonObject.super.values().iterator();
+
+            return new MemberIterator<>() {
+                @Override
+                JsonValue element(int index) {
+                    return members[index];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return CompactJsonObject.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+
+        @Override
+        public void clear() {
+            CompactJsonObject.this.clear();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package edu.cbet.json;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The gzip and zlib streams used by {@link JsonParser#parseCompressed(InputStream)} and {@link ObjectSerializer#serializeCompressed(Object, OutputStream)}.
+ * Closing the returned streams releases their native inflater or deflater right away but leaves the caller's stream open
+ */
+final class Compression {
+    static final int BUFFER_SIZE = 64 * 1024; //Compressed bytes handed to zlib per call, the JDK's 512 byte default means a native call every few hundred bytes
+
+    private static final int GZIP_MAGIC_0 = 0x1f;
+    private static final int GZIP_MAGIC_1 = 0x8b;
+
+    private Compression() {}
+
+    /**
+     * Gzip is told apart from zlib by its magic number, anything else is read as a zlib stream
+     */
+    static InputStream inflate(InputStream inputStream) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(new UnclosedInputStream(inputStream), 2);
+        byte[] magic = new byte[2];
+        int read = in.readNBytes(magic, 0, 2);
+        in.unread(magic, 0, read);
+
+        if(read == 2 && (magic[0] & 0xFF) == GZIP_MAGIC_0 && (magic[1] & 0xFF) == GZIP_MAGIC_1)
+            return new GZIPInputStream(in, BUFFER_SIZE);
+
+        Inflater inflater = new Inflater();
+
+        return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    static GZIPOutputStream deflate(OutputStream outputStream) throws IOException {
+        return new GZIPOutputStream(new UnclosedOutputStream(outputStream), BUFFER_SIZE);
+    }
+
+    private static final class UnclosedInputStream extends FilterInputStream {
+        private UnclosedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {}
+    }
+
+    private static final class UnclosedOutputStream extends FilterOutputStream {
+        private UnclosedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException { //FilterOutputStream writes arrays a byte at a time
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package edu.cbet.json;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Decodes the escape sequences inside json strings one byte at a time, so a sequence split across two buffers can be resumed
+ * where it left off instead of reading ahead. Decoded characters are written to a sink as UTF-8 bytes,
+ * a high surrogate escape waits for the low surrogate escape after it, lone surrogates are written as '?'
+ */
+final class EscapeDecoder {
+    static final int CONSUMED = 0;
+    static final int NOT_CONSUMED = 1; //The byte doesn't belong to the escape and has to be handled as a regular one
+    static final int INVALID_ESCAPE = 2;
+    static final int INVALID_UNICODE = 3;
+
+    private static final int NONE = 0;
+    private static final int ESCAPE = 1;
+    private static final int HEX = 2; //HEX through HEX + 3 for each of the 4 digits
+    private static final int AFTER_HIGH = 6;
+    private static final int AFTER_HIGH_ESCAPE = 7;
+
+    private int state = NONE;
+    private int value;
+    private int highSurrogate = -1;
+
+    /**
+     * Starts a sequence, call this on the backslash
+     */
+    void begin() {
+        state = ESCAPE;
+    }
+
+    boolean isActive() {
+        return state != NONE;
+    }
+
+    void reset() {
+        state = NONE;
+        highSurrogate = -1;
+    }
+
+    int next(byte b, IntConsumer sink) {
+        switch (state) {
+            case ESCAPE -> {
+                state = NONE;
+
+                switch (b) {
+                    case 'n' -> sink.accept('\n');
+                    case 't' -> sink.accept('\t');
+                    case 'r' -> sink.accept('\r');
+                    case 'b' -> sink.accept('\b');
+                    case 'f' -> sink.accept('\f');
+                    case '0' -> sink.accept('\0');
+                    case '\\', '\"', '\'', '/' -> sink.accept(b);
+                    case 'u' -> {
+                        state = HEX;
+                        value = 0;
+                    }
+                    default -> {
+                        return INVALID_ESCAPE;
+                    }
+                }
+
+                return CONSUMED;
+            }
+            case AFTER_HIGH -> {
+                if(b == '\\') {
+                    state = AFTER_HIGH_ESCAPE;
+                    return CONSUMED;
+                }
+
+                loneSurrogate(sink);
+                return NOT_CONSUMED;
+            }
+            case AFTER_HIGH_ESCAPE -> {
+                if(b == 'u') {
+                    state = HEX;
+                    value = 0;
+                    return CONSUMED;
+                }
+
+                loneSurrogate(sink);
+                state = ESCAPE;
+                return next(b, sink);
+            }
+            default -> {
+                int digit = Character.digit(b, 16);
+
+                if(digit == -1) {
+                    reset();
+                    return INVALID_UNICODE;
+                }
+
+                value = (value << 4) | digit;
+
+                if(++state == HEX + 4) {
+                    state = NONE;
+                    codePoint(value, sink);
+                }
+
+                return CONSUMED;
+            }
+        }
+    }
+
+    private void codePoint(int cp, IntConsumer sink) {
+        if(highSurrogate != -1) {
+            if(Character.isLowSurrogate((char) cp)) {
+                int high = highSurrogate;
+                highSurrogate = -1;
+                write(Character.toCodePoint((char) high, (char) cp), sink);
+                return;
+            }
+
+            loneSurrogate(sink);
+        }
+
+        if(Character.isHighSurrogate((char) cp)) {
+            highSurrogate = cp;
+            state = AFTER_HIGH;
+        } else if(Character.isLowSurrogate((char) cp)) {
+            sink.accept('?');
+        } else {
+            write(cp, sink);
+        }
+    }
+
+    private void loneSurrogate(IntConsumer sink) {
+        highSurrogate = -1;
+        state = NONE;
+        sink.accept('?');
+    }
+
+    private static void write(int cp, IntConsumer sink) {
+        if(cp < 0x80) {
+            sink.accept(cp);
+        } else if(cp < 0x800) {
+            sink.accept(0xC0 | (cp >> 6));
+            sink.accept(0x80 | (cp & 0x3F));
+        } else if(cp < 0x10000) {
+            sink.accept(0xE0 | (cp >> 12));
+            sink.accept(0x80 | ((cp >> 6) & 0x3F));
+            sink.accept(0x80 | (cp & 0x3F));
+        } else {
+            sink.accept(0xF0 | (cp >> 18));
+            sink.accept(0x80 | ((cp >> 12) & 0x3F));
+            sink.accept(0x80 | ((cp >> 6) & 0x3F));
+            sink.accept(0x80 | (cp & 0x3F));
+        }
+    }
+}
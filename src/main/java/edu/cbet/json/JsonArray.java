@@ -2,12 +2,27 @@ package edu.cbet.json;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
 
 public class JsonArray extends ArrayList<JsonValue> implements JsonValue {
+    private static final AtomicReferenceFieldUpdater<JsonArray, StructuralHash> HASH_GROUP =
+            AtomicReferenceFieldUpdater.newUpdater(JsonArray.class, StructuralHash.class, "hashGroup");
+
+    private int hash;
+    private volatile long hashVersion; //The version of the group the hash was cached at, 0 while it was never hashed
+    private volatile StructuralHash hashGroup;
 
     public JsonArray() {}
 
@@ -189,16 +204,188 @@ public class JsonArray extends ArrayList<JsonValue> implements JsonValue {
         this.add(JsonNull.NULL);
     }
 
+    /**
+     * @return every element as a long, throws the same as {@link JsonValue#getAsLong()} if one of them isn't an integer
+     */
+    @NotNull
+    public long[] toLongArray() {
+        long[] array = new long[this.size()];
+
+        for(int x = 0; x < array.length; x++)
+            array[x] = this.getLong(x);
+
+        return array;
+    }
+
+    /**
+     * @return every element as a double, throws the same as {@link JsonValue#getAsDouble()} if one of them isn't a number
+     */
+    @NotNull
+    public double[] toDoubleArray() {
+        double[] array = new double[this.size()];
+
+        for(int x = 0; x < array.length; x++)
+            array[x] = this.getDouble(x);
+
+        return array;
+    }
+
+    @NotNull
+    public LongStream longStream() {
+        return this.stream().mapToLong(JsonValue::getAsLong);
+    }
+
+    @NotNull
+    public DoubleStream doubleStream() {
+        return this.stream().mapToDouble(JsonValue::getAsDouble);
+    }
+
     @Override
     public boolean add(JsonValue value) {
+        mutated();
         return super.add(value == null? JsonNull.NULL: value);
     }
 
     @Override
     public JsonValue set(int index, JsonValue value){
+        mutated();
         return super.set(index, value == null? JsonNull.NULL: value);
     }
 
+    /**
+     * Has to be called on every change so the cached hashes that include this array get recomputed, see {@link StructuralHash}.
+     * The iterators of the ArrayList already go through the methods below
+     */
+    void mutated() {
+        StructuralHash group = hashGroup;
+
+        if(group != null)
+            group.advance();
+    }
+
+    @Override
+    public void add(int index, JsonValue element) {
+        mutated();
+        super.add(index, element);
+    }
+
+    @Override
+    public JsonValue remove(int index) {
+        mutated();
+        return super.remove(index);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        mutated();
+        return super.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        mutated();
+        super.clear();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends JsonValue> c) {
+        mutated();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends JsonValue> c) {
+        mutated();
+        return super.addAll(index, c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        mutated();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        mutated();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super JsonValue> filter) {
+        mutated();
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<JsonValue> operator) {
+        mutated();
+        super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super JsonValue> c) {
+        mutated();
+        super.sort(c);
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        mutated();
+        super.removeRange(fromIndex, toIndex);
+    }
+
+    /**
+     * The sub list of the ArrayList writes {@code set} and a few bulk operations straight into the backing array, so they're routed through this array instead
+     */
+    @NotNull
+    @Override
+    public List<JsonValue> subList(int fromIndex, int toIndex) {
+        return new SubList(super.subList(fromIndex, toIndex));
+    }
+
+    private final class SubList extends AbstractList<JsonValue> implements RandomAccess {
+        private final List<JsonValue> list;
+
+        private SubList(List<JsonValue> list) {
+            this.list = list;
+        }
+
+        @Override
+        public JsonValue get(int index) {
+            return list.get(index);
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public JsonValue set(int index, JsonValue element) {
+            mutated();
+            return list.set(index, element == null? JsonNull.NULL: element);
+        }
+
+        @Override
+        public void add(int index, JsonValue element) {
+            list.add(index, element);
+            modCount++;
+        }
+
+        @Override
+        public JsonValue remove(int index) {
+            modCount++;
+            return list.remove(index);
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            modCount++;
+            list.subList(fromIndex, toIndex).clear();
+        }
+    }
+
     @Override
     public boolean isArray() {
         return true;
@@ -214,13 +401,71 @@ public class JsonArray extends ArrayList<JsonValue> implements JsonValue {
         return new JsonArray(collection);
     }
 
+    /**
+     * The hash is cached until this array, or anything nested in it, changes, which also lets {@link #equals(Object)} reject
+     * unequal arrays by comparing their hashes when both are already cached
+     */
+    @Override
+    public int hashCode() {
+        return groupHash(null);
+    }
+
+    /**
+     * Hashes this array as part of the containers in the group, joining it if this array wasn't hashed yet, or merging the two groups
+     * if it was hashed somewhere else before
+     */
+    int groupHash(StructuralHash parent) {
+        StructuralHash group = hashGroup;
+
+        if(group == null) {
+            group = parent != null? parent: new StructuralHash();
+
+            if(!HASH_GROUP.compareAndSet(this, null, group))
+                group = hashGroup;
+        }
+
+        if(parent != null && parent != group)
+            parent.merge(group);
+
+        long version = group.version();
+
+        if(hashVersion == version)
+            return hash;
+
+        int hash = structuralHash(group);
+        this.hash = hash;
+        this.hashVersion = version; //Written last so a thread seeing the version also sees the hash
+
+        return hash;
+    }
+
+    /**
+     * @return whether the hash is cached and still valid, so {@link #hashCode()} returns it without going through the array
+     */
+    boolean isHashCached() {
+        StructuralHash group = hashGroup;
+        return group != null && hashVersion == group.version();
+    }
+
+    /**
+     * @return the hash from {@link List#hashCode()}, without the cache of this array
+     */
+    int structuralHash(StructuralHash group) {
+        int hash = 1;
+
+        for(int x = 0, size = size(); x < size; x++)
+            hash = 31 * hash + StructuralHash.hash(get(x), group);
+
+        return hash;
+    }
+
     @Override
     public boolean equals(Object o) {
         if(this == o)
             return true;
 
         if(o instanceof JsonArray arr) {
-            if(arr.size() != this.size())
+            if(arr.size() != this.size() || arr.isHashCached() && this.isHashCached() && arr.hashCode() != this.hashCode())
                 return false;
 
             Iterator<JsonValue> itr = this.iterator();
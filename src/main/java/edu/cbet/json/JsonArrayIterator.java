@@ -0,0 +1,90 @@
+package edu.cbet.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the elements of a json document whose root is an array, each element is built as soon as it closes so
+ * only one element is held in memory at a time. Created through {@link JsonParser#iterateArray(java.io.InputStream)} and friends
+ */
+public class JsonArrayIterator implements Iterator<JsonValue>, Closeable {
+    private final JsonReader reader;
+    private JsonValue next;
+    private boolean started;
+    private boolean done;
+
+    JsonArrayIterator(JsonReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if(next != null)
+            return true;
+        else if(done)
+            return false;
+
+        try {
+            if(!started) {
+                started = true;
+
+                if(reader.nextToken() != JsonToken.START_ARRAY)
+                    throw new IllegalArgumentException("Expected the root of the json to be an array");
+            }
+
+            JsonToken token = reader.nextToken();
+
+            if(token == JsonToken.END_ARRAY) {
+                done = true;
+
+                if(reader.nextToken() != null)
+                    throw new IllegalArgumentException("Unexpected json after the end of the root array");
+
+                return false;
+            }
+
+            next = reader.readValue();
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public JsonValue next() {
+        if(!hasNext())
+            throw new NoSuchElementException();
+
+        JsonValue value = next;
+        next = null;
+        return value;
+    }
+
+    /**
+     * @return a sequential stream over the remaining elements, closing the stream closes this iterator
+     */
+    public Stream<JsonValue> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        done = true;
+        next = null;
+        reader.close();
+    }
+}
@@ -46,6 +46,11 @@ public class JsonBoolean implements JsonValue {
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        return Boolean.hashCode(this.value);
+    }
+
     @NotNull
     public static JsonBoolean valueOf(boolean b) {
         return b? TRUE: FALSE;
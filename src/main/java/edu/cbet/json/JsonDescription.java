@@ -72,6 +72,13 @@ public class JsonDescription<T> implements JsonSerializer<T> {
         return new JsonObject(map);
     }
 
+    /**
+     * @return the descriptors of every serialized field, also used by {@link ObjectDeserializer} to bind json back onto the fields
+     */
+    List<FieldDescriptor<T>> getFieldDescriptors() {
+        return fieldDescriptors;
+    }
+
     @Override
     public void addFilter(Filter filter) {
         for(FieldDescriptor<T> descriptor: fieldDescriptors) {
@@ -79,7 +86,7 @@ public class JsonDescription<T> implements JsonSerializer<T> {
         }
     }
 
-    private static class FieldDescriptor<T> {
+    static class FieldDescriptor<T> {
         private final String propertyName;
         private final Field field;
         private final boolean alwaysString;
@@ -92,6 +99,10 @@ public class JsonDescription<T> implements JsonSerializer<T> {
             this.active = true;
         }
 
+        public Field getField() {
+            return field;
+        }
+
         public boolean isAlwaysString() {
             return alwaysString;
         }
@@ -0,0 +1,358 @@
+package edu.cbet.json;
+
+import edu.cbet.json.impl.BufferSequence;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * A non-blocking parser that is pushed input as it arrives instead of pulling it from a stream, for event loops that can't block waiting on a body.
+ * Each call to {@link #feed(ByteBuffer)} consumes the whole fragment, whatever is left unfinished at the end of it (a string, number, escape sequence
+ * or any open objects and arrays) is kept and picked up again by the next fragment, so fragments can be split anywhere.
+ * Every complete top level value is handed to the consumer as soon as its last byte is fed, any number of values can follow one another.
+ * Call {@link #end()} once the input is over to finish a trailing top level number or literal and to check nothing was left open
+ */
+public class JsonFeedParser {
+    private static final int EXPECT_VALUE = 0;
+    private static final int EXPECT_FIRST_VALUE = 1;
+    private static final int EXPECT_FIRST_KEY = 2;
+    private static final int EXPECT_KEY = 3;
+    private static final int EXPECT_COLON = 4;
+    private static final int AFTER_VALUE = 5;
+
+    private static final int LEX_NONE = 0;
+    private static final int LEX_STRING = 1;
+    private static final int LEX_LITERAL = 2;
+
+    private final Consumer<? super JsonValue> consumer;
+    private final ArrayDeque<JsonValue> queue;
+    private final EscapeDecoder escapes = new EscapeDecoder();
+    private final NumberDecoder numbers = new NumberDecoder();
+    private final IntConsumer textSink = b -> _textChar((byte) b);
+    private StringCache keyCache = new StringCache();
+    private JsonLimits limits = JsonLimits.NONE;
+
+    private byte[] textBuffer = new byte[JsonParser.DEFAULT_BUFFER_SIZE];
+    private int strLen;
+    private int lexical = LEX_NONE;
+    private boolean stringIsKey;
+
+    private int state = EXPECT_VALUE;
+    private JsonValue[] containers = new JsonValue[32];
+    private String[] names = new String[32]; //The field name each open container will be put under in its parent
+    private int depth;
+    private String name;
+    private long offset; //Index of the current fragment's first byte in the whole input, only used for error messages
+
+    /**
+     * Completed values are queued up to be taken with {@link #poll()}
+     */
+    public JsonFeedParser() {
+        this.consumer = null;
+        this.queue = new ArrayDeque<>();
+    }
+
+    /**
+     * Completed values are handed to the consumer on the thread calling {@link #feed(ByteBuffer)}
+     */
+    public JsonFeedParser(@NotNull Consumer<? super JsonValue> consumer) {
+        this.consumer = Objects.requireNonNull(consumer);
+        this.queue = null;
+    }
+
+    public void setKeyCache(StringCache keyCache) {
+        this.keyCache = keyCache;
+    }
+
+    /**
+     * Checked as fragments are fed, the document size counts every byte fed since the last {@link #end()} or {@link #reset()}
+     */
+    public void setLimits(@NotNull JsonLimits limits) {
+        this.limits = Objects.requireNonNull(limits);
+    }
+
+    public JsonLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Parses every remaining byte of the fragment, the buffer's position is moved to its limit
+     * @throws IllegalArgumentException if the json is invalid, the parser is left in an unusable state until {@link #reset()}
+     */
+    public void feed(@NotNull ByteBuffer fragment) {
+        int from = fragment.position();
+        int limit = fragment.limit();
+
+        if(offset + (limit - from) > limits.getMaxDocumentSize())
+            throw limits.documentTooLarge();
+
+        for(int x = from; x < limit; x++) {
+            byte b = fragment.get(x);
+
+            if(lexical == LEX_STRING) {
+                if(escapes.isActive()) {
+                    int result = escapes.next(b, textSink);
+
+                    if(result == EscapeDecoder.INVALID_ESCAPE)
+                        throw error("Invalid character was escaped", fragment, x);
+                    else if(result == EscapeDecoder.INVALID_UNICODE)
+                        throw error("Invalid unicode escape sequence", fragment, x);
+                    else if(result == EscapeDecoder.CONSUMED)
+                        continue;
+                }
+
+                if(b == '\"') {
+                    lexical = LEX_NONE;
+                    endString();
+                } else if(b == '\\') {
+                    escapes.begin();
+                } else {
+                    _textChar(b);
+                }
+
+                continue;
+            }
+
+            if(lexical == LEX_LITERAL) {
+                if(!isDelimiter(b)) {
+                    _textChar(b);
+                    continue;
+                }
+
+                lexical = LEX_NONE;
+                endLiteral(fragment, x);
+            }
+
+            if(b == 0 || Character.isWhitespace(b))
+                continue;
+
+            structural(b, fragment, x);
+        }
+
+        offset += limit - from;
+        fragment.position(limit);
+    }
+
+    public void feed(byte[] bytes, int offset, int len) {
+        feed(ByteBuffer.wrap(bytes, offset, len));
+    }
+
+    public void feed(byte[] bytes) {
+        feed(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Signals the end of the input, a trailing top level literal is completed and the parser is reset so it can be fed a new input
+     * @throws IllegalArgumentException if the input ended in the middle of a value
+     */
+    public void end() {
+        if(lexical == LEX_LITERAL && depth == 0) {
+            lexical = LEX_NONE;
+            endLiteral(null, -1);
+        }
+
+        if(lexical == LEX_STRING) {
+            reset();
+            throw new IllegalArgumentException("String started but never finished");
+        } else if(depth != 0) {
+            reset();
+            throw new IllegalArgumentException("Unclosed objects and/or arrays in json");
+        }
+
+        reset();
+    }
+
+    /**
+     * Drops any partially parsed value, queued values are kept
+     */
+    public void reset() {
+        Arrays.fill(containers, 0, depth, null);
+        Arrays.fill(names, 0, depth, null);
+        depth = 0;
+        name = null;
+        strLen = 0;
+        lexical = LEX_NONE;
+        state = EXPECT_VALUE;
+        offset = 0;
+        escapes.reset();
+    }
+
+    /**
+     * @return the next completed value or null if there isn't one yet, only for parsers created without a consumer
+     */
+    @Nullable
+    public JsonValue poll() {
+        if(queue == null)
+            throw new IllegalStateException("Values are handed to the consumer instead of being queued");
+
+        return queue.poll();
+    }
+
+    /**
+     * @return the number of objects and arrays currently open
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    private void structural(byte b, ByteBuffer fragment, int x) {
+        switch (state) {
+            case EXPECT_VALUE, EXPECT_FIRST_VALUE -> {
+                if(b == '{') {
+                    push(new CompactJsonObject(), fragment, x);
+                    state = EXPECT_FIRST_KEY;
+                } else if(b == '[') {
+                    push(new NumericJsonArray(), fragment, x);
+                    state = EXPECT_FIRST_VALUE;
+                } else if(b == ']' && state == EXPECT_FIRST_VALUE) {
+                    pop();
+                } else if(b == '\"') {
+                    startString(false);
+                } else if(!isDelimiter(b)) {
+                    lexical = LEX_LITERAL;
+                    strLen = 0;
+                    _textChar(b);
+                } else {
+                    throw error("Expected value", fragment, x);
+                }
+            }
+            case EXPECT_FIRST_KEY, EXPECT_KEY -> {
+                if(b == '\"')
+                    startString(true);
+                else if(b == '}' && state == EXPECT_FIRST_KEY)
+                    pop();
+                else
+                    throw error("Expected field name", fragment, x);
+            }
+            case EXPECT_COLON -> {
+                if(b != ':')
+                    throw error("Expected ':'", fragment, x);
+
+                state = EXPECT_VALUE;
+            }
+            default -> {
+                boolean object = containers[depth-1] instanceof JsonObject;
+
+                if(b == ',')
+                    state = object? EXPECT_KEY: EXPECT_VALUE;
+                else if(b == (object? '}': ']'))
+                    pop();
+                else
+                    throw error("Expected ',' or '" + (object? '}': ']') + '\'', fragment, x);
+            }
+        }
+    }
+
+    private void startString(boolean key) {
+        lexical = LEX_STRING;
+        stringIsKey = key;
+        strLen = 0;
+    }
+
+    private void endString() {
+        if(stringIsKey) {
+            name = keyCache != null? keyCache.get(textBuffer, 0, strLen): new String(textBuffer, 0, strLen, StandardCharsets.UTF_8);
+            state = EXPECT_COLON;
+        } else {
+            value(strLen == 0? JsonString.EMPTY: JsonString.valueOf(new String(textBuffer, 0, strLen, StandardCharsets.UTF_8)));
+        }
+    }
+
+    private void endLiteral(ByteBuffer fragment, int x) {
+        JsonValue value;
+
+        if(strLen == 4 && Arrays.equals(textBuffer, 0, 4, JsonParser.TRUE_BYTES, 0, 4)) {
+            value = JsonBoolean.TRUE;
+        } else if(strLen == 5 && Arrays.equals(textBuffer, 0, 5, JsonParser.FALSE_BYTES, 0, 5)) {
+            value = JsonBoolean.FALSE;
+        } else if(strLen == 4 && Arrays.equals(textBuffer, 0, 4, JsonParser.NULL_BYTES, 0, 4)) {
+            value = JsonNull.NULL;
+        } else if(numbers.decode(textBuffer, 0, strLen)) {
+            value = numbers.toJsonNumber();
+        } else {
+            String message = "Invalid json value '" + new BufferSequence(textBuffer, 0, strLen) + '\'';
+            throw fragment == null? new IllegalArgumentException(message): error(message, fragment, x);
+        }
+
+        value(value);
+    }
+
+    private void value(JsonValue value) {
+        if(depth == 0) {
+            if(consumer != null)
+                consumer.accept(value);
+            else
+                queue.add(value);
+
+            state = EXPECT_VALUE;
+            return;
+        }
+
+        JsonValue container = containers[depth-1];
+
+        if(container instanceof JsonObject object) {
+            if(object.size() >= limits.getMaxObjectKeys() && !object.containsKey(name))
+                throw new IllegalArgumentException("Object has more keys than the limit of " + limits.getMaxObjectKeys());
+
+            object.put(name, value);
+            name = null;
+        } else {
+            JsonArray array = (JsonArray) container;
+
+            if(array.size() >= limits.getMaxArrayElements())
+                throw new IllegalArgumentException("Array has more elements than the limit of " + limits.getMaxArrayElements());
+
+            array.add(value);
+        }
+
+        state = AFTER_VALUE;
+    }
+
+    private void push(JsonValue container, ByteBuffer fragment, int x) {
+        if(depth >= limits.getMaxDepth())
+            throw error("Json is nested deeper than the limit of " + limits.getMaxDepth(), fragment, x);
+
+        if(depth == containers.length) {
+            containers = Arrays.copyOf(containers, depth << 1);
+            names = Arrays.copyOf(names, depth << 1);
+        }
+
+        containers[depth] = container;
+        names[depth++] = name;
+        name = null;
+    }
+
+    private void pop() {
+        JsonValue container = containers[--depth];
+        name = names[depth];
+        containers[depth] = null;
+        names[depth] = null;
+
+        value(container);
+    }
+
+    private void _textChar(byte b) {
+        if(strLen >= limits.getMaxStringLength())
+            throw limits.stringTooLong();
+
+        if(strLen == textBuffer.length)
+            textBuffer = Arrays.copyOf(textBuffer, textBuffer.length << 1);
+
+        textBuffer[strLen++] = b;
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == ',' || b == '}' || b == ']' || b == ':' || b == '{' || b == '[' || b == '\"' || b == 0 || Character.isWhitespace(b);
+    }
+
+    private IllegalArgumentException error(String message, ByteBuffer fragment, int x) {
+        return new IllegalArgumentException(message + " at index " + (offset + x - fragment.position()) + ", json preview '" + JsonParser.getSurroundingSection(fragment, x) + '\'');
+    }
+}
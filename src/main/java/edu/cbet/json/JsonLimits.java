@@ -0,0 +1,97 @@
+package edu.cbet.json;
+
+/**
+ * Upper bounds on what a {@link JsonParser}, {@link JsonReader}, {@link JsonFeedParser} or {@link ObjectDeserializer} will accept, checked as the input is scanned so a hostile document fails as soon as it crosses one
+ * rather than after it has already been read into memory. Instances are immutable, start from {@link #NONE} and narrow it down:
+ * {@code JsonLimits.NONE.withMaxDepth(64).withMaxDocumentSize(1 << 20)}
+ */
+public final class JsonLimits {
+    public static final JsonLimits NONE = new JsonLimits(Integer.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final int maxDepth;
+    private final long maxDocumentSize;
+    private final int maxStringLength;
+    private final int maxObjectKeys;
+    private final int maxArrayElements;
+
+    private JsonLimits(int maxDepth, long maxDocumentSize, int maxStringLength, int maxObjectKeys, int maxArrayElements) {
+        this.maxDepth = positive(maxDepth, "Max depth");
+        this.maxDocumentSize = maxDocumentSize;
+        this.maxStringLength = positive(maxStringLength, "Max string length");
+        this.maxObjectKeys = positive(maxObjectKeys, "Max object keys");
+        this.maxArrayElements = positive(maxArrayElements, "Max array elements");
+
+        if(maxDocumentSize <= 0)
+            throw new IllegalArgumentException("Max document size must be positive, got " + maxDocumentSize);
+    }
+
+    /**
+     * @param maxDepth how many objects and arrays can be open at once
+     */
+    public JsonLimits withMaxDepth(int maxDepth) {
+        return new JsonLimits(maxDepth, maxDocumentSize, maxStringLength, maxObjectKeys, maxArrayElements);
+    }
+
+    /**
+     * @param maxDocumentSize the most bytes of input read, after decompression for {@link JsonParser#parseCompressed(java.io.InputStream)}
+     */
+    public JsonLimits withMaxDocumentSize(long maxDocumentSize) {
+        return new JsonLimits(maxDepth, maxDocumentSize, maxStringLength, maxObjectKeys, maxArrayElements);
+    }
+
+    /**
+     * @param maxStringLength the most UTF-8 bytes in a single string, field name or number
+     */
+    public JsonLimits withMaxStringLength(int maxStringLength) {
+        return new JsonLimits(maxDepth, maxDocumentSize, maxStringLength, maxObjectKeys, maxArrayElements);
+    }
+
+    public JsonLimits withMaxObjectKeys(int maxObjectKeys) {
+        return new JsonLimits(maxDepth, maxDocumentSize, maxStringLength, maxObjectKeys, maxArrayElements);
+    }
+
+    public JsonLimits withMaxArrayElements(int maxArrayElements) {
+        return new JsonLimits(maxDepth, maxDocumentSize, maxStringLength, maxObjectKeys, maxArrayElements);
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getMaxDocumentSize() {
+        return maxDocumentSize;
+    }
+
+    public int getMaxStringLength() {
+        return maxStringLength;
+    }
+
+    public int getMaxObjectKeys() {
+        return maxObjectKeys;
+    }
+
+    public int getMaxArrayElements() {
+        return maxArrayElements;
+    }
+
+    IllegalArgumentException documentTooLarge() {
+        return new IllegalArgumentException("Json is larger than the limit of " + maxDocumentSize + " bytes");
+    }
+
+    IllegalArgumentException stringTooLong() {
+        return new IllegalArgumentException("Json string or value is longer than the limit of " + maxStringLength + " bytes");
+    }
+
+    private static int positive(int value, String name) {
+        if(value <= 0)
+            throw new IllegalArgumentException(name + " must be positive, got " + value);
+
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "JsonLimits{maxDepth=" + maxDepth + ", maxDocumentSize=" + maxDocumentSize + ", maxStringLength=" + maxStringLength +
+                ", maxObjectKeys=" + maxObjectKeys + ", maxArrayElements=" + maxArrayElements + '}';
+    }
+}
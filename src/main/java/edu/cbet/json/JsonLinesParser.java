@@ -0,0 +1,244 @@
+package edu.cbet.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Parses newline delimited json (NDJSON / JSON Lines), where every non-blank line is a json value of its own.
+ * The input is read in chunks that are cut at the last newline, and each chunk is parsed as a separate task on a {@link ForkJoinPool}
+ * with parsers borrowed from a {@link JsonParserPool}. Only a couple of chunks per pool thread are in flight at once,
+ * so memory stays bounded no matter how large the input is
+ */
+public class JsonLinesParser {
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    private final ForkJoinPool pool;
+    private final JsonParserPool parsers;
+    private final int chunkSize;
+    private final int maxPendingChunks;
+
+    public JsonLinesParser() {
+        this(ForkJoinPool.commonPool(), new JsonParserPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize the number of bytes read before a chunk is handed off, chunks grow past this for lines that don't fit
+     */
+    public JsonLinesParser(@NotNull ForkJoinPool pool, @NotNull JsonParserPool parsers, int chunkSize) {
+        if(chunkSize <= 0)
+            throw new IllegalArgumentException("Chunk size must be positive, got " + chunkSize);
+
+        this.pool = Objects.requireNonNull(pool);
+        this.parsers = Objects.requireNonNull(parsers);
+        this.chunkSize = chunkSize;
+        this.maxPendingChunks = pool.getParallelism() * 2;
+    }
+
+    /**
+     * Parses every line of the input, the stream isn't closed.
+     * When ordered the consumer is called on this thread with the records in input order, otherwise it's called from the pool threads,
+     * possibly concurrently, as soon as each chunk is parsed. Either way every record has been consumed once this returns
+     * and the consumer isn't called anymore after it throws
+     * @throws IllegalArgumentException if a line isn't valid json, the message includes the byte offset the line starts at
+     */
+    public void parse(@NotNull InputStream inputStream, @NotNull Consumer<? super JsonValue> consumer, boolean ordered) throws IOException {
+        ArrayDeque<ForkJoinTask<ChunkResult>> pending = new ArrayDeque<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        byte[] chunk = new byte[chunkSize];
+        int len = 0;
+        long offset = 0;
+
+        try {
+            while(true) {
+                int read = inputStream.read(chunk, len, chunk.length - len);
+
+                if(read == -1) {
+                    if(len != 0)
+                        pending.add(submit(chunk, len, offset, ordered? null: consumer, failed));
+                    break;
+                }
+
+                len += read;
+
+                if(len < chunk.length)
+                    continue;
+
+                int cut = lastNewline(chunk, len) + 1;
+
+                if(cut == 0) { //A single line longer than the whole chunk
+                    chunk = Arrays.copyOf(chunk, chunk.length << 1);
+                    continue;
+                }
+
+                byte[] next = new byte[Math.max(chunkSize, (len - cut) << 1)];
+                System.arraycopy(chunk, cut, next, 0, len - cut);
+
+                pending.add(submit(chunk, cut, offset, ordered? null: consumer, failed));
+                offset += cut;
+                chunk = next;
+                len -= cut;
+
+                while(pending.size() > maxPendingChunks)
+                    deliver(pending.poll(), consumer);
+            }
+
+            while(!pending.isEmpty())
+                deliver(pending.poll(), consumer);
+        } finally {
+            if(!pending.isEmpty()) { //Something failed, stop the chunks still queued and wait out the ones already running
+                failed.set(true);
+
+                for(ForkJoinTask<?> task: pending)
+                    task.cancel(false);
+
+                for(ForkJoinTask<?> task: pending)
+                    task.quietlyJoin();
+            }
+        }
+    }
+
+    public void parse(@NotNull File file, @NotNull Consumer<? super JsonValue> consumer, boolean ordered) throws IOException {
+        try(FileInputStream fileInputStream = new FileInputStream(file)) {
+            parse(fileInputStream, consumer, ordered);
+        }
+    }
+
+    /**
+     * @return every record in input order
+     */
+    public List<JsonValue> parseAll(@NotNull InputStream inputStream) throws IOException {
+        List<JsonValue> values = new ArrayList<>();
+        parse(inputStream, values::add, true);
+        return values;
+    }
+
+    /**
+     * Failures are returned rather than thrown, a task that throws gets its exception rebuilt by the pool when joined from another thread
+     */
+    private ForkJoinTask<ChunkResult> submit(byte[] chunk, int len, long offset, Consumer<? super JsonValue> consumer, AtomicBoolean failed) {
+        return pool.submit(() -> {
+            try {
+                return new ChunkResult(parseChunk(chunk, len, offset, consumer, failed), null);
+            } catch (RuntimeException | Error e) {
+                failed.set(true); //The other chunks stop at their next line instead of feeding the consumer after parse has thrown
+                return new ChunkResult(null, e);
+            }
+        });
+    }
+
+    private static void deliver(ForkJoinTask<ChunkResult> task, Consumer<? super JsonValue> consumer) {
+        ChunkResult result = task.join();
+
+        if(result.error instanceof RuntimeException e)
+            throw e;
+        else if(result.error instanceof Error e)
+            throw e;
+        else if(result.values != null)
+            result.values.forEach(consumer);
+    }
+
+    /**
+     * @return the parsed lines, or null if they were given to the consumer instead or another chunk failed and this one was stopped
+     */
+    private List<JsonValue> parseChunk(byte[] chunk, int len, long offset, Consumer<? super JsonValue> consumer, AtomicBoolean failed) {
+        List<JsonValue> values = consumer == null? new ArrayList<>(): null;
+        JsonParser parser = parsers.acquire();
+
+        try {
+            int start = 0;
+
+            while(start < len) {
+                if(failed.get())
+                    return null;
+
+                int end = start;
+
+                while(end < len && chunk[end] != '\n')
+                    end++;
+
+                int lineEnd = end > start && chunk[end-1] == '\r'? end - 1: end;
+                int first = firstNonBlank(chunk, start, lineEnd);
+
+                if(first != lineEnd) {
+                    ByteBuffer line = ByteBuffer.wrap(chunk, start, lineEnd - start).slice();
+                    JsonValue value;
+
+                    try {
+                        value = chunk[first] == '{' || chunk[first] == '['? parser.parse(new ByteContainer(line)): parseScalar(line, parser.getLimits());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Invalid json on the line starting at byte " + (offset + start) + ": " + e.getMessage(), e);
+                    } catch (IOException e) { //Can't happen when reading from memory
+                        throw new UncheckedIOException(e);
+                    }
+
+                    if(values != null)
+                        values.add(value);
+                    else
+                        consumer.accept(value);
+                }
+
+                start = end + 1;
+            }
+        } finally {
+            parsers.release(parser);
+        }
+
+        return values;
+    }
+
+    private static int lastNewline(byte[] bytes, int len) {
+        for(int x = len - 1; x >= 0; x--) {
+            if(bytes[x] == '\n')
+                return x;
+        }
+
+        return -1;
+    }
+
+    private static int firstNonBlank(byte[] bytes, int from, int to) {
+        for(int x = from; x < to; x++) {
+            if(bytes[x] != 0 && !Character.isWhitespace(bytes[x]))
+                return x;
+        }
+
+        return to;
+    }
+
+    /**
+     * JsonParser only takes an object or array at the top, a line holding a lone string, number, boolean or null is read with a JsonReader
+     */
+    private static JsonValue parseScalar(ByteBuffer line, JsonLimits limits) throws IOException {
+        JsonReader reader = new JsonReader(new ByteContainer(line), new byte[64], null);
+        reader.setLimits(limits);
+        reader.nextToken();
+        JsonValue value = reader.readValue();
+        reader.nextToken(); //Throws if there's anything else on the line
+
+        return value;
+    }
+
+    private static final class ChunkResult {
+        private final List<JsonValue> values;
+        private final Throwable error;
+
+        private ChunkResult(List<JsonValue> values, Throwable error) {
+            this.values = values;
+            this.error = error;
+        }
+    }
+}
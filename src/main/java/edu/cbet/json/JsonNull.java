@@ -24,4 +24,9 @@ public class JsonNull implements JsonValue{
     public boolean equals(Object obj) {
         return obj == null || obj instanceof JsonNull;
     }
+
+    @Override
+    public int hashCode() {
+        return 0;
+    }
 }
@@ -3,49 +3,157 @@ package edu.cbet.json;
 import org.jetbrains.annotations.NotNull;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
+/**
+ * A json number held without boxing, integers and doubles as primitives and parsed decimals as their exact unscaled digits and scale,
+ * so {@link #getAsBigDecimal()} gives back exactly what was in the document. Conversions to other types happen when they are asked for
+ */
 public class JsonNumber implements JsonValue{
-    private final boolean isInteger;
-    private final Number value;
+    private static final byte LONG = 0;
+    private static final byte DOUBLE = 1;
+    private static final byte FLOAT = 2;
+    private static final byte DECIMAL = 3; //bits * 10^-scale, the digits of a parsed non-integer that fit in a long
+    private static final byte TEXT = 4; //The parsed digits that don't, with the closest double in bits
+    private static final byte NUMBER = 5; //Any other Number, kept as it was given
+
+    //The primitive an integer was given as, so getAsNumber() boxes it back the same
+    private static final byte AS_LONG = 0;
+    private static final byte AS_INT = 1;
+    private static final byte AS_SHORT = 2;
+    private static final byte AS_BYTE = 3;
+
+    private static final int MIN_CACHED = -128;
+    private static final int MAX_CACHED = 1023;
+    private static final JsonNumber[] CACHE = new JsonNumber[MAX_CACHED - MIN_CACHED + 1];
+    private static final JsonNumber[] INT_CACHE = new JsonNumber[MAX_CACHED - MIN_CACHED + 1];
+
+    static {
+        for(int x = 0; x < CACHE.length; x++) {
+            CACHE[x] = new JsonNumber(LONG, x + MIN_CACHED, 0, null);
+            INT_CACHE[x] = new JsonNumber(x + MIN_CACHED);
+        }
+    }
+
+    private final byte kind;
+    private final byte width;
+    private final long bits;
+    private final int scale;
+    private final Object other;
+
+    private JsonNumber(byte kind, long bits, int scale, Object other) {
+        this(kind, AS_LONG, bits, scale, other);
+    }
+
+    private JsonNumber(byte kind, byte width, long bits, int scale, Object other) {
+        this.kind = kind;
+        this.width = width;
+        this.bits = bits;
+        this.scale = scale;
+        this.other = other;
+    }
 
     public JsonNumber(int value) {
-        this.value = value;
-        this.isInteger = true;
+        this(LONG, AS_INT, value, 0, null);
     }
 
     public JsonNumber(long value) {
-        this.value = value;
-        this.isInteger = true;
+        this(LONG, value, 0, null);
     }
 
     public JsonNumber(short value) {
-        this.value = value;
-        this.isInteger = true;
+        this(LONG, AS_SHORT, value, 0, null);
     }
 
     public JsonNumber(byte value) {
-        this.value = value;
-        this.isInteger = true;
+        this(LONG, AS_BYTE, value, 0, null);
     }
 
     public JsonNumber(float value) {
-        this.value = value;
-        this.isInteger = false;
+        this(FLOAT, Float.floatToRawIntBits(value), 0, null);
     }
 
     public JsonNumber(double value) {
-        this.value = value;
-        this.isInteger = false;
+        this(DOUBLE, Double.doubleToRawLongBits(value), 0, null);
     }
 
     public JsonNumber(@NotNull Number number) {
-        this.value = Objects.requireNonNull(number);
-        this.isInteger = !(number instanceof Double || number instanceof Float || number instanceof BigDecimal);
+        this(kindOf(Objects.requireNonNull(number)), widthOf(number), bitsOf(number), 0, kindOf(number) == NUMBER? number: null);
+    }
+
+    private static byte widthOf(Number number) {
+        if(number instanceof Integer)
+            return AS_INT;
+        else if(number instanceof Short)
+            return AS_SHORT;
+        else if(number instanceof Byte)
+            return AS_BYTE;
+
+        return AS_LONG;
+    }
+
+    private static byte kindOf(Number number) {
+        if(number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte)
+            return LONG;
+        else if(number instanceof Double)
+            return DOUBLE;
+        else if(number instanceof Float)
+            return FLOAT;
+
+        return NUMBER;
+    }
+
+    private static long bitsOf(Number number) {
+        return switch(kindOf(number)) {
+            case LONG -> number.longValue();
+            case DOUBLE -> Double.doubleToRawLongBits(number.doubleValue());
+            case FLOAT -> Float.floatToRawIntBits(number.floatValue());
+            default -> 0;
+        };
+    }
+
+    /**
+     * A parsed non-integer worth {@code unscaled * 10^exp10}
+     */
+    static JsonNumber decimal(long unscaled, int exp10) {
+        return new JsonNumber(DECIMAL, unscaled, -exp10, null);
+    }
+
+    /**
+     * A parsed number with too many digits for {@link #decimal(long, int)}, {@code text} has to be ASCII
+     */
+    static JsonNumber text(byte[] text, double value) {
+        return new JsonNumber(TEXT, Double.doubleToRawLongBits(value), 0, text);
+    }
+
+    boolean isLong() {
+        return kind == LONG;
+    }
+
+    boolean isDouble() {
+        return kind == DOUBLE;
+    }
+
+    /**
+     * @return true for a parsed non-integer held as {@link #unscaledValue()} * 10^{@link #exp10()}
+     */
+    boolean isDecimal() {
+        return kind == DECIMAL;
+    }
+
+    long unscaledValue() {
+        return bits;
+    }
+
+    int exp10() {
+        return -scale;
     }
 
     public boolean isInteger() {
-        return this.isInteger;
+        return kind == LONG || kind == NUMBER && !(other instanceof BigDecimal);
     }
 
     @Override
@@ -60,48 +168,58 @@ public class JsonNumber implements JsonValue{
 
     @Override
     public double getAsDouble() {
-        return this.value.doubleValue();
+        return switch(kind) {
+            case LONG -> (double) bits;
+            case DOUBLE, TEXT -> Double.longBitsToDouble(bits);
+            case FLOAT -> Float.intBitsToFloat((int) bits);
+            case DECIMAL -> NumberDecoder.toDouble(bits, -scale);
+            default -> ((Number) other).doubleValue();
+        };
     }
 
     @Override
     public float getAsFloat() {
-        return this.value.floatValue();
+        return switch(kind) {
+            case LONG -> (float) bits;
+            case FLOAT -> Float.intBitsToFloat((int) bits);
+            case NUMBER -> ((Number) other).floatValue();
+            default -> (float) getAsDouble();
+        };
+    }
+
+    private long integerValue() {
+        if(!this.isInteger())
+            throw new IllegalStateException("JsonValue is a floating-point number, conversion to an integer will always be lossy");
+
+        return kind == LONG? bits: ((Number) other).longValue();
     }
 
     @Override
     public int getAsInteger() {
-        if(!this.isInteger)
-            throw new IllegalStateException("JsonValue is a floating-point number, conversion to an integer will always be lossy");
-        return this.value.intValue();
+        return (int) integerValue();
     }
 
     @Override
     public long getAsLong() {
-        if(!this.isInteger)
-            throw new IllegalStateException("JsonValue is a floating-point number, conversion to an integer will always be lossy");
-        return this.value.longValue();
+        return integerValue();
     }
 
     @Override
     public short getAsShort() {
-        if (!this.isInteger)
-            throw new IllegalStateException("JsonValue is a floating-point number, conversion to an integer will always be lossy");
-        return this.value.shortValue();
+        return (short) integerValue();
     }
 
     @Override
     public byte getAsByte() {
-        if(!this.isInteger)
-            throw new IllegalStateException("JsonValue is a floating-point number, conversion to an integer will always be lossy");
-        return this.value.byteValue();
+        return (byte) integerValue();
     }
 
     @Override
     public char getAsCharacter() {
-        if(!this.isInteger)
+        if(!this.isInteger())
             throw new IllegalStateException("JsonNumber is not a valid character");
 
-        int v = this.value.intValue();
+        int v = (int) integerValue();
 
         if(v > Character.MAX_VALUE || v < 0) {
             throw new IllegalStateException("JsonNumber is not a valid character");
@@ -110,23 +228,121 @@ public class JsonNumber implements JsonValue{
         return (char) v;
     }
 
+    /**
+     * @return integers boxed as the type they were given as, parsed ones as a Long, and the closest Double for parsed non-integers,
+     * {@link #getAsBigDecimal()} has their exact value
+     */
     @NotNull
     public Number getAsNumber() {
-        return this.value;
+        return switch(kind) {
+            case LONG -> switch(width) {
+                case AS_INT -> (int) bits;
+                case AS_SHORT -> (short) bits;
+                case AS_BYTE -> (byte) bits;
+                default -> bits;
+            };
+            case FLOAT -> Float.intBitsToFloat((int) bits);
+            case NUMBER -> (Number) other;
+            default -> getAsDouble();
+        };
+    }
+
+    /**
+     * @return the exact value for integers and parsed numbers, doubles are rounded to the fewest digits that still give back the same double
+     */
+    @NotNull
+    @Override
+    public BigDecimal getAsBigDecimal() {
+        switch(kind) {
+            case LONG:
+                return BigDecimal.valueOf(bits);
+            case DECIMAL:
+                return BigDecimal.valueOf(bits, scale);
+            case TEXT:
+                return new BigDecimal(new String((byte[]) other, StandardCharsets.ISO_8859_1));
+            case FLOAT:
+                return new BigDecimal(Float.toString(Float.intBitsToFloat((int) bits)));
+            case NUMBER:
+                if(other instanceof BigDecimal decimal)
+                    return decimal;
+                else if(other instanceof BigInteger integer)
+                    return new BigDecimal(integer);
+                else if(isInteger())
+                    return BigDecimal.valueOf(((Number) other).longValue());
+        }
+
+        return shortest(getAsDouble());
+    }
+
+    /**
+     * {@link BigDecimal#valueOf(double)} goes through {@link Double#toString(double)}, which doesn't always find the shortest digits before java 19.
+     * A decimal with at most 15 digits always comes back out of its double when it's rounded to 15 digits
+     */
+    private static BigDecimal shortest(double value) {
+        if(Double.isNaN(value) || Double.isInfinite(value))
+            throw new IllegalStateException("JsonNumber " + value + " has no decimal value");
+        else if(value == 0)
+            return BigDecimal.ZERO;
+
+        BigDecimal exact = new BigDecimal(value);
+
+        for(int digits = 15; digits < 17; digits++) {
+            BigDecimal rounded = exact.round(new MathContext(digits));
+
+            if(rounded.doubleValue() == value)
+                return rounded.stripTrailingZeros();
+        }
+
+        return exact.round(new MathContext(17)).stripTrailingZeros();
+    }
+
+    void appendTo(StringBuilder builder) {
+        switch(kind) {
+            case LONG -> builder.append(bits);
+            case DOUBLE -> builder.append(Double.longBitsToDouble(bits));
+            case FLOAT -> builder.append(Float.intBitsToFloat((int) bits));
+            default -> builder.append(this);
+        }
     }
 
     @Override
     public String toString() {
-        return value.toString();
+        return switch(kind) {
+            case LONG -> Long.toString(bits);
+            case DOUBLE -> Double.toString(Double.longBitsToDouble(bits));
+            case FLOAT -> Float.toString(Float.intBitsToFloat((int) bits));
+            case DECIMAL -> decimalString(bits, -scale);
+            case TEXT -> new String((byte[]) other, StandardCharsets.ISO_8859_1);
+            default -> other.toString();
+        };
+    }
+
+    /**
+     * @return how a parsed {@code unscaled * 10^exp10} is written back out
+     */
+    static String decimalString(long unscaled, int exp10) {
+        return exp10 == 0? unscaled + ".0": BigDecimal.valueOf(unscaled, -exp10).toString(); //Keeps 1.0e1 from coming back as an integer
     }
 
+    /**
+     * Integers from -128 to 1023 share a cached instance
+     */
     @NotNull
     public static JsonNumber valueOf(int i) {
+        if(i >= MIN_CACHED && i <= MAX_CACHED)
+            return INT_CACHE[i - MIN_CACHED];
+
         return new JsonNumber(i);
     }
 
+    /**
+     * Integers from -128 to 1023 share a cached instance
+     */
     @NotNull
     public static JsonNumber valueOf(long l) {
+        if(l >= MIN_CACHED && l <= MAX_CACHED)
+            return CACHE[(int) l - MIN_CACHED];
+
         return new JsonNumber(l);
     }
 
@@ -152,22 +368,39 @@ public class JsonNumber implements JsonValue{
 
     @NotNull
     public static JsonNumber valueOf(Number n) {
+        if(n instanceof Long)
+            return valueOf(n.longValue());
+        else if(n instanceof Integer)
+            return valueOf(n.intValue());
+
         return new JsonNumber(n);
     }
 
+    /**
+     * Hashes the value as a double, since an integer is equal to the floating-point number of the same value
+     */
+    @Override
+    public int hashCode() {
+        return hash(isInteger()? (double) integerValue(): getAsDouble());
+    }
+
+    static int hash(double value) {
+        return value == 0? 0: Double.hashCode(value); //0.0 and -0.0 are equal
+    }
+
     @Override
     public boolean equals(Object obj) {
         if(obj instanceof JsonNumber num) {
-            if(isInteger && num.isInteger) {
-                return this.value.longValue() == num.value.longValue();
+            if(isInteger() && num.isInteger()) {
+                return this.integerValue() == num.integerValue();
             } else {
-                return this.value.doubleValue() == num.value.doubleValue();
+                return this.getAsDouble() == num.getAsDouble();
             }
         } else if(obj instanceof Number num) {
-            if (!this.isInteger && num instanceof Integer || num instanceof Long || num instanceof Byte || num instanceof Short) {
+            if (!this.isInteger() && num instanceof Integer || num instanceof Long || num instanceof Byte || num instanceof Short) {
                 return false;
             }
-            return this.value.doubleValue() == num.doubleValue();
+            return this.getAsDouble() == num.doubleValue();
         }
 
         return false;
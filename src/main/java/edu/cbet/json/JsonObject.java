@@ -2,12 +2,26 @@ package edu.cbet.json;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class JsonObject extends HashMap<String, JsonValue> implements JsonValue {
+    private static final AtomicReferenceFieldUpdater<JsonObject, StructuralHash> HASH_GROUP =
+            AtomicReferenceFieldUpdater.newUpdater(JsonObject.class, StructuralHash.class, "hashGroup");
+
+    private int hash;
+    private volatile long hashVersion; //The version of the group the hash was cached at, 0 while it was never hashed
+    private volatile StructuralHash hashGroup;
 
     public JsonObject() {}
 
@@ -66,7 +80,7 @@ public class JsonObject extends HashMap<String, JsonValue> implements JsonValue
 
     @NotNull
     public JsonValue getNonNull(@NotNull String name) {
-        JsonValue o = super.get(name);
+        JsonValue o = this.get(name);
 
         if(o == null)
             return JsonNull.NULL;
@@ -133,9 +147,244 @@ public class JsonObject extends HashMap<String, JsonValue> implements JsonValue
 
     @Override
     public JsonValue put(String key, JsonValue value) {
+        mutated();
         return super.put(Objects.requireNonNull(key), value==null?JsonNull.NULL:value);
     }
 
+    /**
+     * Has to be called on every change so the cached hashes that include this object get recomputed, see {@link StructuralHash}
+     */
+    void mutated() {
+        StructuralHash group = hashGroup;
+
+        if(group != null)
+            group.advance();
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends JsonValue> m) {
+        mutated();
+        super.putAll(m);
+    }
+
+    @Override
+    public JsonValue remove(Object key) {
+        mutated();
+        return super.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        mutated();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public void clear() {
+        mutated();
+        super.clear();
+    }
+
+    @Override
+    public JsonValue putIfAbsent(String key, JsonValue value) {
+        mutated();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, JsonValue oldValue, JsonValue newValue) {
+        mutated();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public JsonValue replace(String key, JsonValue value) {
+        mutated();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public JsonValue computeIfAbsent(String key, @NotNull Function<? super String, ? extends JsonValue> mappingFunction) {
+        mutated();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public JsonValue computeIfPresent(String key, @NotNull BiFunction<? super String, ? super JsonValue, ? extends JsonValue> remappingFunction) {
+        mutated();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public JsonValue compute(String key, @NotNull BiFunction<? super String, ? super JsonValue, ? extends JsonValue> remappingFunction) {
+        mutated();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public JsonValue merge(String key, @NotNull JsonValue value, @NotNull BiFunction<? super JsonValue, ? super JsonValue, ? extends JsonValue> remappingFunction) {
+        mutated();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super JsonValue, ? extends JsonValue> function) {
+        mutated();
+        super.replaceAll(function);
+    }
+
+    /**
+     * The members for the readers inside the library, which don't need each entry wrapped the way {@link #entrySet()} wraps them
+     * to report the changes made through them
+     */
+    Set<Entry<String, JsonValue>> entries() {
+        return super.entrySet();
+    }
+
+    //The views of the HashMap change it without going through the methods above, so they are wrapped to report their changes too
+
+    @NotNull
+    @Override
+    public Set<Entry<String, JsonValue>> entrySet() {
+        Set<Entry<String, JsonValue>> entries = super.entrySet();
+
+        return new AbstractSet<>() {
+            @NotNull
+            @Override
+            public Iterator<Entry<String, JsonValue>> iterator() {
+                return new ViewIterator<>(entries.iterator()) {
+                    @Override
+                    public Entry<String, JsonValue> next() {
+                        Entry<String, JsonValue> entry = super.next();
+                        return new Member(entry.getKey(), entry.getValue());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return JsonObject.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return entries.contains(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                return o instanceof Entry<?, ?> entry && JsonObject.this.remove(entry.getKey(), entry.getValue());
+            }
+
+            @Override
+            public void clear() {
+                JsonObject.this.clear();
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Set<String> keySet() {
+        Set<String> keys = super.keySet();
+
+        return new AbstractSet<>() {
+            @NotNull
+            @Override
+            public Iterator<String> iterator() {
+                return new ViewIterator<>(keys.iterator());
+            }
+
+            @Override
+            public int size() {
+                return JsonObject.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                return JsonObject.this.remove(o) != null;
+            }
+
+            @Override
+            public void clear() {
+                JsonObject.this.clear();
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Collection<JsonValue> values() {
+        Collection<JsonValue> values = super.values();
+
+        return new AbstractCollection<>() {
+            @NotNull
+            @Override
+            public Iterator<JsonValue> iterator() {
+                return new ViewIterator<>(values.iterator());
+            }
+
+            @Override
+            public int size() {
+                return JsonObject.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsValue(o);
+            }
+
+            @Override
+            public void clear() {
+                JsonObject.this.clear();
+            }
+        };
+    }
+
+    private class ViewIterator<T> implements Iterator<T> {
+        private final Iterator<T> iterator;
+
+        private ViewIterator(Iterator<T> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            mutated();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * An entry that writes through with {@link #put(String, JsonValue)}, which never changes the layout when the name is already present
+     */
+    final class Member extends AbstractMap.SimpleEntry<String, JsonValue> {
+        Member(String name, JsonValue value) {
+            super(name, value);
+        }
+
+        @Override
+        public JsonValue setValue(JsonValue value) {
+            put(getKey(), value);
+            return super.setValue(value == null? JsonNull.NULL: value);
+        }
+    }
+
     public boolean presentNotNull(String key) {
         JsonValue value = get(key);
         return value != null && !value.isNull();
@@ -164,16 +413,72 @@ public class JsonObject extends HashMap<String, JsonValue> implements JsonValue
         return new JsonObject(map);
     }
 
+    /**
+     * The hash is cached until this object, or anything nested in it, changes, which also lets {@link #equals(Object)} reject
+     * unequal objects by comparing their hashes when both are already cached
+     */
+    @Override
+    public int hashCode() {
+        return groupHash(null);
+    }
+
+    /**
+     * Hashes this object as part of the containers in the group, joining it if this object wasn't hashed yet, or merging the two groups
+     * if it was hashed somewhere else before
+     */
+    int groupHash(StructuralHash parent) {
+        StructuralHash group = hashGroup;
+
+        if(group == null) {
+            group = parent != null? parent: new StructuralHash();
+
+            if(!HASH_GROUP.compareAndSet(this, null, group))
+                group = hashGroup;
+        }
+
+        if(parent != null && parent != group)
+            parent.merge(group);
+
+        long version = group.version();
+
+        if(hashVersion == version)
+            return hash;
+
+        int hash = structuralHash(group);
+        this.hash = hash;
+        this.hashVersion = version; //Written last so a thread seeing the version also sees the hash
+
+        return hash;
+    }
+
+    /**
+     * @return whether the hash is cached and still valid, so {@link #hashCode()} returns it without going through the object
+     */
+    boolean isHashCached() {
+        StructuralHash group = hashGroup;
+        return group != null && hashVersion == group.version();
+    }
+
+    /**
+     * @return the hash from {@link Map#hashCode()}, without the cache of this object
+     */
+    int structuralHash(StructuralHash group) {
+        int[] hash = new int[1];
+        forEach((name, value) -> hash[0] += name.hashCode() ^ StructuralHash.hash(value, group));
+
+        return hash[0];
+    }
+
     @Override
     public boolean equals(Object o) {
         if(this == o)
             return true;
 
         if(o instanceof JsonObject obj) {
-            if(obj.size() != this.size())
+            if(obj.size() != this.size() || obj.isHashCached() && this.isHashCached() && obj.hashCode() != this.hashCode())
                 return false;
 
-            for(Entry<String, JsonValue> entry: obj.entrySet()) {
+            for(Entry<String, JsonValue> entry: obj.entries()) {
                 JsonValue value = this.get(entry.getKey());
 
                 if(value == null || !value.equals(entry.getValue()))
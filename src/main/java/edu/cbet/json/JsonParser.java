@@ -8,12 +8,22 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Stack;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
 
 public class JsonParser {
     public static final int DEFAULT_BUFFER_SIZE = 1024 * 4; //4096 bytes
@@ -22,6 +32,17 @@ public class JsonParser {
     public static final byte[] NULL_BYTES = {'n', 'u', 'l', 'l'};
     private byte[] textBuffer;
     private int strLen;
+    private boolean memoryMapping;
+    private boolean vectorScanning = true;
+    private StructuralIndex structuralIndex;
+    private final NumberDecoder numberDecoder = new NumberDecoder();
+    private StringCache keyCache = new StringCache();
+    private JsonStringCache valueCache;
+    private JsonLimits limits = JsonLimits.NONE;
+    private final EscapeDecoder escapes = new EscapeDecoder();
+    private final IntConsumer textSink = b -> _textChar((byte) b);
+    private byte[] ioBuffer;
+    private long windowOffset; //Index of the current window's first byte in the whole input, only used for error messages
 
     public JsonParser() {
         this(DEFAULT_BUFFER_SIZE);
@@ -32,42 +53,328 @@ public class JsonParser {
     }
 
     public JsonValue parseJson(String json) {
+        return parseChars(CharBuffer.wrap(json));
+    }
+
+    /**
+     * Parses the bytes in place without copying them first, they must not be modified until this returns
+     */
+    public JsonValue parseJson(byte[] json, int offset, int len) {
+        return parseJson(ByteBuffer.wrap(json, offset, len));
+    }
+
+    public JsonValue parseJson(byte[] json) {
+        return parseJson(ByteBuffer.wrap(json));
+    }
+
+    /**
+     * Parses the bytes between the buffer's position and limit in place, heap, direct and mapped buffers alike.
+     * The buffer's position isn't moved
+     */
+    public JsonValue parseJson(ByteBuffer json) {
+        try {
+            return parse(new ByteContainer(json.slice()));
+        } catch (IOException ignored) { //Same as for Strings, memory can't fail to be read
+            return JsonNull.NULL;
+        }
+    }
+
+    /**
+     * Text is encoded to UTF-8 a window at a time as it's parsed, the whole input is never held as bytes. The reader isn't closed
+     */
+    public JsonValue parseJson(Reader reader) throws IOException {
+        return parse(new ByteContainer(reader, ioBuffer()));
+    }
+
+    public JsonValue parseJson(char[] json, int offset, int len) {
+        return parseChars(CharBuffer.wrap(json, offset, len));
+    }
+
+    public JsonValue parseJson(char[] json) {
+        return parseChars(CharBuffer.wrap(json));
+    }
+
+    public JsonValue parseJson(CharSequence json) {
+        return parseChars(CharBuffer.wrap(json));
+    }
+
+    private JsonValue parseChars(CharBuffer chars) {
         try {
-            return parse(new ByteContainer(json));
+            return parse(new ByteContainer(chars, ioBuffer()));
         } catch (IOException ignored) { //This shouldn't ever happen, like literally ever, the moon will escape Earth's gravity and the sun will implode before a String throws an IOException
             return JsonNull.NULL;
         }
     }
 
     public JsonValue parseJson(InputStream inputStream) throws IOException {
-        return parse(new ByteContainer(inputStream));
+        return parse(new ByteContainer(inputStream, ioBuffer()));
     }
 
     public JsonValue parseJson(FileInputStream fileInputStream) throws IOException {
-        return parse(new ByteContainer(fileInputStream));
+        return parse(new ByteContainer(fileInputStream, ioBuffer()));
     }
 
     public JsonValue parseJson(File file) throws IOException {
-        try(FileInputStream fis = new FileInputStream(file)) {
-            return parse(new ByteContainer(fis));
+        ByteContainer container = memoryMapping? openFile(file): new ByteContainer(new FileInputStream(file), ioBuffer());
+
+        try {
+            return parse(container);
+        } finally {
+            container.close();
+        }
+    }
+
+    /**
+     * Parses gzip or zlib compressed json, the stream is inflated straight into the window that gets scanned so there's no copy in between.
+     * The stream isn't closed
+     */
+    public JsonValue parseCompressed(InputStream inputStream) throws IOException {
+        try(InputStream inflated = Compression.inflate(inputStream)) {
+            return parse(new ByteContainer(inflated, ioBuffer()));
+        }
+    }
+
+    public JsonValue parseCompressed(File file) throws IOException {
+        try(FileInputStream fileInputStream = new FileInputStream(file)) {
+            return parseCompressed(fileInputStream);
         }
     }
 
     public JsonValue parseJson(URL url) throws IOException {
         try (InputStream is = url.openStream()) {
-            return parse(new ByteContainer(is));
+            return parse(new ByteContainer(is, ioBuffer()));
+        }
+    }
+
+    /**
+     * Parses the json into a lazy tree, up front only a flat index of where each value starts and ends in the bytes is built.
+     * Keys, strings and numbers are decoded the first time they are accessed, which makes this much cheaper for read-mostly json where only a few fields get touched.
+     * The returned tree holds onto the byte array, which must not be modified afterwards
+     */
+    public JsonValue parseLazy(byte[] json) {
+        JsonTape tape = JsonTape.build(json, keyCache, limits);
+
+        return tape.isEmpty()? JsonNull.NULL: tape.value(0);
+    }
+
+    public JsonValue parseLazy(String json) {
+        return parseLazy(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads at most one byte past the document size limit, so an oversized stream fails without being read in whole
+     */
+    public JsonValue parseLazy(InputStream inputStream) throws IOException {
+        return parseLazy(inputStream.readNBytes((int) Math.min(limits.getMaxDocumentSize() + 1, Integer.MAX_VALUE)));
+    }
+
+    public JsonValue parseLazy(File file) throws IOException {
+        if(Files.size(file.toPath()) > limits.getMaxDocumentSize())
+            throw limits.documentTooLarge();
+
+        return parseLazy(Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * Iterates over the elements of a root json array one at a time instead of building the whole array,
+     * this parser's text buffer is reused between elements so the parser shouldn't be used for anything else until the iterator is done
+     */
+    public JsonArrayIterator iterateArray(InputStream inputStream) {
+        return new JsonArrayIterator(reader(new ByteContainer(inputStream)));
+    }
+
+    public JsonArrayIterator iterateArray(File file) throws IOException {
+        return new JsonArrayIterator(reader(openFile(file)));
+    }
+
+    public JsonArrayIterator iterateArray(String json) {
+        return new JsonArrayIterator(reader(new ByteContainer(json)));
+    }
+
+    /**
+     * Extracts only the values matching the filter's paths, everything else in the json is skipped without being built
+     * @see JsonPathFilter#select(JsonReader)
+     */
+    public Map<String, List<JsonValue>> select(InputStream inputStream, JsonPathFilter filter) throws IOException {
+        return filter.select(reader(new ByteContainer(inputStream, ioBuffer())));
+    }
+
+    public Map<String, List<JsonValue>> select(File file, JsonPathFilter filter) throws IOException {
+        try(JsonReader reader = reader(memoryMapping? openFile(file): new ByteContainer(new FileInputStream(file), ioBuffer()))) {
+            return filter.select(reader);
+        }
+    }
+
+    public Map<String, List<JsonValue>> select(String json, JsonPathFilter filter) {
+        try {
+            return filter.select(reader(new ByteContainer(json)));
+        } catch (IOException e) { //Reading from a String can't fail
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs the query over the json as it's read, only the matches and the values a filter has to look at are built
+     * @see JsonPath#select(JsonReader)
+     */
+    public List<JsonValue> select(InputStream inputStream, JsonPath path) throws IOException {
+        return path.select(reader(new ByteContainer(inputStream, ioBuffer())));
+    }
+
+    public List<JsonValue> select(File file, JsonPath path) throws IOException {
+        try(JsonReader reader = reader(memoryMapping? openFile(file): new ByteContainer(new FileInputStream(file), ioBuffer()))) {
+            return path.select(reader);
+        }
+    }
+
+    public List<JsonValue> select(String json, JsonPath path) {
+        try {
+            return path.select(reader(new ByteContainer(json)));
+        } catch (IOException e) { //Reading from a String can't fail
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stops reading at the first match
+     * @return the first match or null if there's none
+     * @see JsonPath#selectFirst(JsonReader)
+     */
+    public JsonValue selectFirst(InputStream inputStream, JsonPath path) throws IOException {
+        return path.selectFirst(reader(new ByteContainer(inputStream, ioBuffer())));
+    }
+
+    public JsonValue selectFirst(String json, JsonPath path) {
+        try {
+            return path.selectFirst(reader(new ByteContainer(json)));
+        } catch (IOException e) { //Reading from a String can't fail
+            throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * @see #iterateArray(InputStream)
+     */
+    public Stream<JsonValue> streamArray(InputStream inputStream) {
+        return iterateArray(inputStream).stream();
+    }
+
+    /**
+     * The returned stream holds the file open until it is closed
+     * @see #iterateArray(InputStream)
+     */
+    public Stream<JsonValue> streamArray(File file) throws IOException {
+        return iterateArray(file).stream();
+    }
+
+    /**
+     * When enabled files are mapped into memory and scanned in place rather than being copied through a heap buffer,
+     * this pays off for large files and for files that are loaded repeatedly since the mapping is served from the page cache
+     */
+    public void setMemoryMapping(boolean memoryMapping) {
+        this.memoryMapping = memoryMapping;
+    }
+
+    public boolean isMemoryMapping() {
+        return memoryMapping;
+    }
+
+    /**
+     * When enabled (the default) and the jdk.incubator.vector module is available, input is classified 16-64 bytes at a time with the Vector API
+     * so string contents and whitespace can be skipped over instead of inspecting every byte. Without the module the scalar loop is always used
+     */
+    public void setVectorScanning(boolean vectorScanning) {
+        this.vectorScanning = vectorScanning;
+    }
+
+    public boolean isVectorScanning() {
+        return vectorScanning && StructuralIndex.isAvailable();
+    }
+
+    /**
+     * Field names are canonicalized through this cache so repeated keys share one String instead of being decoded every time,
+     * a single cache can be shared between parsers. Null disables caching
+     */
+    public void setKeyCache(StringCache keyCache) {
+        this.keyCache = keyCache;
+    }
+
+    public StringCache getKeyCache() {
+        return keyCache;
+    }
+
+    /**
+     * Short string values are looked up in this cache so repeated values share one {@link JsonString}, which cuts the heap held by large parsed documents.
+     * Off (null) by default, a single cache can be shared between parsers
+     */
+    public void setValueCache(JsonStringCache valueCache) {
+        this.valueCache = valueCache;
+    }
+
+    public JsonStringCache getValueCache() {
+        return valueCache;
+    }
+
+    /**
+     * The limits are checked while scanning, parsing fails with an {@link IllegalArgumentException} as soon as one is crossed.
+     * They apply to every way in, including {@link #parseLazy(byte[])}, {@link #iterateArray(InputStream)}, {@link #streamArray(InputStream)}
+     * and the select methods, the readers those hand out keep checking them as they go
+     */
+    public void setLimits(@NotNull JsonLimits limits) {
+        this.limits = Objects.requireNonNull(limits);
+    }
+
+    public JsonLimits getLimits() {
+        return limits;
+    }
+
+    private JsonReader reader(ByteContainer container) {
+        JsonReader reader = new JsonReader(container, textBuffer, keyCache);
+        reader.setLimits(limits);
+        return reader;
+    }
+
+    private ByteContainer openFile(File file) throws IOException {
+        if(memoryMapping)
+            return new ByteContainer(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+        else
+            return new ByteContainer(new FileInputStream(file));
+    }
+
+    /**
+     * Parses through {@link JsonParserPool#getShared()} so repeated calls reuse parsers and their buffers
+     */
     public static JsonValue parse(File file) throws IOException {
-        JsonParser parser = new JsonParser();
-        return parser.parseJson(file);
+        return JsonParserPool.getShared().parseJson(file);
+    }
+
+    /**
+     * The read buffer for streams parsed to completion, iterators keep their container past the call so they get their own
+     */
+    private byte[] ioBuffer() {
+        if(ioBuffer == null)
+            ioBuffer = new byte[ByteContainer.BUFFER_SIZE];
+
+        return ioBuffer;
+    }
+
+    /**
+     * Drops a text buffer that grew past {@code maxSize} while parsing a large string, so a pooled parser doesn't hold onto it forever
+     */
+    void trimTextBuffer(int maxSize) {
+        if(textBuffer.length > maxSize)
+            textBuffer = new byte[Math.min(DEFAULT_BUFFER_SIZE, maxSize)];
     }
 
-    private JsonValue parse(ByteContainer container) throws IOException {
-        byte[] bytes = container.getBytes();
+    JsonValue parse(ByteContainer container) throws IOException {
+        ByteBuffer buffer = container.getBuffer();
+        StructuralIndex index = vectorScanning && StructuralIndex.isAvailable()? structuralIndex(): null;
         boolean isInString = false;
+        int textStart = -1; //Where the current string starts in the window while none of it has been copied to the text buffer
+        boolean textAscii = false;
         strLen = 0;
+        windowOffset = 0;
+        escapes.reset();
 
         Stack<Pair<String, JsonValue>> valueStack = new Stack<>();
 
@@ -81,118 +388,111 @@ public class JsonParser {
             if(read == -1)
                 break;
 
+            if(windowOffset + read > limits.getMaxDocumentSize())
+                throw limits.documentTooLarge();
+
+            buffer = container.getBuffer();
+
+            if(index != null)
+                index.reset(buffer, read);
+
             for (int x = 0; x < read; x++) {
-                byte b = bytes[x];
+                if(index != null) {
+                    if(isInString) { //Copy everything up to the next quote or escape in one go
+                        int next = escapes.isActive()? x: index.nextQuoteOrEscape(x);
+
+                        if(next != x) {
+                            if(textStart == -1)
+                                _textRun(buffer, x, next - x);
+
+                            textAscii &= index.isRunAscii();
+                            x = next;
+
+                            if(x == read)
+                                break;
+                        }
+                    } else if(strLen == 0) { //Whitespace only matters when it ends a value
+                        x = index.nextNonWhitespace(x);
+
+                        if(x == read)
+                            break;
+                    }
+                }
+
+                byte b = buffer.get(x);
+
+                if(isInString && escapes.isActive()) { //Escapes are decoded a byte at a time so they can be split across reads
+                    int result = escapes.next(b, textSink);
+
+                    if(result == EscapeDecoder.INVALID_ESCAPE)
+                        throw new IllegalArgumentException("Invalid character was escaped at index " + (windowOffset + x) + ", json preview '" + getSurroundingSection(buffer, x) + '\'');
+                    else if(result == EscapeDecoder.INVALID_UNICODE)
+                        throw new IllegalArgumentException("Invalid unicode escape sequence at index " + (windowOffset + x) + ", json preview '" + getSurroundingSection(buffer, x) + '\'');
+                    else if(result == EscapeDecoder.CONSUMED)
+                        continue;
+                }
+
                 if (isInString) {
                     if (b == '\"') {
-                        String str;
-                        if (strLen == 0)
-                            str = "";
+                        boolean key = current.getRight().isObject() && valueName == null;
+                        byte[] textBytes = textBuffer;
+                        int textFrom = 0;
+                        int textLen = strLen;
+
+                        if(textStart != -1 && buffer.hasArray()) { //The whole string is in the window, it's decoded straight from there
+                            textBytes = buffer.array();
+                            textFrom = buffer.arrayOffset() + textStart;
+                            textLen = x - textStart;
+                        } else if(textStart != -1) {
+                            _textRun(buffer, textStart, x - textStart);
+                            textLen = strLen;
+                        }
+
+                        if(textLen > limits.getMaxStringLength())
+                            throw stringTooLong();
+
+                        if (key)
+                            valueName = text(textBytes, textFrom, textLen, textAscii, true);
+                        else if (valueCache != null)
+                            value = valueCache.get(textBytes, textFrom, textLen);
                         else
-                            str = new String(textBuffer, 0, strLen, StandardCharsets.UTF_8);
-                        if (current.getRight().isObject()) {
+                            value = textLen == 0? JsonString.EMPTY: JsonString.valueOf(text(textBytes, textFrom, textLen, textAscii, false));
 
-                            if (valueName == null) {
-                                valueName = str;
-                            } else {
-                                value = JsonString.valueOf(str);
-                            }
-                        } else if (current.getRight().isArray()) {
-                            value = JsonString.valueOf(str);
-                        }
                         strLen = 0;
+                        textStart = -1;
                         isInString = false;
                     } else if(b == '\\') {
-                        if(x+1 != read) {
-                            byte n = bytes[++x];
-
-                            if(n == 'n') {
-                                _textChar((byte) '\n');
-                            } else if(n == 't') {
-                                _textChar((byte) '\t');
-                            } else if(n == 'r') {
-                                _textChar((byte) '\r');
-                            } else if(n == 'b') {
-                                _textChar((byte) '\b');
-                            } else if(n == 'f') {
-                                _textChar((byte) '\f');
-                            } else if(n == '0') {
-                                _textChar((byte) '\0');
-                            } else if(n == '\\') {
-                                _textChar((byte) '\\');
-                            } else if(n == '\"') {
-                                _textChar((byte) '\"');
-                            } else if(n == '\'') {
-                                _textChar((byte) '\'');
-                            } else if(n == 'u') {
-                                try {
-                                    byte[] uni = new byte[4];
-
-                                    for(int i = 0; i < 4; i++) {
-                                        if(i == read) {
-                                            read = container.readBytes();
-
-                                            if(read == -1)
-                                                throw new IllegalArgumentException("Unicode character literal started but never finished at index " + x + ", json preview " + getSurroundingSection(bytes, x));
-
-                                            x = 0;
-                                        }
-                                        uni[i] = bytes[++x];
-                                    }
-
-                                    char v = (char) Integer.parseInt(new BufferSequence(uni, 0, 4), 0, 4, 16);
-
-                                    if (bytes[x + 1] == '\\' && bytes[x + 2] == 'u') {
-                                        x+=2; //Move to the 'u' so that the next 4 bytes can be read
-
-                                        for(int i = 0; i < 4; i++) {
-                                            if(i == read) {
-                                                read = container.readBytes();
-                                                if(read == -1)
-                                                    throw new IllegalArgumentException("Unicode character literal started but never finished at index " + x + ", json preview " + getSurroundingSection(bytes, x));
-                                                x = 0;
-                                            }
-                                            uni[i] = bytes[++x];
-                                        }
-
-                                        char v1 = (char) Integer.parseInt(new BufferSequence(uni, 0, 4), 0, 4, 16);
-
-                                        ByteBuffer bytes1 = StandardCharsets.UTF_8.encode(CharBuffer.allocate(2).append(v).append(v1).flip());
-
-                                        for (int i = 0; i < bytes1.limit(); i++) {
-                                            _textChar(bytes1.get());
-                                        }
-                                    } else {
-                                        ByteBuffer bytes1 = StandardCharsets.UTF_8.encode(CharBuffer.allocate(1).append(v).flip());
-
-                                        for (int i = 0; i < bytes1.limit(); i++) {
-                                            _textChar(bytes1.get());
-                                        }
-                                    }
-                                } catch (NumberFormatException e) {
-                                    throw new IllegalArgumentException("Invalid unicode escape " +
-                                            "sequence at index " + x + " (" + e.getMessage() + ")" + ", json preview '" + getSurroundingSection(bytes, x) + '\'');
-                                }
-                            } else {
-                                throw new IllegalArgumentException("Invalid character was escaped at index " + (x+1) + ", json preview " + getSurroundingSection(bytes, x));
-                            }
+                        if(textStart != -1) {
+                            _textRun(buffer, textStart, x - textStart);
+                            textStart = -1;
                         }
+
+                        textAscii = false;
+                        escapes.begin();
                     } else {
-                        _textChar(b);
+                        if(b < 0)
+                            textAscii = false;
+                        if(textStart == -1)
+                            _textChar(b);
                     }
                 } else if (b != 0 && !Character.isWhitespace(b)) {
                     if (b == '\"') {
                         if (strLen != 0)
-                            throw new IllegalArgumentException("Non whitespace character(s) before String at index " + x + ", json preview " + getSurroundingSection(bytes, x));
+                            throw new IllegalArgumentException("Non whitespace character(s) before String at index " + (windowOffset + x) + ", json preview " + getSurroundingSection(buffer, x));
                         if (current.getRight() == null)
-                            throw new IllegalArgumentException("Start of json should indicate an array or object, json preview '" + new String(bytes, 0, Math.min(10, bytes.length)) + '\'');
+                            throw new IllegalArgumentException("Start of json should indicate an array or object, json preview '" + getSurroundingSection(buffer, 0) + '\'');
                         isInString = true;
+                        textStart = x + 1;
+                        textAscii = true;
                     } else if (b == '{') {
-                        JsonObject obj = new JsonObject();
+                        if (valueStack.size() >= limits.getMaxDepth())
+                            throw tooDeep(buffer, x);
+
+                        JsonObject obj = new CompactJsonObject();
                         if (current.getRight() != null) {
                             if (current.getRight().isObject()) {
                                 if (valueName == null)
-                                    throw new IllegalArgumentException("Expected field name for object value at index " + x + ", json preview '" + getSurroundingSection(bytes, x) + '\'');
+                                    throw new IllegalArgumentException("Expected field name for object value at index " + (windowOffset + x) + ", json preview '" + getSurroundingSection(buffer, x) + '\'');
                             }
                             valueStack.push(current.copy());
                             current.setRight(obj);
@@ -205,11 +505,14 @@ public class JsonParser {
                             valueStack.push(current.copy());
                         }
                     } else if (b == '[') {
-                        JsonArray arr = new JsonArray();
+                        if (valueStack.size() >= limits.getMaxDepth())
+                            throw tooDeep(buffer, x);
+
+                        JsonArray arr = new NumericJsonArray();
                         if (current.getRight() != null) {
                             if (current.getRight().isObject()) {
                                 if (valueName == null)
-                                    throw new IllegalArgumentException("Expected field name for array value at index " + x + ", json preview '" + getSurroundingSection(bytes, x) + '\'');
+                                    throw new IllegalArgumentException("Expected field name for array value at index " + (windowOffset + x) + ", json preview '" + getSurroundingSection(buffer, x) + '\'');
                             }
                             valueStack.push(current.copy());
                             current.setRight(arr);
@@ -224,25 +527,25 @@ public class JsonParser {
                         }
                     } else if (b == ':') {
                         if (valueName == null) {
-                            throw new IllegalArgumentException("Missing field name at index " + x + ", preview of the section '" + getSurroundingSection(bytes, x) + '\'');
+                            throw new IllegalArgumentException("Missing field name at index " + (windowOffset + x) + ", preview of the section '" + getSurroundingSection(buffer, x) + '\'');
                         }
                     } else if (b == '}') {
                         if (!(strLen == 0 && value == null)) {
                             if (value == null) {
-                                value = parseValue(strLen, bytes, x);
+                                value = parseValue(strLen, buffer, x);
                                 strLen = 0;
                             } else if (valueName == null) {
-                                throw new IllegalArgumentException("Missing field name at index " + x + ", preview of the section '" + getSurroundingSection(bytes, x) + '\'');
+                                throw new IllegalArgumentException("Missing field name at index " + (windowOffset + x) + ", preview of the section '" + getSurroundingSection(buffer, x) + '\'');
                             } else if (strLen != 0) {
-                                throw new IllegalArgumentException("Multiple values found at index " + x + ", json preview '" + getSurroundingSection(bytes, x) + '\'');
+                                throw new IllegalArgumentException("Multiple values found at index " + (windowOffset + x) + ", json preview '" + getSurroundingSection(buffer, x) + '\'');
                             }
 
                             if (current.getRight() == null)
                                 throw new IllegalArgumentException("Object closed but was never opened");
                             else if (current.getRight().isArray())
-                                throw new IllegalArgumentException("Expected object after closing curly bracket but got an array instead, json preview '" + getSurroundingSection(bytes, x) + '\'');
+                                throw new IllegalArgumentException("Expected object after closing curly bracket but got an array instead, json preview '" + getSurroundingSection(buffer, x) + '\'');
 
-                            current.getRight().getAsObject().put(valueName, value);
+                            putMember(current.getRight().getAsObject(), valueName, value, buffer, x);
                         }
 
                         valueName = current.getLeft();
@@ -250,44 +553,48 @@ public class JsonParser {
 
                         current = valueStack.pop();
                     } else if (b == ']') {
-                        if (!(strLen == 0 && value == null)) {
+                        if (value == null && addNumber(current.getRight(), buffer, x)) {
+                            strLen = 0;
+                        } else if (!(strLen == 0 && value == null)) {
                             if (value == null) {
-                                value = parseValue(strLen, bytes, x);
+                                value = parseValue(strLen, buffer, x);
                                 strLen = 0;
                             } else if (strLen != 0) {
-                                throw new IllegalArgumentException("Multiple values found at index " + x + ", json preview '" + getSurroundingSection(bytes, x) + '\'');
+                                throw new IllegalArgumentException("Multiple values found at index " + (windowOffset + x) + ", json preview '" + getSurroundingSection(buffer, x) + '\'');
                             }
 
                             if (current.getRight() == null)
                                 throw new IllegalArgumentException("Array closed but was never opened");
                             else if (current.getRight().isObject())
-                                throw new IllegalArgumentException("Expected array after closing square bracket but got an array instead, json preview '" + getSurroundingSection(bytes, x) + '\'');
+                                throw new IllegalArgumentException("Expected array after closing square bracket but got an array instead, json preview '" + getSurroundingSection(buffer, x) + '\'');
 
-                            current.getRight().getAsArray().add(value);
+                            addElement(current.getRight().getAsArray(), value, buffer, x);
                         }
 
                         valueName = current.getLeft();
                         value = current.getRight();
 
                         current = valueStack.pop();
+                    } else if (b == ',' && value == null && addNumber(current.getRight(), buffer, x)) {
+                        strLen = 0;
                     } else if (b == ',') {
                         if (value == null) {
-                            value = parseValue(strLen, bytes, x);
+                            value = parseValue(strLen, buffer, x);
                             strLen = 0;
                         } else if (strLen != 0) {
-                            throw new IllegalArgumentException("Multiple values found at index " + x + ", json preview '" + getSurroundingSection(bytes, x) + '\'');
+                            throw new IllegalArgumentException("Multiple values found at index " + (windowOffset + x) + ", json preview '" + getSurroundingSection(buffer, x) + '\'');
                         }
 
                         if (current.getRight() == null)
-                            throw new IllegalArgumentException("Expected the start of either an object or array found a comma instead '" + getSurroundingSection(bytes, 0) + '\'');
+                            throw new IllegalArgumentException("Expected the start of either an object or array found a comma instead '" + getSurroundingSection(buffer, 0) + '\'');
                         else if (current.getRight().isArray())
-                            current.getRight().getAsArray().add(value);
+                            addElement(current.getRight().getAsArray(), value, buffer, x);
                         else if (current.getRight().isObject()) {
                             if (valueName != null) {
-                                current.getRight().getAsObject().put(valueName, value);
+                                putMember(current.getRight().getAsObject(), valueName, value, buffer, x);
                                 valueName = null;
                             } else {
-                                throw new IllegalArgumentException("No field name for value in object at index " + x + ", json preview '" + getSurroundingSection(bytes, x) + '\'');
+                                throw new IllegalArgumentException("No field name for value in object at index " + (windowOffset + x) + ", json preview '" + getSurroundingSection(buffer, x) + '\'');
                             }
                         }
 
@@ -297,13 +604,20 @@ public class JsonParser {
                     }
                 } else if (strLen != 0) {
                     if (value == null) {
-                        value = parseValue(strLen, bytes, x);
+                        value = parseValue(strLen, buffer, x);
                         strLen = 0;
                     } else {
-                        throw new IllegalArgumentException("Multiple values found at index " + x + ", json preview '" + getSurroundingSection(bytes, x) + '\'');
+                        throw new IllegalArgumentException("Multiple values found at index " + (windowOffset + x) + ", json preview '" + getSurroundingSection(buffer, x) + '\'');
                     }
                 }
             }
+
+            if(textStart != -1) { //The string carries on into the next window which replaces this one
+                _textRun(buffer, textStart, read - textStart);
+                textStart = -1;
+            }
+
+            windowOffset += read;
         }
 
         if(valueStack.size() != 0) {
@@ -317,116 +631,118 @@ public class JsonParser {
         }
     }
 
-    private void _textChar(byte b) {
-        if(strLen == textBuffer.length) {
-            this.textBuffer = Arrays.copyOf(this.textBuffer, this.textBuffer.length << 1);
-        }
+    private StructuralIndex structuralIndex() {
+        if(structuralIndex == null)
+            structuralIndex = new StructuralIndex();
 
-        this.textBuffer[strLen++] = b;
+        return structuralIndex;
     }
 
-    private JsonValue parseValue(int strLen, byte[] buffer, int index) {
-        if(strLen == 0)
-            throw new IllegalArgumentException("Json value can not have length of 0 at index " + index + ", json preview '" + getSurroundingSection(buffer, index) + '\'');
+    /**
+     * Strings without any escapes or bytes over 0x7F are copied as Latin-1, which skips UTF-8 decoding altogether
+     */
+    private String text(byte[] bytes, int from, int len, boolean ascii, boolean key) {
+        if(key && keyCache != null)
+            return keyCache.get(bytes, from, len);
+        else if(len == 0)
+            return "";
+        else
+            return new String(bytes, from, len, ascii? StandardCharsets.ISO_8859_1: StandardCharsets.UTF_8);
+    }
 
-        if(strLen == 4 && Arrays.equals(textBuffer, 0, 4, TRUE_BYTES, 0, 4)) {
-            return JsonBoolean.TRUE;
-        } else if(strLen == 5 && Arrays.equals(textBuffer, 0, 5, FALSE_BYTES, 0, 5)) {
-            return JsonBoolean.FALSE;
-        } else if(strLen == 4 && Arrays.equals(textBuffer, 0, 4, NULL_BYTES, 0, 4)) {
-            return JsonNull.NULL;
-        }
+    private void putMember(JsonObject object, String name, JsonValue value, ByteBuffer buffer, int x) {
+        if(object.size() >= limits.getMaxObjectKeys() && !object.containsKey(name))
+            throw new IllegalArgumentException("Object has more keys than the limit of " + limits.getMaxObjectKeys() + " at index " + (windowOffset + x) + ", json preview '" + getSurroundingSection(buffer, x) + '\'');
 
-        boolean number = true;
-        boolean integer = true;
-        boolean negative = false;
-
-        for(int x = 0; x < strLen; x++) {
-            byte b = textBuffer[x];
-            if(b == '.') {
-                integer = false;
-            } else if(b == '-' && !negative) {
-                negative = true;
-            } else if(b == 'e' && textBuffer[x+1] == '+' || textBuffer[x+1] == '-') {
-                x++;
-                integer = false;
-            } else if(!Character.isDigit(b)) {
-                number = false;
-                integer = false;
-                break;
-            }
-        }
+        object.put(name, value);
+    }
 
-        BufferSequence bufferSequence = new BufferSequence(textBuffer, 0, strLen);
+    private void addElement(JsonArray array, JsonValue value, ByteBuffer buffer, int x) {
+        if(array.size() >= limits.getMaxArrayElements())
+            throw tooManyElements(buffer, x);
 
-        if(integer)
-            return JsonNumber.valueOf(Long.parseLong(bufferSequence, 0, strLen, 10));
-        else if(number)
-            return JsonNumber.valueOf(Double.parseDouble(bufferSequence.toString()));
-        else
-            throw new IllegalArgumentException("Invalid json value at index " + index + ", json preview '" + bufferSequence + '\'');
+        array.add(value);
     }
 
-    private static String getSurroundingSection(byte[] buffer, int x) {
-        int len = Math.min(10, buffer.length-x-1);
-        int from = Math.max(x - 10, 0);
+    /**
+     * Numbers going into an array that still holds primitives are appended without being boxed
+     * @return false if the pending value has to go through {@link #parseValue(int, ByteBuffer, int)} instead
+     */
+    private boolean addNumber(JsonValue container, ByteBuffer buffer, int x) {
+        if(!(container instanceof NumericJsonArray array) || !array.isPrimitive() || strLen == 0 || strLen > limits.getMaxStringLength()
+                || !numberDecoder.decode(textBuffer, 0, strLen))
+            return false;
 
-        return new String(buffer, from, len).replaceAll("[\n\t\r\0]",
-                "");
+        if(array.size() >= limits.getMaxArrayElements())
+            throw tooManyElements(buffer, x);
+
+        array.add(numberDecoder);
+        return true;
     }
 
-    private static class ByteContainer {
-        private static final int BUFFER_SIZE = 8192;
-        private final InputStream is;
-        private final byte[] bytes;
-        private boolean eof;
+    private IllegalArgumentException tooDeep(ByteBuffer buffer, int x) {
+        return new IllegalArgumentException("Json is nested deeper than the limit of " + limits.getMaxDepth() + " at index " + (windowOffset + x) + ", json preview '" + getSurroundingSection(buffer, x) + '\'');
+    }
 
-        private ByteContainer(InputStream is) {
-            this.is = is;
-            this.bytes = new byte[BUFFER_SIZE];
-            this.eof = false;
+    private IllegalArgumentException tooManyElements(ByteBuffer buffer, int x) {
+        return new IllegalArgumentException("Array has more elements than the limit of " + limits.getMaxArrayElements() + " at index " + (windowOffset + x) + ", json preview '" + getSurroundingSection(buffer, x) + '\'');
+    }
+
+    private IllegalArgumentException stringTooLong() {
+        return limits.stringTooLong();
+    }
+
+    private void _textRun(ByteBuffer buffer, int from, int len) {
+        if(strLen + len > limits.getMaxStringLength())
+            throw stringTooLong();
+
+        if(strLen + len > textBuffer.length) {
+            this.textBuffer = Arrays.copyOf(this.textBuffer, Math.max(this.textBuffer.length << 1, strLen + len));
         }
 
-        private ByteContainer(@NotNull FileInputStream fileInputStream) throws IOException {
-            long fileSize = fileInputStream.getChannel().size();
+        buffer.get(from, this.textBuffer, strLen, len);
+        strLen += len;
+    }
 
-            this.is = fileInputStream;
+    private void _textChar(byte b) {
+        if(strLen == textBuffer.length) {
+            if(strLen >= limits.getMaxStringLength()) //Only checked when growing, values are checked once they end
+                throw stringTooLong();
 
-            if(fileSize < BUFFER_SIZE) {
-                this.bytes = new byte[(int)fileSize];
-            } else {
-                this.bytes = new byte[BUFFER_SIZE];
-            }
-            this.eof = false;
+            this.textBuffer = Arrays.copyOf(this.textBuffer, this.textBuffer.length << 1);
         }
 
-        private ByteContainer(@NotNull String str) {
-            this.bytes = str.getBytes(StandardCharsets.UTF_8);
-            this.is = null;
-            this.eof = false;
+        this.textBuffer[strLen++] = b;
+    }
+
+    private JsonValue parseValue(int strLen, ByteBuffer buffer, int index) {
+        if(strLen > limits.getMaxStringLength())
+            throw stringTooLong();
+        if(strLen == 0)
+            throw new IllegalArgumentException("Json value can not have length of 0 at index " + (windowOffset + index) + ", json preview '" + getSurroundingSection(buffer, index) + '\'');
+
+        if(strLen == 4 && Arrays.equals(textBuffer, 0, 4, TRUE_BYTES, 0, 4)) {
+            return JsonBoolean.TRUE;
+        } else if(strLen == 5 && Arrays.equals(textBuffer, 0, 5, FALSE_BYTES, 0, 5)) {
+            return JsonBoolean.FALSE;
+        } else if(strLen == 4 && Arrays.equals(textBuffer, 0, 4, NULL_BYTES, 0, 4)) {
+            return JsonNull.NULL;
         }
 
-        private int readBytes() throws IOException {
-            if(!eof) {
-                if (this.is != null) {
-                    int read = this.is.read(bytes);
+        if(!numberDecoder.decode(textBuffer, 0, strLen))
+            throw new IllegalArgumentException("Invalid json value at index " + (windowOffset + index) + ", json preview '" + new BufferSequence(textBuffer, 0, strLen) + '\'');
 
-                    if (read == -1) {
-                        this.eof = true;
-                    }
+        return numberDecoder.toJsonNumber();
+    }
 
-                    return read;
-                } else { //Return the strings UTF-8 length for the initial read
-                    eof = true;
-                    return this.bytes.length;
-                }
-            }
+    static String getSurroundingSection(ByteBuffer buffer, int x) {
+        int from = Math.max(x - 10, 0);
+        int to = Math.max(Math.min(x + 10, buffer.limit()), from);
+        byte[] section = new byte[to - from];
 
-            return -1;
-        }
+        buffer.get(from, section);
 
-        private byte[] getBytes() {
-            return this.bytes;
-        }
+        return new String(section).replaceAll("[\n\t\r\0]",
+                "");
     }
 }
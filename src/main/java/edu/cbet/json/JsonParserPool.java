@@ -0,0 +1,147 @@
+package edu.cbet.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A thread safe entry point for parsing that lends out {@link JsonParser}s from a bounded pool, so concurrent callers can share one instance
+ * and parsers (with their text and read buffers) get reused instead of being allocated for every document.
+ * Idle parsers are kept in a lock free queue rather than a ThreadLocal, so nothing is tied to a particular thread and
+ * large numbers of short-lived or virtual threads don't each end up with their own parser.
+ * When the pool is empty a new parser is created, and parsers returned to a full pool are dropped
+ */
+public class JsonParserPool {
+    public static final int DEFAULT_MAX_IDLE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    public static final int MAX_RETAINED_TEXT_BUFFER = 1024 * 64; //Text buffers that grew past this are shrunk before a parser is pooled again
+
+    private static final JsonParserPool SHARED = new JsonParserPool();
+
+    private final ConcurrentLinkedQueue<JsonParser> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final int maxIdle;
+    private final Supplier<JsonParser> factory;
+
+    /**
+     * Creates a pool whose parsers all share one {@link StringCache} for field names
+     */
+    public JsonParserPool() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    public JsonParserPool(int maxIdle) {
+        this(maxIdle, sharedKeyCacheFactory());
+    }
+
+    /**
+     * @param factory creates the pooled parsers, every parser it returns has to be a new instance
+     */
+    public JsonParserPool(int maxIdle, @NotNull Supplier<JsonParser> factory) {
+        if(maxIdle < 0)
+            throw new IllegalArgumentException("Max idle parsers can't be negative, got " + maxIdle);
+
+        this.maxIdle = maxIdle;
+        this.factory = Objects.requireNonNull(factory);
+    }
+
+    private static Supplier<JsonParser> sharedKeyCacheFactory() {
+        StringCache keyCache = new StringCache();
+
+        return () -> {
+            JsonParser parser = new JsonParser();
+            parser.setKeyCache(keyCache);
+            return parser;
+        };
+    }
+
+    /**
+     * @return the pool used by {@link JsonParser#parse(File)}
+     */
+    public static JsonParserPool getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Takes a parser out of the pool, it belongs to the caller until it's handed back with {@link #release(JsonParser)}
+     */
+    public JsonParser acquire() {
+        JsonParser parser = idle.poll();
+
+        if(parser == null)
+            return factory.get();
+
+        idleCount.decrementAndGet();
+        return parser;
+    }
+
+    /**
+     * Returns a parser to the pool, it must not be used afterwards or still have an unfinished {@link JsonArrayIterator}
+     */
+    public void release(@NotNull JsonParser parser) {
+        if(idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            return;
+        }
+
+        parser.trimTextBuffer(MAX_RETAINED_TEXT_BUFFER);
+        idle.offer(parser);
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    public <T> T withParser(@NotNull ParserTask<T> task) throws IOException {
+        JsonParser parser = acquire();
+
+        try {
+            return task.apply(parser);
+        } finally {
+            release(parser);
+        }
+    }
+
+    public JsonValue parseJson(String json) {
+        JsonParser parser = acquire();
+
+        try {
+            return parser.parseJson(json);
+        } finally {
+            release(parser);
+        }
+    }
+
+    public JsonValue parseJson(InputStream inputStream) throws IOException {
+        return withParser(parser -> parser.parseJson(inputStream));
+    }
+
+    public JsonValue parseJson(File file) throws IOException {
+        return withParser(parser -> parser.parseJson(file));
+    }
+
+    public JsonValue parseJson(URL url) throws IOException {
+        return withParser(parser -> parser.parseJson(url));
+    }
+
+    public JsonValue parseLazy(byte[] json) {
+        JsonParser parser = acquire();
+
+        try {
+            return parser.parseLazy(json);
+        } finally {
+            release(parser);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ParserTask<T> {
+        T apply(JsonParser parser) throws IOException;
+    }
+}
@@ -0,0 +1,583 @@
+package edu.cbet.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A JSON Patch (RFC 6902), a list of operations that turns one document into another.
+ * {@link #diff(JsonValue, JsonValue)} computes one between two trees, {@link #apply(JsonValue)} applies one in place, and
+ * {@link #of(JsonValue)} and {@link #toJson()} convert to and from the json form that's sent over the wire
+ */
+public final class JsonPatch {
+    private static final byte MATCH = 0;
+    private static final byte REMOVE = 1;
+    private static final byte INSERT = 2;
+
+    private final List<Operation> operations;
+
+    private JsonPatch(List<Operation> operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * Reads a patch document, an array of operation objects
+     */
+    @NotNull
+    public static JsonPatch of(@NotNull JsonValue patch) {
+        if(!patch.isArray())
+            throw new IllegalArgumentException("A json patch has to be an array of operations, got " + patch.getType());
+
+        List<Operation> operations = new ArrayList<>();
+
+        for(JsonValue value: patch.getAsArray()) {
+            int index = operations.size();
+
+            if(!value.isObject())
+                throw new IllegalArgumentException("Json patch operation " + index + " isn't an object");
+
+            JsonObject obj = value.getAsObject();
+            Op op = Op.of(member(obj, "op", index).getAsString(), index);
+            String path = member(obj, "path", index).getAsString();
+            String from = op == Op.MOVE || op == Op.COPY? member(obj, "from", index).getAsString(): null;
+            JsonValue operand = op == Op.ADD || op == Op.REPLACE || op == Op.TEST? member(obj, "value", index): null;
+
+            operations.add(new Operation(op, path, from, operand));
+        }
+
+        return new JsonPatch(operations);
+    }
+
+    private static JsonValue member(JsonObject operation, String name, int index) {
+        JsonValue value = operation.get(name);
+
+        if(value == null)
+            throw new IllegalArgumentException("Json patch operation " + index + " is missing '" + name + '\'');
+        else if(!name.equals("value") && !value.isString())
+            throw new IllegalArgumentException("Json patch operation " + index + " has a " + value.getType() + " as '" + name + "', expected a String");
+
+        return value;
+    }
+
+    /**
+     * Computes the add, remove and replace operations that turn {@code source} into {@code target}, neither is modified.
+     * Branches that are the same instance, like the unchanged parts of two persistent versions, are skipped outright,
+     * and the hashes the containers cache tell changed branches apart before their members are compared. Arrays are aligned by the shortest edit script between them,
+     * so an element inserted at the front is one add instead of a replace for every element after it
+     */
+    @NotNull
+    public static JsonPatch diff(@NotNull JsonValue source, @NotNull JsonValue target) {
+        List<Operation> operations = new ArrayList<>();
+        diff("", source, target, operations);
+
+        return new JsonPatch(operations);
+    }
+
+    private static void diff(String path, JsonValue source, JsonValue target, List<Operation> operations) {
+        if(source == target)
+            return;
+
+        if(source.isObject() && target.isObject()) {
+            if(!source.equals(target)) //Rejected by the cached hashes when they differ
+                diffObjects(path, source.getAsObject(), target.getAsObject(), operations);
+        } else if(source.isArray() && target.isArray()) {
+            if(!source.equals(target))
+                diffArrays(path, source.getAsArray(), target.getAsArray(), operations);
+        } else if(!source.equals(target)) {
+            operations.add(new Operation(Op.REPLACE, path, null, target));
+        }
+    }
+
+    private static void diffObjects(String path, JsonObject source, JsonObject target, List<Operation> operations) {
+        for(Map.Entry<String, JsonValue> entry: source.entries()) {
+            JsonValue value = target.get(entry.getKey());
+            String memberPath = path + '/' + escape(entry.getKey());
+
+            if(value == null)
+                operations.add(new Operation(Op.REMOVE, memberPath, null, null));
+            else
+                diff(memberPath, entry.getValue(), value, operations);
+        }
+
+        for(Map.Entry<String, JsonValue> entry: target.entries()) {
+            if(!source.containsKey(entry.getKey()))
+                operations.add(new Operation(Op.ADD, path + '/' + escape(entry.getKey()), null, entry.getValue()));
+        }
+    }
+
+    private static void diffArrays(String path, JsonArray source, JsonArray target, List<Operation> operations) {
+        int start = 0;
+        int sourceEnd = source.size();
+        int targetEnd = target.size();
+
+        while(start < sourceEnd && start < targetEnd && same(source.get(start), target.get(start)))
+            start++;
+
+        while(sourceEnd > start && targetEnd > start && same(source.get(sourceEnd - 1), target.get(targetEnd - 1))) {
+            sourceEnd--;
+            targetEnd--;
+        }
+
+        int rows = sourceEnd - start;
+        int columns = targetEnd - start;
+        byte[] script = editScript(source, target, start, rows, columns);
+
+        int i = 0;
+        int j = 0;
+        int position = start; //Where the next element is in the array as the operations so far have left it
+        int x = 0;
+
+        while(i < rows || j < columns) {
+            if(script != null && script[x] == MATCH) {
+                i++;
+                j++;
+                position++;
+                x++;
+                continue;
+            }
+
+            //A run of removals and insertions between two matches, or everything if there's no script.
+            //As many as possible are paired up and diffed into each other, the rest are removed or added
+            int removed = 0;
+            int added = 0;
+
+            if(script == null) {
+                removed = rows;
+                added = columns;
+            } else {
+                for(; x < script.length && script[x] != MATCH; x++) {
+                    if(script[x] == REMOVE)
+                        removed++;
+                    else
+                        added++;
+                }
+            }
+
+            for(int paired = Math.min(removed, added); paired > 0; paired--, removed--, added--, position++)
+                diff(path + '/' + position, source.get(start + i++), target.get(start + j++), operations);
+
+            for(; removed > 0; removed--, i++)
+                operations.add(new Operation(Op.REMOVE, path + '/' + position, null, null));
+
+            for(; added > 0; added--, position++)
+                operations.add(new Operation(Op.ADD, path + '/' + position, null, target.get(start + j++)));
+        }
+    }
+
+    /**
+     * Finds the shortest edit script between the two ranges with the linear space version of Myers' algorithm.
+     * It takes O((n + m) * d) time for d edits, so a few changes to a long array stay cheap, and only O(n + m) memory however far apart they are
+     * @return the steps in order, or null if either range is empty
+     */
+    private static byte[] editScript(JsonArray source, JsonArray target, int start, int rows, int columns) {
+        if(rows == 0 || columns == 0)
+            return null; //Nothing to align
+
+        return new EditScript(source, target, start, rows, columns).script();
+    }
+
+    /**
+     * Splits the ranges at the middle snake of their shortest edit script, the run of matches the forward and backward searches meet on,
+     * and does the same to the parts either side of it until they are only insertions or only removals
+     */
+    private static final class EditScript {
+        private final JsonArray source;
+        private final JsonArray target;
+        private final int start;
+        private final int[] sourceHashes;
+        private final int[] targetHashes;
+        private final int offset;
+        private final int[] forward; //The furthest x reached from the start on each diagonal k = x - y
+        private final int[] backward; //The furthest reached from the end on each diagonal, counted backwards
+        private final byte[] script;
+        private int length;
+
+        private EditScript(JsonArray source, JsonArray target, int start, int rows, int columns) {
+            this.source = source;
+            this.target = target;
+            this.start = start;
+            this.sourceHashes = new int[rows];
+            this.targetHashes = new int[columns];
+            this.offset = (rows + columns + 1) / 2 + 1;
+            this.forward = new int[2 * offset + 1];
+            this.backward = new int[2 * offset + 1];
+            this.script = new byte[rows + columns];
+
+            for(int x = 0; x < rows; x++)
+                sourceHashes[x] = source.get(start + x).hashCode();
+
+            for(int y = 0; y < columns; y++)
+                targetHashes[y] = target.get(start + y).hashCode();
+        }
+
+        private byte[] script() {
+            align(0, sourceHashes.length, 0, targetHashes.length);
+            return Arrays.copyOf(script, length);
+        }
+
+        private boolean matches(int x, int y) {
+            return sourceHashes[x] == targetHashes[y] && same(source.get(start + x), target.get(start + y));
+        }
+
+        private void align(int fromX, int toX, int fromY, int toY) {
+            int prefix = 0;
+
+            while(fromX < toX && fromY < toY && matches(fromX, fromY)) {
+                fromX++;
+                fromY++;
+                prefix++;
+            }
+
+            int suffix = 0;
+
+            while(toX > fromX && toY > fromY && matches(toX - 1, toY - 1)) {
+                toX--;
+                toY--;
+                suffix++;
+            }
+
+            append(MATCH, prefix);
+
+            if(fromX == toX) {
+                append(INSERT, toY - fromY);
+            } else if(fromY == toY) {
+                append(REMOVE, toX - fromX);
+            } else {
+                int[] snake = middleSnake(fromX, toX, fromY, toY);
+                align(fromX, snake[0], fromY, snake[1]);
+                append(MATCH, snake[2] - snake[0]);
+                align(snake[2], toX, snake[3], toY);
+            }
+
+            append(MATCH, suffix);
+        }
+
+        private void append(byte step, int count) {
+            Arrays.fill(script, length, length + count, step);
+            length += count;
+        }
+
+        /**
+         * Only called once the ranges differ at both ends, so the snake always leaves fewer edits on either side of it
+         * @return the x and y the snake starts at, then the x and y it ends at
+         */
+        private int[] middleSnake(int fromX, int toX, int fromY, int toY) {
+            int rows = toX - fromX;
+            int columns = toY - fromY;
+            int delta = rows - columns;
+            boolean odd = (delta & 1) != 0;
+
+            forward[offset + 1] = 0;
+            backward[offset + 1] = 0;
+
+            for(int d = 0; d <= (rows + columns + 1) / 2; d++) {
+                for(int k = -d; k <= d; k += 2) {
+                    int x = k == -d || k != d && forward[offset + k - 1] < forward[offset + k + 1]? forward[offset + k + 1]: forward[offset + k - 1] + 1;
+                    int y = x - k;
+                    int startX = x;
+                    int startY = y;
+
+                    while(x < rows && y < columns && matches(fromX + x, fromY + y)) {
+                        x++;
+                        y++;
+                    }
+
+                    forward[offset + k] = x;
+
+                    if(odd && delta - k >= -(d - 1) && delta - k <= d - 1 && x + backward[offset + delta - k] >= rows)
+                        return new int[] {fromX + startX, fromY + startY, fromX + x, fromY + y};
+                }
+
+                for(int k = -d; k <= d; k += 2) {
+                    int x = k == -d || k != d && backward[offset + k - 1] < backward[offset + k + 1]? backward[offset + k + 1]: backward[offset + k - 1] + 1;
+                    int y = x - k;
+                    int startX = x;
+                    int startY = y;
+
+                    while(x < rows && y < columns && matches(toX - 1 - x, toY - 1 - y)) {
+                        x++;
+                        y++;
+                    }
+
+                    backward[offset + k] = x;
+
+                    if(!odd && delta - k >= -d && delta - k <= d && x + forward[offset + delta - k] >= rows)
+                        return new int[] {toX - x, toY - y, toX - startX, toY - startY};
+                }
+            }
+
+            throw new IllegalStateException("No middle snake between " + rows + " and " + columns + " elements"); //Can't happen, the searches always meet
+        }
+    }
+
+    private static boolean same(JsonValue a, JsonValue b) {
+        return a == b || a.equals(b);
+    }
+
+    /**
+     * Applies the operations in order, changing the document and the objects and arrays in it in place.
+     * The values the patch adds are copied in, so a patch can be applied to any number of documents.
+     * The patch stops at the first operation that fails, including a failed {@code test}, with an {@link IllegalStateException}
+     * and the operations before it stay applied, patch a copy if the document has to be left alone when that happens.
+     * Persistent objects and arrays can't be changed in place and throw {@link UnsupportedOperationException}
+     * @return the patched document, which is a different value only if the patch replaced the whole document
+     */
+    @NotNull
+    public JsonValue apply(@NotNull JsonValue document) {
+        for(int x = 0; x < operations.size(); x++)
+            document = operations.get(x).apply(document, x);
+
+        return document;
+    }
+
+    public int size() {
+        return operations.size();
+    }
+
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    /**
+     * @return the patch document, an array with an object for every operation
+     */
+    @NotNull
+    public JsonArray toJson() {
+        JsonArray array = new JsonArray(operations.size());
+
+        for(Operation operation: operations)
+            array.add(operation.toJson());
+
+        return array;
+    }
+
+    @Override
+    public String toString() {
+        return new ObjectSerializer().serializeValue(toJson());
+    }
+
+    static String escape(String name) {
+        return name.indexOf('~') == -1 && name.indexOf('/') == -1? name: name.replace("~", "~0").replace("/", "~1");
+    }
+
+    /**
+     * A deep copy of the mutable objects and arrays in the value, everything else is immutable and shared
+     */
+    static JsonValue copy(JsonValue value) {
+        if(value instanceof PersistentJsonObject || value instanceof PersistentJsonArray) {
+            return value;
+        } else if(value.isObject()) {
+            JsonObject copy = new JsonObject();
+            value.getAsObject().forEach((name, member) -> copy.put(name, copy(member)));
+
+            return copy;
+        } else if(value.isArray()) {
+            JsonArray array = value.getAsArray();
+            JsonArray copy = new JsonArray(array.size());
+
+            for(JsonValue element: array)
+                copy.add(copy(element));
+
+            return copy;
+        }
+
+        return value;
+    }
+
+    private enum Op {
+        ADD, REMOVE, REPLACE, MOVE, COPY, TEST;
+
+        private final String name = name().toLowerCase();
+
+        private static Op of(String name, int index) {
+            for(Op op: values()) {
+                if(op.name.equals(name))
+                    return op;
+            }
+
+            throw new IllegalArgumentException("Json patch operation " + index + " has an unknown op '" + name + '\'');
+        }
+    }
+
+    private static final class Operation {
+        private final Op op;
+        private final String path;
+        private final String from;
+        private final JsonValue value;
+        private final String[] tokens;
+        private final String[] fromTokens;
+
+        private Operation(Op op, String path, String from, JsonValue value) {
+            this.op = op;
+            this.path = path;
+            this.from = from;
+            this.value = value;
+            this.tokens = parsePointer(path);
+            this.fromTokens = from == null? null: parsePointer(from);
+        }
+
+        private static String[] parsePointer(String pointer) {
+            if(pointer.isEmpty())
+                return new String[0];
+            else if(pointer.charAt(0) != '/')
+                throw new IllegalArgumentException("Invalid json pointer at index 0, pointer '" + pointer + '\'');
+
+            String[] tokens = pointer.substring(1).split("/", -1);
+
+            for(int x = 0; x < tokens.length; x++) {
+                String token = tokens[x];
+
+                for(int y = token.indexOf('~'); y != -1; y = token.indexOf('~', y + 1)) {
+                    if(y + 1 == token.length() || token.charAt(y + 1) != '0' && token.charAt(y + 1) != '1')
+                        throw new IllegalArgumentException("Invalid escape in json pointer, pointer '" + pointer + '\'');
+                }
+
+                tokens[x] = token.replace("~1", "/").replace("~0", "~");
+            }
+
+            return tokens;
+        }
+
+        private JsonValue apply(JsonValue document, int index) {
+            switch(op) {
+                case ADD:
+                    return add(document, tokens, copy(value), index);
+                case REMOVE:
+                    remove(document, tokens, index);
+                    return document;
+                case REPLACE:
+                    if(tokens.length == 0)
+                        return copy(value);
+
+                    remove(document, tokens, index);
+                    return add(document, tokens, copy(value), index);
+                case MOVE:
+                    if(path.startsWith(from) && (path.length() == from.length() || path.charAt(from.length()) == '/')) {
+                        if(path.length() == from.length())
+                            return document;
+
+                        throw failure(index, "can't move '" + from + "' into one of its own children");
+                    }
+
+                    return add(document, tokens, remove(document, fromTokens, index), index);
+                case COPY:
+                    return add(document, tokens, copy(get(document, fromTokens, fromTokens.length, index)), index);
+                default:
+                    JsonValue actual = get(document, tokens, tokens.length, index);
+
+                    if(!same(actual, value))
+                        throw failure(index, "the value at '" + path + "' isn't " + value);
+
+                    return document;
+            }
+        }
+
+        private JsonValue get(JsonValue document, String[] tokens, int depth, int index) {
+            JsonValue value = document;
+
+            for(int x = 0; x < depth; x++) {
+                String token = tokens[x];
+                JsonValue child = null;
+
+                if(value.isObject()) {
+                    child = value.getAsObject().get(token);
+                } else if(value.isArray()) {
+                    int element = JsonPathFilter.parseIndex(token);
+
+                    if(element != -1 && element < value.getAsArray().size())
+                        child = value.getAsArray().get(element);
+                }
+
+                if(child == null)
+                    throw failure(index, "there's no value at '" + pointer(tokens, x + 1) + '\'');
+
+                value = child;
+            }
+
+            return value;
+        }
+
+        private JsonValue add(JsonValue document, String[] tokens, JsonValue value, int index) {
+            if(tokens.length == 0)
+                return value;
+
+            JsonValue parent = get(document, tokens, tokens.length - 1, index);
+            String token = tokens[tokens.length - 1];
+
+            if(parent.isObject()) {
+                parent.getAsObject().put(token, value);
+            } else if(parent.isArray()) {
+                JsonArray array = parent.getAsArray();
+
+                if(token.equals("-")) {
+                    array.add(value);
+                } else {
+                    int element = JsonPathFilter.parseIndex(token);
+
+                    if(element == -1 || element > array.size())
+                        throw failure(index, "index '" + token + "' is out of bounds for an array of " + array.size());
+
+                    array.add(element, value);
+                }
+            } else {
+                throw failure(index, "the parent of '" + pointer(tokens, tokens.length) + "' is a " + parent.getType());
+            }
+
+            return document;
+        }
+
+        private JsonValue remove(JsonValue document, String[] tokens, int index) {
+            if(tokens.length == 0)
+                throw failure(index, "the whole document can't be removed");
+
+            JsonValue parent = get(document, tokens, tokens.length - 1, index);
+            String token = tokens[tokens.length - 1];
+            JsonValue removed = null;
+
+            if(parent.isObject()) {
+                removed = parent.getAsObject().remove(token);
+            } else if(parent.isArray()) {
+                int element = JsonPathFilter.parseIndex(token);
+
+                if(element != -1 && element < parent.getAsArray().size())
+                    removed = parent.getAsArray().remove(element);
+            }
+
+            if(removed == null)
+                throw failure(index, "there's no value at '" + pointer(tokens, tokens.length) + '\'');
+
+            return removed;
+        }
+
+        private IllegalStateException failure(int index, String reason) {
+            return new IllegalStateException("Json patch operation " + index + " (" + op.name + " '" + path + "') failed, " + reason);
+        }
+
+        private static String pointer(String[] tokens, int depth) {
+            StringBuilder builder = new StringBuilder();
+
+            for(int x = 0; x < depth; x++)
+                builder.append('/').append(escape(tokens[x]));
+
+            return builder.toString();
+        }
+
+        private JsonObject toJson() {
+            JsonObject obj = new CompactJsonObject();
+            obj.putString("op", op.name);
+
+            if(from != null)
+                obj.putString("from", from);
+
+            obj.putString("path", path);
+
+            if(value != null)
+                obj.put("value", value);
+
+            return obj;
+        }
+    }
+}
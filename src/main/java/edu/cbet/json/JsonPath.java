@@ -0,0 +1,823 @@
+package edu.cbet.json;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compiled JSONPath query following RFC 9535: child and descendant segments ({@code .name}, {@code ['name']}, {@code ..name}),
+ * wildcards, indices, slices ({@code [1:-1:2]}), unions ({@code [0,'a']}) and filters ({@code [?@.price < 10 && @.isbn]}).
+ * The expression is parsed once into an immutable plan which {@link #compile(String)} caches, so one instance can be shared between threads.
+ * A query runs against a tree or straight over the tokens of a {@link JsonReader}, where only the values that match, or that a filter has to look at,
+ * are built and the rest is skipped without being decoded. Filter functions aren't supported.
+ * Unlike RFC 9535 the matches are in document order (the iteration order of the objects for a tree) instead of segment by segment,
+ * and a value is selected once however many ways the query reaches it
+ * @see JsonPathFilter
+ */
+public final class JsonPath {
+    private static final int MAX_CACHED = 512;
+    private static final Map<String, JsonPath> CACHE = new ConcurrentHashMap<>();
+
+    private final String expression;
+    private final Segment[] segments;
+    private final boolean usesRoot;
+
+    private JsonPath(String expression, Segment[] segments, boolean usesRoot) {
+        this.expression = expression;
+        this.segments = segments;
+        this.usesRoot = usesRoot;
+    }
+
+    /**
+     * @return the compiled query, the same instance for an expression compiled before
+     * @throws IllegalArgumentException if the expression isn't a valid query
+     */
+    @NotNull
+    public static JsonPath compile(@NotNull String expression) {
+        JsonPath path = CACHE.get(expression);
+
+        if(path == null) {
+            path = new Parser(expression).parseQuery();
+
+            if(CACHE.size() >= MAX_CACHED) //Only there so repeated expressions aren't parsed again, no need for anything smarter than starting over
+                CACHE.clear();
+
+            CACHE.put(expression, path);
+        }
+
+        return path;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return every value the query selects from the root
+     */
+    public List<JsonValue> select(@NotNull JsonValue root) {
+        Matches matches = new Matches(Integer.MAX_VALUE);
+        evaluate(root, new int[] {0}, 1, root, matches);
+
+        return matches.values;
+    }
+
+    /**
+     * @return the first value the query selects from the root, or null if there's none
+     */
+    @Nullable
+    public JsonValue selectFirst(@NotNull JsonValue root) {
+        Matches matches = new Matches(1);
+        evaluate(root, new int[] {0}, 1, root, matches);
+
+        return matches.first();
+    }
+
+    /**
+     * Reads the next value from the reader and collects everything the query selects from it.
+     * A query with a filter referring to the root ({@code $}) needs the whole value and reads it as a tree
+     */
+    public List<JsonValue> select(@NotNull JsonReader reader) throws IOException {
+        return select(reader, new Matches(Integer.MAX_VALUE)).values;
+    }
+
+    /**
+     * Like {@link #select(JsonReader)} but stops reading at the first match, the reader is left in the middle of the value
+     * @return the first match or null if there's none
+     */
+    @Nullable
+    public JsonValue selectFirst(@NotNull JsonReader reader) throws IOException {
+        return select(reader, new Matches(1)).first();
+    }
+
+    private Matches select(JsonReader reader, Matches matches) throws IOException {
+        if(reader.nextToken() == null)
+            return matches;
+
+        if(usesRoot) {
+            JsonValue root = reader.readValue();
+            evaluate(root, new int[] {0}, 1, root, matches);
+        } else {
+            stream(reader, new int[] {0}, 1, matches);
+        }
+
+        return matches;
+    }
+
+    /**
+     * Matches the segments from {@code state} on against a value in a tree
+     */
+    private void evaluate(JsonValue value, int[] states, int count, JsonValue root, Matches matches) {
+        for(int x = 0; x < count; x++) {
+            if(states[x] == segments.length) {
+                matches.add(value);
+                break;
+            }
+        }
+
+        int[] childStates = new int[segments.length + 1];
+
+        if(value instanceof JsonObject object) {
+            for(Map.Entry<String, JsonValue> member: object.entries()) {
+                if(matches.isFull())
+                    return;
+
+                int childCount = 0;
+
+                for(int x = 0; x < count; x++) {
+                    if(states[x] < segments.length)
+                        childCount = advance(segments[states[x]].selectsMember(member.getKey(), member.getValue(), root), states[x], childStates, childCount);
+                }
+
+                if(childCount > 0)
+                    evaluate(member.getValue(), childStates, childCount, root, matches);
+            }
+        } else if(value instanceof JsonArray array) {
+            int size = array.size();
+
+            for(int index = 0; index < size && !matches.isFull(); index++) {
+                JsonValue element = array.get(index);
+                int childCount = 0;
+
+                for(int x = 0; x < count; x++) {
+                    if(states[x] < segments.length)
+                        childCount = advance(segments[states[x]].selectsElement(index, size, element, root), states[x], childStates, childCount);
+                }
+
+                if(childCount > 0)
+                    evaluate(element, childStates, childCount, root, matches);
+            }
+        }
+    }
+
+    /**
+     * Adds the states a child is in, the next one if the segment selected it and the same one again if the segment is a descendant segment
+     */
+    private int advance(boolean selected, int state, int[] childStates, int childCount) {
+        if(selected)
+            childCount = addState(childStates, childCount, state + 1);
+
+        if(segments[state].descendant)
+            childCount = addState(childStates, childCount, state);
+
+        return childCount;
+    }
+
+    /**
+     * Handles the value the reader is on, with {@code states[0, count)} being the segments still to match against it.
+     * A value is only read into a tree when it's a match, when a filter has to test it or when a selector needs to know the size of an array
+     */
+    private void stream(JsonReader reader, int[] states, int count, Matches matches) throws IOException {
+        JsonToken token = reader.currentToken();
+
+        if(count == 0) {
+            reader.skipChildren();
+            return;
+        }
+
+        for(int x = 0; x < count; x++) {
+            if(states[x] == segments.length || token == JsonToken.START_ARRAY && segments[states[x]].needsSize) {
+                evaluate(reader.readValue(), states, count, null, matches);
+                return;
+            }
+        }
+
+        if(!token.isStart())
+            return;
+
+        boolean object = token == JsonToken.START_OBJECT;
+        boolean filtered = false;
+
+        for(int x = 0; x < count; x++)
+            filtered |= segments[states[x]].filtered;
+
+        int[] childStates = new int[segments.length + 1];
+        int index = 0;
+
+        while(!matches.isFull()) {
+            JsonToken child = reader.nextToken();
+
+            if(child == null || child.isEnd())
+                return;
+
+            if(filtered) { //Whether a filter selects the child depends on all of it, build it and carry on with the tree
+                String name = object? reader.getString(): null;
+
+                if(object)
+                    reader.nextToken();
+
+                JsonValue value = reader.readValue();
+                int childCount = 0;
+
+                for(int x = 0; x < count; x++) {
+                    Segment segment = segments[states[x]];
+                    boolean selected = object? segment.selectsMember(name, value, null): segment.selectsElement(index, Integer.MAX_VALUE, value, null);
+                    childCount = advance(selected, states[x], childStates, childCount);
+                }
+
+                evaluate(value, childStates, childCount, null, matches);
+            } else {
+                int childCount = 0;
+
+                for(int x = 0; x < count; x++) {
+                    Segment segment = segments[states[x]];
+                    childCount = advance(object? segment.matchesName(reader): segment.matchesIndex(index), states[x], childStates, childCount);
+                }
+
+                if(object)
+                    reader.nextToken();
+
+                stream(reader, childStates, childCount, matches);
+            }
+
+            index++;
+        }
+    }
+
+    private static int addState(int[] states, int count, int state) {
+        for(int x = 0; x < count; x++) {
+            if(states[x] == state)
+                return count;
+        }
+
+        states[count] = state;
+        return count + 1;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private static final class Matches {
+        private final List<JsonValue> values = new ArrayList<>();
+        private final int limit;
+
+        private Matches(int limit) {
+            this.limit = limit;
+        }
+
+        private void add(JsonValue value) {
+            if(!isFull())
+                values.add(value);
+        }
+
+        private boolean isFull() {
+            return values.size() >= limit;
+        }
+
+        private JsonValue first() {
+            return values.isEmpty()? null: values.get(0);
+        }
+    }
+
+    /**
+     * The selectors of one child ({@code .a}, {@code [..]}) or descendant ({@code ..a}, {@code ..[..]}) segment, a child is selected if any of them selects it
+     */
+    private static final class Segment {
+        private final boolean descendant;
+        private final Selector[] selectors;
+        private final boolean needsSize;
+        private final boolean filtered;
+
+        private Segment(boolean descendant, Selector[] selectors) {
+            this.descendant = descendant;
+            this.selectors = selectors;
+
+            boolean needsSize = false, filtered = false;
+
+            for(Selector selector: selectors) {
+                needsSize |= selector.needsSize();
+                filtered |= selector.kind == Selector.FILTER;
+            }
+
+            this.needsSize = needsSize;
+            this.filtered = filtered;
+        }
+
+        private boolean selectsMember(String name, JsonValue value, JsonValue root) {
+            for(Selector selector: selectors) {
+                if(selector.selectsMember(name, value, root))
+                    return true;
+            }
+
+            return false;
+        }
+
+        private boolean selectsElement(int index, int size, JsonValue value, JsonValue root) {
+            for(Selector selector: selectors) {
+                if(selector.selectsElement(index, size, value, root))
+                    return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Matches the field name the reader is on without decoding it, filters are left out
+         */
+        private boolean matchesName(JsonReader reader) {
+            for(Selector selector: selectors) {
+                if(selector.kind == Selector.WILDCARD || selector.kind == Selector.NAME && reader.textEquals(selector.nameBytes))
+                    return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Matches an index without knowing the size of the array, only valid without {@link #needsSize} and filters are left out
+         */
+        private boolean matchesIndex(int index) {
+            for(Selector selector: selectors) {
+                if(selector.kind != Selector.FILTER && selector.selectsElement(index, Integer.MAX_VALUE, null, null))
+                    return true;
+            }
+
+            return false;
+        }
+    }
+
+    private static final class Selector {
+        private static final int NAME = 0, WILDCARD = 1, INDEX = 2, SLICE = 3, FILTER = 4;
+        private static final int ABSENT = Integer.MIN_VALUE;
+
+        private final int kind;
+        private final String name;
+        private final byte[] nameBytes;
+        private final int start, end, step; //The index is in start
+        private final Condition filter;
+
+        private Selector(int kind, String name, int start, int end, int step, Condition filter) {
+            this.kind = kind;
+            this.name = name;
+            this.nameBytes = name == null? null: name.getBytes(StandardCharsets.UTF_8);
+            this.start = start;
+            this.end = end;
+            this.step = step;
+            this.filter = filter;
+        }
+
+        private boolean needsSize() {
+            return kind == INDEX && start < 0 || kind == SLICE && (start < 0 && start != ABSENT || end < 0 && end != ABSENT || step < 0);
+        }
+
+        private boolean selectsMember(String name, JsonValue value, JsonValue root) {
+            return switch(kind) {
+                case NAME -> this.name.equals(name);
+                case WILDCARD -> true;
+                case FILTER -> filter.test(value, root);
+                default -> false;
+            };
+        }
+
+        private boolean selectsElement(int index, int size, JsonValue value, JsonValue root) {
+            switch(kind) {
+                case WILDCARD:
+                    return true;
+                case FILTER:
+                    return filter.test(value, root);
+                case INDEX:
+                    return (start >= 0? start: size + start) == index;
+                case SLICE:
+                    if(step > 0) {
+                        int lower = start == ABSENT? 0: bound(start, size);
+                        int upper = end == ABSENT? size: bound(end, size);
+
+                        return index >= lower && index < upper && (index - lower) % step == 0;
+                    } else if(step < 0) { //Counts down from start to just above end
+                        int upper = start == ABSENT? size - 1: Math.min(boundBelow(start, size), size - 1);
+                        int lower = end == ABSENT? -1: Math.min(boundBelow(end, size), size - 1);
+
+                        return index <= upper && index > lower && (upper - index) % -step == 0;
+                    }
+
+                    return false; //A step of 0 selects nothing
+                default:
+                    return false;
+            }
+        }
+
+        private static int bound(int index, int size) {
+            return index >= 0? Math.min(index, size): Math.max(size + index, 0);
+        }
+
+        private static int boundBelow(int index, int size) {
+            return index >= 0? index: Math.max(size + index, -1);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Condition {
+        boolean test(JsonValue current, JsonValue root);
+    }
+
+    /**
+     * A literal or an embedded query in a filter, a query stands for the first value it selects
+     */
+    private static final class Operand {
+        private final JsonValue literal;
+        private final JsonPath query;
+        private final boolean relative;
+
+        private Operand(JsonValue literal, JsonPath query, boolean relative) {
+            this.literal = literal;
+            this.query = query;
+            this.relative = relative;
+        }
+
+        /**
+         * @return the value or null if the query selects nothing
+         */
+        private JsonValue value(JsonValue current, JsonValue root) {
+            if(query == null)
+                return literal;
+
+            Matches matches = new Matches(1);
+            query.evaluate(relative? current: root, new int[] {0}, 1, root, matches);
+
+            return matches.first();
+        }
+    }
+
+    private static boolean compare(String operator, JsonValue left, JsonValue right) {
+        return switch(operator) {
+            case "==" -> equal(left, right);
+            case "!=" -> !equal(left, right);
+            case "<" -> less(left, right);
+            case ">" -> less(right, left);
+            case "<=" -> less(left, right) || equal(left, right);
+            default -> less(right, left) || equal(left, right);
+        };
+    }
+
+    private static boolean equal(JsonValue left, JsonValue right) {
+        return left == null || right == null? left == right: left.equals(right);
+    }
+
+    /**
+     * Only numbers and strings are ordered, a JsonString holding digits is still a string
+     */
+    private static boolean less(JsonValue left, JsonValue right) {
+        if(left instanceof JsonNumber a && right instanceof JsonNumber b)
+            return a.isInteger() && b.isInteger()? a.getAsLong() < b.getAsLong(): a.getAsDouble() < b.getAsDouble();
+
+        if(left instanceof JsonString a && right instanceof JsonString b)
+            return a.getAsString().compareTo(b.getAsString()) < 0;
+
+        return false;
+    }
+
+    /**
+     * Recursive descent over the expression, also used for the queries embedded in filters
+     */
+    private static final class Parser {
+        private final String path;
+        private int pos;
+        private boolean usesRoot;
+
+        private Parser(String path) {
+            this.path = path;
+        }
+
+        private JsonPath parseQuery() {
+            if(!take('$'))
+                throw error();
+
+            Segment[] segments = parseSegments();
+
+            if(pos != path.length())
+                throw error();
+
+            return new JsonPath(path, segments, usesRoot);
+        }
+
+        private Segment[] parseSegments() {
+            List<Segment> segments = new ArrayList<>();
+
+            while(true) {
+                int start = pos;
+                skipBlanks();
+
+                if(path.startsWith("..", pos)) {
+                    pos += 2;
+                    segments.add(peek() == '['? bracketed(true): shorthand(true));
+                } else if(peek() == '.') {
+                    pos++;
+                    segments.add(shorthand(false));
+                } else if(peek() == '[') {
+                    segments.add(bracketed(false));
+                } else {
+                    pos = start; //The blanks belong to whatever comes after the query
+                    return segments.toArray(new Segment[0]);
+                }
+            }
+        }
+
+        private Segment shorthand(boolean descendant) {
+            if(take('*'))
+                return new Segment(descendant, new Selector[] {wildcard()});
+
+            int start = pos;
+
+            while(pos < path.length() && isNameChar(path.charAt(pos), pos == start))
+                pos++;
+
+            if(pos == start)
+                throw error();
+
+            return new Segment(descendant, new Selector[] {name(path.substring(start, pos))});
+        }
+
+        private static boolean isNameChar(char c, boolean first) {
+            return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' || c >= 0x80 || !first && c >= '0' && c <= '9';
+        }
+
+        private Segment bracketed(boolean descendant) {
+            pos++;
+            List<Selector> selectors = new ArrayList<>();
+
+            do {
+                skipBlanks();
+                selectors.add(selector());
+                skipBlanks();
+            } while(take(','));
+
+            if(!take(']'))
+                throw error();
+
+            return new Segment(descendant, selectors.toArray(new Selector[0]));
+        }
+
+        private Selector selector() {
+            char c = peek();
+
+            if(c == '\'' || c == '"')
+                return name(string());
+
+            if(take('*'))
+                return wildcard();
+
+            if(take('?')) {
+                skipBlanks();
+                return new Selector(Selector.FILTER, null, 0, 0, 0, or());
+            }
+
+            int start = integer();
+            skipBlanks();
+
+            if(!take(':')) {
+                if(start == Selector.ABSENT)
+                    throw error();
+
+                return new Selector(Selector.INDEX, null, start, 0, 0, null);
+            }
+
+            skipBlanks();
+            int end = integer(), step = 1;
+            skipBlanks();
+
+            if(take(':')) {
+                skipBlanks();
+                step = integer();
+
+                if(step == Selector.ABSENT)
+                    step = 1;
+            }
+
+            return new Selector(Selector.SLICE, null, start, end, step, null);
+        }
+
+        private static Selector name(String name) {
+            return new Selector(Selector.NAME, name, 0, 0, 0, null);
+        }
+
+        private static Selector wildcard() {
+            return new Selector(Selector.WILDCARD, null, 0, 0, 0, null);
+        }
+
+        /**
+         * @return the integer at the position, {@link Selector#ABSENT} if there's none
+         */
+        private int integer() {
+            int start = pos;
+            take('-');
+
+            while(peek() >= '0' && peek() <= '9')
+                pos++;
+
+            String digits = path.substring(start, pos);
+
+            if(digits.isEmpty())
+                return Selector.ABSENT;
+
+            try {
+                int value = Integer.parseInt(digits);
+
+                if(digits.equals("-") || digits.startsWith("-0") || digits.length() > 1 && digits.charAt(0) == '0' || value == Selector.ABSENT)
+                    throw error(start);
+
+                return value;
+            } catch (NumberFormatException e) {
+                throw error(start);
+            }
+        }
+
+        private String string() {
+            char quote = path.charAt(pos++);
+            StringBuilder builder = new StringBuilder();
+
+            while(pos < path.length()) {
+                char c = path.charAt(pos++);
+
+                if(c == quote)
+                    return builder.toString();
+
+                if(c != '\\') {
+                    builder.append(c);
+                    continue;
+                }
+
+                if(pos == path.length())
+                    break;
+
+                char escaped = path.charAt(pos++);
+
+                switch(escaped) {
+                    case 'b' -> builder.append('\b');
+                    case 'f' -> builder.append('\f');
+                    case 'n' -> builder.append('\n');
+                    case 'r' -> builder.append('\r');
+                    case 't' -> builder.append('\t');
+                    case '/', '\\', '\'', '"' -> builder.append(escaped);
+                    case 'u' -> {
+                        if(pos + 4 > path.length())
+                            throw error(pos - 2);
+
+                        try {
+                            builder.append((char) Integer.parseInt(path.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error(pos - 2);
+                        }
+
+                        pos += 4;
+                    }
+                    default -> throw error(pos - 2);
+                }
+            }
+
+            throw error();
+        }
+
+        private Condition or() {
+            Condition condition = and();
+            skipBlanks();
+
+            while(take("||")) {
+                Condition left = condition, right = and();
+                condition = (current, root) -> left.test(current, root) || right.test(current, root);
+                skipBlanks();
+            }
+
+            return condition;
+        }
+
+        private Condition and() {
+            Condition condition = unary();
+            skipBlanks();
+
+            while(take("&&")) {
+                Condition left = condition, right = unary();
+                condition = (current, root) -> left.test(current, root) && right.test(current, root);
+                skipBlanks();
+            }
+
+            return condition;
+        }
+
+        private Condition unary() {
+            skipBlanks();
+
+            if(take('!')) {
+                Condition condition = unary();
+                return (current, root) -> !condition.test(current, root);
+            }
+
+            if(take('(')) {
+                Condition condition = or();
+                skipBlanks();
+
+                if(!take(')'))
+                    throw error();
+
+                return condition;
+            }
+
+            int start = pos;
+            Operand left = operand();
+            skipBlanks();
+            String operator = operator();
+
+            if(operator == null) { //An existence test
+                if(left.query == null)
+                    throw error(start);
+
+                return (current, root) -> left.value(current, root) != null;
+            }
+
+            skipBlanks();
+            Operand right = operand();
+
+            return (current, root) -> compare(operator, left.value(current, root), right.value(current, root));
+        }
+
+        private String operator() {
+            for(String operator: new String[] {"==", "!=", "<=", ">=", "<", ">"}) {
+                if(take(operator))
+                    return operator;
+            }
+
+            return null;
+        }
+
+        private Operand operand() {
+            int start = pos;
+            char c = peek();
+
+            if(c == '@' || c == '$') {
+                pos++;
+                usesRoot |= c == '$';
+                Segment[] segments = parseSegments();
+
+                return new Operand(null, new JsonPath(path.substring(start, pos), segments, false), c == '@');
+            }
+
+            if(c == '\'' || c == '"')
+                return new Operand(new JsonString(string()), null, false);
+
+            if(take("true"))
+                return new Operand(JsonBoolean.TRUE, null, false);
+            if(take("false"))
+                return new Operand(JsonBoolean.FALSE, null, false);
+            if(take("null"))
+                return new Operand(JsonNull.NULL, null, false);
+
+            if(c == '-' || c >= '0' && c <= '9') {
+                take('-');
+
+                while(pos < path.length() && (Character.isDigit(peek()) || "+-.eE".indexOf(peek()) != -1))
+                    pos++;
+
+                try(JsonReader reader = new JsonReader(path.substring(start, pos))) { //Read like any other number so that decimals keep their exact value
+                    if(reader.nextToken() == JsonToken.NUMBER) {
+                        JsonValue number = reader.readValue();
+
+                        if(reader.nextToken() == null)
+                            return new Operand(number, null, false);
+                    }
+                } catch (IOException | RuntimeException ignored) {}
+            }
+
+            throw error(start);
+        }
+
+        private void skipBlanks() {
+            while(pos < path.length() && " \t\n\r".indexOf(path.charAt(pos)) != -1)
+                pos++;
+        }
+
+        private char peek() {
+            return pos < path.length()? path.charAt(pos): 0;
+        }
+
+        private boolean take(char c) {
+            if(peek() != c)
+                return false;
+
+            pos++;
+            return true;
+        }
+
+        private boolean take(String s) {
+            if(!path.startsWith(s, pos))
+                return false;
+
+            pos += s.length();
+            return true;
+        }
+
+        private IllegalArgumentException error() {
+            return error(pos);
+        }
+
+        private IllegalArgumentException error(int index) {
+            return new IllegalArgumentException("Invalid json path at index " + index + ", path '" + path + '\'');
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package edu.cbet.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of paths to pull out of a document without building the rest of it, see {@link JsonParser#select(String, JsonPathFilter)}.
+ * Paths are either JSON Pointers ({@code /items/0/price}) or simple JSONPath expressions ({@code $.items[0].price}, {@code $['meta'].id}),
+ * both accept {@code *} as a segment matching every member or element. Pointer segments made up of digits match both array indices and field names.
+ * Subtrees that no path can match are skipped over by bracket and quote tracking alone, nothing in them is decoded
+ * @see JsonPath for filters, slices and descendant segments
+ */
+public final class JsonPathFilter {
+    private final String[] expressions;
+    private final Segment[][] paths;
+
+    private JsonPathFilter(String[] expressions) {
+        this.expressions = expressions;
+        this.paths = new Segment[expressions.length][];
+
+        for(int x = 0; x < expressions.length; x++)
+            paths[x] = compile(expressions[x]);
+    }
+
+    /**
+     * Repeated expressions are only kept once, so each one maps to a single list of matches
+     */
+    public static JsonPathFilter of(@NotNull String... expressions) {
+        return new JsonPathFilter(new LinkedHashSet<>(Arrays.asList(expressions)).toArray(new String[0]));
+    }
+
+    public List<String> getExpressions() {
+        return List.of(expressions);
+    }
+
+    /**
+     * Reads the next value from the reader and collects everything that matches
+     * @return the matches of each expression in document order, keyed and ordered by the expressions this filter was created with
+     */
+    public Map<String, List<JsonValue>> select(@NotNull JsonReader reader) throws IOException {
+        List<List<JsonValue>> matches = new ArrayList<>(paths.length);
+        int[] all = new int[paths.length];
+
+        for(int x = 0; x < paths.length; x++) {
+            matches.add(new ArrayList<>());
+            all[x] = x;
+        }
+
+        if(reader.nextToken() != null)
+            select(reader, all, all.length, 0, matches);
+
+        Map<String, List<JsonValue>> result = new LinkedHashMap<>();
+
+        for(int x = 0; x < expressions.length; x++)
+            result.put(expressions[x], matches.get(x));
+
+        return result;
+    }
+
+    /**
+     * Handles the value the reader is on, which every path in {@code alive[0, count)} matches up to {@code depth}
+     */
+    private void select(JsonReader reader, int[] alive, int count, int depth, List<List<JsonValue>> matches) throws IOException {
+        JsonToken token = reader.currentToken();
+
+        if(count == 0) {
+            reader.skipChildren();
+            return;
+        }
+
+        for(int x = 0; x < count; x++) {
+            if(paths[alive[x]].length == depth) { //At least one path ends here so the value is needed anyway, deeper paths are matched against it
+                JsonValue value = reader.readValue();
+
+                for(int y = 0; y < count; y++)
+                    collect(value, paths[alive[y]], depth, matches.get(alive[y]));
+
+                return;
+            }
+        }
+
+        if(!token.isStart())
+            return;
+
+        int[] childAlive = new int[count];
+        int index = 0;
+
+        while(true) {
+            JsonToken child = reader.nextToken();
+
+            if(child == null || child.isEnd())
+                return;
+
+            int childCount = 0;
+
+            if(child == JsonToken.FIELD_NAME) {
+                for(int x = 0; x < count; x++) {
+                    if(paths[alive[x]][depth].matchesName(reader))
+                        childAlive[childCount++] = alive[x];
+                }
+
+                reader.nextToken();
+            } else {
+                for(int x = 0; x < count; x++) {
+                    if(paths[alive[x]][depth].matchesIndex(index))
+                        childAlive[childCount++] = alive[x];
+                }
+
+                index++;
+            }
+
+            select(reader, childAlive, childCount, depth + 1, matches);
+        }
+    }
+
+    private static void collect(JsonValue value, Segment[] path, int depth, List<JsonValue> matches) {
+        if(depth == path.length) {
+            matches.add(value);
+        } else if(value.isObject()) {
+            Segment segment = path[depth];
+
+            if(segment.wildcard) {
+                for(JsonValue member: value.getAsObject().values())
+                    collect(member, path, depth + 1, matches);
+            } else if(segment.name != null && value.getAsObject().containsKey(segment.name)) {
+                collect(value.getAsObject().get(segment.name), path, depth + 1, matches);
+            }
+        } else if(value.isArray()) {
+            Segment segment = path[depth];
+            JsonArray array = value.getAsArray();
+
+            if(segment.wildcard) {
+                for(JsonValue element: array)
+                    collect(element, path, depth + 1, matches);
+            } else if(segment.index >= 0 && segment.index < array.size()) {
+                collect(array.get(segment.index), path, depth + 1, matches);
+            }
+        }
+    }
+
+    private static Segment[] compile(String expression) {
+        if(expression.isEmpty() || expression.charAt(0) == '/')
+            return compilePointer(expression);
+        else if(expression.charAt(0) == '$')
+            return compilePath(expression);
+        else
+            throw new IllegalArgumentException("Expected a json pointer starting with '/' or a path starting with '$', got '" + expression + '\'');
+    }
+
+    private static Segment[] compilePointer(String pointer) {
+        if(pointer.isEmpty())
+            return new Segment[0];
+
+        String[] tokens = pointer.substring(1).split("/", -1);
+        Segment[] segments = new Segment[tokens.length];
+
+        for(int x = 0; x < tokens.length; x++) {
+            String name = tokens[x].replace("~1", "/").replace("~0", "~");
+            segments[x] = name.equals("*")? Segment.WILDCARD: new Segment(name, parseIndex(name));
+        }
+
+        return segments;
+    }
+
+    private static Segment[] compilePath(String path) {
+        List<Segment> segments = new ArrayList<>();
+        int x = 1;
+
+        while(x < path.length()) {
+            char c = path.charAt(x);
+
+            if(c == '.') {
+                int end = x + 1;
+
+                while(end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[')
+                    end++;
+
+                if(end == x + 1)
+                    throw pathError(path, x);
+
+                String name = path.substring(x + 1, end);
+                segments.add(name.equals("*")? Segment.WILDCARD: new Segment(name, -1));
+                x = end;
+            } else if(c == '[') {
+                int end = path.indexOf(']', x);
+
+                if(end == -1)
+                    throw pathError(path, x);
+
+                String inner = path.substring(x + 1, end).trim();
+
+                if(inner.equals("*")) {
+                    segments.add(Segment.WILDCARD);
+                } else if(inner.length() >= 2 && (inner.charAt(0) == '\'' || inner.charAt(0) == '\"') && inner.charAt(inner.length() - 1) == inner.charAt(0)) {
+                    segments.add(new Segment(inner.substring(1, inner.length() - 1), -1));
+                } else if(parseIndex(inner) != -1) {
+                    segments.add(new Segment(null, parseIndex(inner)));
+                } else {
+                    throw pathError(path, x);
+                }
+
+                x = end + 1;
+            } else {
+                throw pathError(path, x);
+            }
+        }
+
+        return segments.toArray(new Segment[0]);
+    }
+
+    static int parseIndex(String s) {
+        if(s.isEmpty() || s.length() > 9 || (s.length() > 1 && s.charAt(0) == '0'))
+            return -1;
+
+        for(int x = 0; x < s.length(); x++) {
+            if(s.charAt(x) < '0' || s.charAt(x) > '9')
+                return -1;
+        }
+
+        return Integer.parseInt(s);
+    }
+
+    private static IllegalArgumentException pathError(String path, int index) {
+        return new IllegalArgumentException("Invalid json path at index " + index + ", path '" + path + '\'');
+    }
+
+    private static final class Segment {
+        private static final Segment WILDCARD = new Segment(null, -1, true);
+
+        private final String name;
+        private final byte[] nameBytes;
+        private final int index;
+        private final boolean wildcard;
+
+        private Segment(String name, int index) {
+            this(name, index, false);
+        }
+
+        private Segment(String name, int index, boolean wildcard) {
+            this.name = name;
+            this.nameBytes = name == null? null: name.getBytes(StandardCharsets.UTF_8);
+            this.index = index;
+            this.wildcard = wildcard;
+        }
+
+        private boolean matchesName(JsonReader reader) {
+            return wildcard || nameBytes != null && reader.textEquals(nameBytes);
+        }
+
+        private boolean matchesIndex(int i) {
+            return wildcard || index == i;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JsonPathFilter" + Arrays.toString(expressions);
+    }
+}
@@ -0,0 +1,488 @@
+package edu.cbet.json;
+
+import edu.cbet.json.impl.BufferSequence;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntConsumer;
+
+/**
+ * A pull style reader which walks json one token at a time instead of building the whole tree like {@link JsonParser},
+ * only the values that are asked for through {@link #getString()}, {@link #getLong()}, {@link #readValue()} etc. get allocated
+ */
+public class JsonReader implements Closeable {
+    private static final byte SCOPE_EMPTY_DOCUMENT = 0;
+    private static final byte SCOPE_NONEMPTY_DOCUMENT = 1;
+    private static final byte SCOPE_EMPTY_OBJECT = 2;
+    private static final byte SCOPE_DANGLING_NAME = 3;
+    private static final byte SCOPE_NONEMPTY_OBJECT = 4;
+    private static final byte SCOPE_EMPTY_ARRAY = 5;
+    private static final byte SCOPE_NONEMPTY_ARRAY = 6;
+
+    private final ByteContainer container;
+    private ByteBuffer buffer;
+    private int pos;
+    private int limit;
+    private long offset; //Index of the buffer's first byte in the whole document, only used for error messages
+
+    private byte[] textBuffer;
+    private int strLen;
+    private String text;
+    private final NumberDecoder numberDecoder = new NumberDecoder();
+    private StringCache keyCache;
+    private JsonLimits limits = JsonLimits.NONE;
+    private final EscapeDecoder escapes = new EscapeDecoder();
+    private final IntConsumer textSink = b -> _textChar((byte) b);
+
+    private byte[] scopes;
+    private int depth;
+    private JsonToken token;
+
+    public JsonReader(String json) {
+        this(new ByteContainer(json), new byte[JsonParser.DEFAULT_BUFFER_SIZE], new StringCache());
+    }
+
+    public JsonReader(InputStream inputStream) {
+        this(new ByteContainer(inputStream), new byte[JsonParser.DEFAULT_BUFFER_SIZE], new StringCache());
+    }
+
+    public JsonReader(File file) throws IOException {
+        this(new ByteContainer(new FileInputStream(file)), new byte[JsonParser.DEFAULT_BUFFER_SIZE], new StringCache());
+    }
+
+    JsonReader(ByteContainer container, byte[] textBuffer, StringCache keyCache) {
+        this.container = container;
+        this.keyCache = keyCache;
+        this.buffer = container.getBuffer();
+        this.textBuffer = textBuffer;
+        this.scopes = new byte[32];
+        this.scopes[0] = SCOPE_EMPTY_DOCUMENT;
+        this.depth = 1;
+    }
+
+    /**
+     * Advances to the next token
+     * @return the next token or null when the end of the json has been reached
+     */
+    public JsonToken nextToken() throws IOException {
+        text = null;
+        int c = nextNonWhitespace();
+        byte scope = scopes[depth-1];
+
+        switch (scope) {
+            case SCOPE_EMPTY_DOCUMENT -> {
+                if(c == -1)
+                    return token = null;
+                scopes[depth-1] = SCOPE_NONEMPTY_DOCUMENT;
+            }
+            case SCOPE_NONEMPTY_DOCUMENT -> {
+                if(c == -1)
+                    return token = null;
+                throw error("Multiple values found");
+            }
+            case SCOPE_EMPTY_OBJECT, SCOPE_NONEMPTY_OBJECT -> {
+                if(c == '}') {
+                    depth--;
+                    return token = JsonToken.END_OBJECT;
+                }
+
+                if(scope == SCOPE_NONEMPTY_OBJECT) {
+                    if(c != ',')
+                        throw unexpected(c, "',' or '}'");
+                    c = nextNonWhitespace();
+                }
+
+                if(c != '\"')
+                    throw unexpected(c, "field name");
+
+                readString();
+                scopes[depth-1] = SCOPE_DANGLING_NAME;
+                return token = JsonToken.FIELD_NAME;
+            }
+            case SCOPE_DANGLING_NAME -> {
+                if(c != ':')
+                    throw unexpected(c, "':'");
+                c = nextNonWhitespace();
+                scopes[depth-1] = SCOPE_NONEMPTY_OBJECT;
+            }
+            case SCOPE_EMPTY_ARRAY -> {
+                if(c == ']') {
+                    depth--;
+                    return token = JsonToken.END_ARRAY;
+                }
+                scopes[depth-1] = SCOPE_NONEMPTY_ARRAY;
+            }
+            case SCOPE_NONEMPTY_ARRAY -> {
+                if(c == ']') {
+                    depth--;
+                    return token = JsonToken.END_ARRAY;
+                }
+                if(c != ',')
+                    throw unexpected(c, "',' or ']'");
+                c = nextNonWhitespace();
+            }
+        }
+
+        return token = readValueToken(c);
+    }
+
+    private JsonToken readValueToken(int c) throws IOException {
+        if(c == '{') {
+            push(SCOPE_EMPTY_OBJECT);
+            return JsonToken.START_OBJECT;
+        } else if(c == '[') {
+            push(SCOPE_EMPTY_ARRAY);
+            return JsonToken.START_ARRAY;
+        } else if(c == '\"') {
+            readString();
+            return JsonToken.STRING;
+        } else if(c == -1) {
+            throw new IllegalArgumentException("Unclosed objects and/or arrays in json");
+        } else if(c == '}' || c == ']' || c == ',' || c == ':') {
+            throw unexpected(c, "value");
+        }
+
+        strLen = 0;
+        _textChar((byte) c);
+
+        while(true) {
+            if(pos == limit && !fill())
+                break;
+
+            byte b = buffer.get(pos);
+
+            if(b == ',' || b == '}' || b == ']' || b == ':' || b == 0 || Character.isWhitespace(b))
+                break;
+
+            _textChar(b);
+            pos++;
+        }
+
+        if(strLen == 4 && Arrays.equals(textBuffer, 0, 4, JsonParser.TRUE_BYTES, 0, 4)) {
+            return JsonToken.BOOLEAN;
+        } else if(strLen == 5 && Arrays.equals(textBuffer, 0, 5, JsonParser.FALSE_BYTES, 0, 5)) {
+            return JsonToken.BOOLEAN;
+        } else if(strLen == 4 && Arrays.equals(textBuffer, 0, 4, JsonParser.NULL_BYTES, 0, 4)) {
+            return JsonToken.NULL;
+        }
+
+        if(!numberDecoder.decode(textBuffer, 0, strLen))
+            throw error("Invalid json value '" + new BufferSequence(textBuffer, 0, strLen) + '\'');
+
+        return JsonToken.NUMBER;
+    }
+
+    private void readString() throws IOException {
+        strLen = 0;
+
+        while(true) {
+            if(pos == limit && !fill())
+                throw new IllegalArgumentException("String started but never finished");
+
+            byte b = buffer.get(pos++);
+
+            if(b == '\"') {
+                return;
+            } else if(b == '\\') {
+                escapes.begin();
+
+                while(escapes.isActive()) {
+                    if(pos == limit && !fill())
+                        throw new IllegalArgumentException("String started but never finished");
+
+                    int result = escapes.next(buffer.get(pos), textSink);
+
+                    if(result == EscapeDecoder.NOT_CONSUMED)
+                        break; //Ended a lone surrogate, the byte is handled as a regular one
+                    else if(result == EscapeDecoder.INVALID_ESCAPE)
+                        throw error("Invalid character was escaped");
+                    else if(result == EscapeDecoder.INVALID_UNICODE)
+                        throw error("Invalid unicode escape sequence");
+
+                    pos++;
+                }
+            } else {
+                _textChar(b);
+            }
+        }
+    }
+
+    /**
+     * Skips past the children of the current object or array at the byte level, only brackets and quotes are tracked so nothing inside is decoded or validated.
+     * Afterwards the current token will be the matching {@link JsonToken#END_OBJECT} or {@link JsonToken#END_ARRAY}, for any other token this does nothing
+     */
+    public void skipChildren() throws IOException {
+        if(token != JsonToken.START_OBJECT && token != JsonToken.START_ARRAY)
+            return;
+
+        text = null;
+        int open = 1;
+        boolean inString = false;
+
+        while(true) {
+            if(pos == limit && !fill())
+                throw new IllegalArgumentException("Unclosed objects and/or arrays in json");
+
+            byte b = buffer.get(pos++);
+
+            if(inString) {
+                if(b == '\\') {
+                    if(pos == limit && !fill())
+                        throw new IllegalArgumentException("String started but never finished");
+                    pos++;
+                } else if(b == '\"') {
+                    inString = false;
+                }
+            } else if(b == '\"') {
+                inString = true;
+            } else if(b == '{' || b == '[') {
+                open++;
+            } else if(b == '}' || b == ']') {
+                if(--open == 0) {
+                    depth--;
+                    token = b == '}'? JsonToken.END_OBJECT: JsonToken.END_ARRAY;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the current value as a tree, for objects and arrays this consumes every token up to and including the matching end token
+     */
+    public JsonValue readValue() throws IOException {
+        if(token == null)
+            throw new IllegalStateException("No current token, call nextToken() first");
+        else if(token.isScalar())
+            return getScalar();
+        else if(!token.isStart())
+            throw new IllegalStateException("Can't read a value starting at " + token);
+
+        ArrayList<JsonValue> stack = new ArrayList<>();
+        JsonValue root = token == JsonToken.START_OBJECT? new CompactJsonObject(): new NumericJsonArray();
+        stack.add(root);
+
+        while(!stack.isEmpty()) {
+            JsonToken t = nextToken();
+            JsonValue top = stack.get(stack.size()-1);
+
+            if(t == JsonToken.END_OBJECT || t == JsonToken.END_ARRAY) {
+                stack.remove(stack.size()-1);
+                continue;
+            }
+
+            String name = null;
+
+            if(t == JsonToken.FIELD_NAME) {
+                name = getString();
+                t = nextToken();
+            }
+
+            JsonValue value;
+
+            if(t == JsonToken.START_OBJECT) {
+                value = new CompactJsonObject();
+                stack.add(value);
+            } else if(t == JsonToken.START_ARRAY) {
+                value = new NumericJsonArray();
+                stack.add(value);
+            } else {
+                value = getScalar();
+            }
+
+            if(name != null) {
+                JsonObject object = top.getAsObject();
+
+                if(object.size() >= limits.getMaxObjectKeys() && !object.containsKey(name))
+                    throw error("Object has more keys than the limit of " + limits.getMaxObjectKeys());
+
+                object.put(name, value);
+            } else {
+                JsonArray array = top.getAsArray();
+
+                if(array.size() >= limits.getMaxArrayElements())
+                    throw error("Array has more elements than the limit of " + limits.getMaxArrayElements());
+
+                array.add(value);
+            }
+        }
+
+        return root;
+    }
+
+    private JsonValue getScalar() {
+        return switch (token) {
+            case STRING -> strLen == 0? JsonString.EMPTY: JsonString.valueOf(getString());
+            case NUMBER -> numberDecoder.toJsonNumber();
+            case BOOLEAN -> JsonBoolean.valueOf(getBoolean());
+            default -> JsonNull.NULL;
+        };
+    }
+
+    public JsonToken currentToken() {
+        return token;
+    }
+
+    /**
+     * @return how many objects and/or arrays the reader is currently inside of
+     */
+    public int getDepth() {
+        return depth-1;
+    }
+
+    /**
+     * @return the text of the current field name or scalar value
+     */
+    public String getString() {
+        if(token == null || !(token.isScalar() || token == JsonToken.FIELD_NAME))
+            throw new IllegalStateException("Current token " + token + " has no text");
+
+        if(text == null) {
+            if(token == JsonToken.FIELD_NAME && keyCache != null)
+                text = keyCache.get(textBuffer, 0, strLen);
+            else
+                text = strLen == 0? "": new String(textBuffer, 0, strLen, StandardCharsets.UTF_8);
+        }
+
+        return text;
+    }
+
+    /**
+     * Field names are looked up in this cache instead of always being decoded, null disables caching
+     */
+    public void setKeyCache(StringCache keyCache) {
+        this.keyCache = keyCache;
+    }
+
+    public StringCache getKeyCache() {
+        return keyCache;
+    }
+
+    /**
+     * Checked as the json is read, the token or value that crosses one fails with an {@link IllegalArgumentException}
+     */
+    public void setLimits(@NotNull JsonLimits limits) {
+        this.limits = Objects.requireNonNull(limits);
+    }
+
+    public JsonLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Compares the current text against UTF-8 bytes without decoding it
+     */
+    boolean textEquals(byte[] utf8) {
+        return Arrays.equals(textBuffer, 0, strLen, utf8, 0, utf8.length);
+    }
+
+    public boolean isInteger() {
+        return token == JsonToken.NUMBER && numberDecoder.isInteger();
+    }
+
+    public long getLong() {
+        if(token != JsonToken.NUMBER)
+            throw new IllegalStateException("Current token " + token + " is not a number");
+        if(!numberDecoder.isInteger())
+            throw new IllegalStateException("Current token is a floating-point number, conversion to an integer will always be lossy");
+
+        return numberDecoder.longValue();
+    }
+
+    public int getInt() {
+        return Math.toIntExact(getLong());
+    }
+
+    public double getDouble() {
+        if(token != JsonToken.NUMBER)
+            throw new IllegalStateException("Current token " + token + " is not a number");
+
+        return numberDecoder.doubleValue();
+    }
+
+    public boolean getBoolean() {
+        if(token != JsonToken.BOOLEAN)
+            throw new IllegalStateException("Current token " + token + " is not a boolean");
+
+        return strLen == 4;
+    }
+
+    @Override
+    public void close() throws IOException {
+        container.close();
+    }
+
+    private void push(byte scope) {
+        if(depth > limits.getMaxDepth()) //The document itself takes up the first scope
+            throw error("Json is nested deeper than the limit of " + limits.getMaxDepth());
+
+        if(depth == scopes.length)
+            scopes = Arrays.copyOf(scopes, depth << 1);
+
+        scopes[depth++] = scope;
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        pos = 0;
+
+        do {
+            limit = container.readBytes();
+
+            if(limit == -1) {
+                limit = 0;
+                return false;
+            }
+        } while(limit == 0);
+
+        if(offset + limit > limits.getMaxDocumentSize())
+            throw limits.documentTooLarge();
+
+        buffer = container.getBuffer();
+        return true;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while(true) {
+            if(pos == limit && !fill())
+                return -1;
+
+            byte b = buffer.get(pos++);
+
+            if(b != 0 && !Character.isWhitespace(b))
+                return b;
+        }
+    }
+
+    private void _textChar(byte b) {
+        if(strLen >= limits.getMaxStringLength())
+            throw limits.stringTooLong();
+
+        if(strLen == textBuffer.length) {
+            this.textBuffer = Arrays.copyOf(this.textBuffer, this.textBuffer.length << 1);
+        }
+
+        this.textBuffer[strLen++] = b;
+    }
+
+    private IllegalArgumentException unexpected(int c, String expected) {
+        if(c == -1)
+            return new IllegalArgumentException("Unclosed objects and/or arrays in json");
+
+        return error("Expected " + expected + " but found '" + (char) c + '\'');
+    }
+
+    private IllegalArgumentException error(String message) {
+        int index = Math.max(pos-1, 0);
+        return new IllegalArgumentException(message + " at index " + (offset + index) + ", json preview '" + JsonParser.getSurroundingSection(buffer, index) + '\'');
+    }
+}
@@ -90,6 +90,15 @@ public class JsonString implements JsonValue {
         }
     }
 
+    @Override
+    public BigDecimal getAsBigDecimal() {
+        if(isNumber()) {
+            return new BigDecimal(this.value);
+        } else {
+            throw new IllegalStateException("JsonValue is of type '%s' not a number".formatted(getType()));
+        }
+    }
+
     @Override
     public char getAsCharacter() {
         if(this.value.length() == 1) {
@@ -166,6 +175,11 @@ public class JsonString implements JsonValue {
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
     @Override
     public String toString() {
         return value;
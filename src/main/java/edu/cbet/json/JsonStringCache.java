@@ -0,0 +1,122 @@
+package edu.cbet.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size cache of short string values, set on a {@link JsonParser} with {@link JsonParser#setValueCache(JsonStringCache)} so that values
+ * repeated throughout a document (statuses, currency and country codes...) all share a single {@link JsonString} and String instead of each getting their own.
+ * Like {@link StringCache} every slot holds a single entry, but a resident entry has to miss as many times as it was hit before it gets replaced,
+ * so a run of one-off values such as ids can't push out the values that keep coming back.
+ * Entries are immutable apart from that counter and it's fine for racing threads to lose updates to it, so one cache can be shared between parsers
+ */
+public class JsonStringCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_LENGTH = 32;
+    private static final int MAX_FREQUENCY = 15;
+    private static final int OBJECT_OVERHEAD = 24 + 24 + 16; //A JsonString, its String and the header of the String's array with compressed oops
+
+    private final Entry[] entries;
+    private final int mask;
+    private final int maxLength;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    public JsonStringCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two
+     * @param maxLength values with more bytes than this are always decoded and never cached
+     */
+    public JsonStringCache(int capacity, int maxLength) {
+        int size = StringCache.tableSize(capacity);
+
+        this.entries = new Entry[size];
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @return the value for {@code bytes[from, from + len)}, the same instance as previous calls with equal bytes when it's still cached
+     */
+    public JsonString get(byte[] bytes, int from, int len) {
+        if(len == 0)
+            return JsonString.EMPTY;
+
+        if(len > maxLength) {
+            misses.increment();
+            return JsonString.valueOf(new String(bytes, from, len, StandardCharsets.UTF_8));
+        }
+
+        int hash = StringCache.hash(bytes, from, len);
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        Entry entry = entries[slot];
+
+        if(entry != null && entry.hash == hash && Arrays.equals(entry.bytes, 0, entry.bytes.length, bytes, from, from + len)) {
+            if(entry.frequency < MAX_FREQUENCY)
+                entry.frequency++;
+
+            hits.increment();
+            bytesSaved.add(OBJECT_OVERHEAD + ((len + 7) & ~7));
+            return entry.value;
+        }
+
+        misses.increment();
+        JsonString value = JsonString.valueOf(new String(bytes, from, len, StandardCharsets.UTF_8));
+
+        if(entry == null || entry.frequency-- <= 0)
+            entries[slot] = new Entry(Arrays.copyOfRange(bytes, from, from + len), hash, value);
+
+        return value;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the fraction of lookups answered from the cache, 0 if there haven't been any
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+
+        return total == 0? 0: (double) hits / total;
+    }
+
+    /**
+     * @return an estimate of the heap not retained thanks to the cache, the size of the JsonString, String and array every hit would have allocated.
+     * Assumes compressed oops and values that fit in Latin-1, so it leans low for anything else
+     */
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    public void clear() {
+        Arrays.fill(entries, null);
+        hits.reset();
+        misses.reset();
+        bytesSaved.reset();
+    }
+
+    private static final class Entry {
+        private final byte[] bytes;
+        private final int hash;
+        private final JsonString value;
+        private int frequency;
+
+        private Entry(byte[] bytes, int hash, JsonString value) {
+            this.bytes = bytes;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package edu.cbet.json;
+
+import edu.cbet.json.impl.BufferSequence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A flat structural index over a json document used by {@link LazyJsonObject} and {@link LazyJsonArray}.
+ * Every value takes up {@link #NODE_SIZE} ints on the tape: its type and flags, then two ints whose meaning depends on the type.
+ * Objects and arrays store the tape index just past their last child and their child count,
+ * everything else stores the start and end offsets of its text in the original bytes (strings exclude the quotes).
+ * The children of an object alternate key node, value node
+ */
+final class JsonTape {
+    static final int NODE_SIZE = 3;
+
+    static final int OBJECT = 1;
+    static final int ARRAY = 2;
+    static final int STRING = 3;
+    static final int NUMBER = 4;
+    static final int TRUE = 5;
+    static final int FALSE = 6;
+    static final int NULL = 7;
+    static final int TYPE_MASK = 0xFF;
+
+    static final int ESCAPED = 1 << 8; //The string contains at least one escape so it can't be decoded straight from the bytes
+
+    private static final int EXPECT_VALUE = 0;
+    private static final int EXPECT_FIRST_KEY = 1;
+    private static final int EXPECT_KEY = 2;
+    private static final int EXPECT_COLON = 3;
+    private static final int EXPECT_FIRST_VALUE = 4;
+    private static final int AFTER_VALUE = 5;
+
+    private final byte[] bytes;
+    private final NumberDecoder numbers = new NumberDecoder();
+    private final StringCache keyCache;
+    private final JsonLimits limits;
+    private int[] tape;
+    private int tapeLen;
+
+    private JsonTape(byte[] bytes, StringCache keyCache, JsonLimits limits) {
+        this.bytes = bytes;
+        this.keyCache = keyCache;
+        this.limits = limits;
+        this.tape = new int[Math.max(NODE_SIZE * 16, bytes.length >> 3)];
+    }
+
+    /**
+     * @throws IllegalArgumentException if the json is invalid or crosses one of the limits
+     */
+    static JsonTape build(byte[] bytes, StringCache keyCache, JsonLimits limits) {
+        if(bytes.length > limits.getMaxDocumentSize())
+            throw limits.documentTooLarge();
+
+        JsonTape tape = new JsonTape(bytes, keyCache, limits);
+        tape.scan();
+        return tape;
+    }
+
+    private void scan() {
+        int[] open = new int[32];
+        int[] counts = new int[32];
+        int depth = 0;
+        int state = EXPECT_VALUE;
+        int n = bytes.length;
+        int i = 0;
+
+        while(true) {
+            while(i < n && isWhitespace(bytes[i]))
+                i++;
+
+            if(i == n)
+                break;
+
+            byte c = bytes[i];
+
+            if(state == EXPECT_FIRST_KEY && c == '}' || state == EXPECT_FIRST_VALUE && c == ']') {
+                int node = open[--depth];
+                tape[node + 1] = tapeLen;
+                tape[node + 2] = counts[depth];
+                state = AFTER_VALUE;
+                i++;
+            } else if(state == EXPECT_FIRST_KEY || state == EXPECT_KEY) {
+                if(c != '\"')
+                    throw error("Expected field name", i);
+
+                i = scanString(i);
+                state = EXPECT_COLON;
+            } else if(state == EXPECT_COLON) {
+                if(c != ':')
+                    throw error("Expected ':'", i);
+
+                i++;
+                state = EXPECT_VALUE;
+            } else if(state == AFTER_VALUE) {
+                if(depth == 0)
+                    throw error("Multiple values found", i);
+
+                boolean object = (tape[open[depth-1]] & TYPE_MASK) == OBJECT;
+
+                if(c == ',') {
+                    state = object? EXPECT_KEY: EXPECT_VALUE;
+                } else if(c == (object? '}': ']')) {
+                    int node = open[--depth];
+                    tape[node + 1] = tapeLen;
+                    tape[node + 2] = counts[depth];
+                } else {
+                    throw error("Expected ',' or '" + (object? '}': ']') + '\'', i);
+                }
+
+                i++;
+            } else {
+                if(depth != 0) {
+                    boolean object = (tape[open[depth-1]] & TYPE_MASK) == OBJECT;
+
+                    if(++counts[depth-1] > (object? limits.getMaxObjectKeys(): limits.getMaxArrayElements()))
+                        throw error(object? "Object has more keys than the limit of " + limits.getMaxObjectKeys(): "Array has more elements than the limit of " + limits.getMaxArrayElements(), i);
+                }
+
+                if(c == '{' || c == '[') {
+                    if(depth >= limits.getMaxDepth())
+                        throw error("Json is nested deeper than the limit of " + limits.getMaxDepth(), i);
+
+                    if(depth == open.length) {
+                        open = Arrays.copyOf(open, depth << 1);
+                        counts = Arrays.copyOf(counts, depth << 1);
+                    }
+
+                    open[depth] = addNode(c == '{'? OBJECT: ARRAY, 0, 0);
+                    counts[depth++] = 0;
+                    state = c == '{'? EXPECT_FIRST_KEY: EXPECT_FIRST_VALUE;
+                    i++;
+                } else if(c == '\"') {
+                    i = scanString(i);
+                    state = AFTER_VALUE;
+                } else {
+                    i = scanLiteral(i);
+                    state = AFTER_VALUE;
+                }
+            }
+        }
+
+        if(depth != 0)
+            throw new IllegalArgumentException("Unclosed objects and/or arrays in json");
+        else if(tapeLen != 0 && state != AFTER_VALUE)
+            throw new IllegalArgumentException("Json ended while expecting a value");
+    }
+
+    private int scanString(int quote) {
+        int flags = STRING;
+        int x = quote + 1;
+
+        while(true) {
+            if(x >= bytes.length)
+                throw error("String started but never finished", quote);
+
+            byte b = bytes[x];
+
+            if(b == '\\') {
+                flags |= ESCAPED;
+                x += 2;
+            } else if(b == '\"') {
+                if(x - quote - 1 > limits.getMaxStringLength())
+                    throw limits.stringTooLong();
+
+                addNode(flags, quote + 1, x);
+                return x + 1;
+            } else {
+                x++;
+            }
+        }
+    }
+
+    private int scanLiteral(int start) {
+        int x = start;
+
+        while(x < bytes.length) {
+            byte b = bytes[x];
+
+            if(b == ',' || b == '}' || b == ']' || b == ':' || isWhitespace(b))
+                break;
+
+            x++;
+        }
+
+        int len = x - start;
+
+        if(len > limits.getMaxStringLength())
+            throw limits.stringTooLong();
+
+        if(len == 0) {
+            throw error("Expected value", start);
+        } else if(len == 4 && Arrays.equals(bytes, start, x, JsonParser.TRUE_BYTES, 0, 4)) {
+            addNode(TRUE, start, x);
+        } else if(len == 5 && Arrays.equals(bytes, start, x, JsonParser.FALSE_BYTES, 0, 5)) {
+            addNode(FALSE, start, x);
+        } else if(len == 4 && Arrays.equals(bytes, start, x, JsonParser.NULL_BYTES, 0, 4)) {
+            addNode(NULL, start, x);
+        } else {
+            for(int i = start; i < x; i++) {
+                byte b = bytes[i];
+
+                if(!(b >= '0' && b <= '9' || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E'))
+                    throw error("Invalid json value '" + new BufferSequence(bytes, start, len) + '\'', start);
+            }
+
+            addNode(NUMBER, start, x);
+        }
+
+        return x;
+    }
+
+    private int addNode(int typeAndFlags, int a, int b) {
+        if(tapeLen + NODE_SIZE > tape.length)
+            tape = Arrays.copyOf(tape, tape.length << 1);
+
+        int node = tapeLen;
+        tape[tapeLen++] = typeAndFlags;
+        tape[tapeLen++] = a;
+        tape[tapeLen++] = b;
+
+        return node;
+    }
+
+    boolean isEmpty() {
+        return tapeLen == 0;
+    }
+
+    int type(int node) {
+        return tape[node] & TYPE_MASK;
+    }
+
+    int count(int node) {
+        return tape[node + 2];
+    }
+
+    /**
+     * @return the tape index of the value after this one, skipping over all of its children
+     */
+    int next(int node) {
+        int type = type(node);
+        return type == OBJECT || type == ARRAY? tape[node + 1]: node + NODE_SIZE;
+    }
+
+    /**
+     * Materializes the value at a node, objects and arrays stay lazy
+     */
+    JsonValue value(int node) {
+        return switch (type(node)) {
+            case OBJECT -> new LazyJsonObject(this, node);
+            case ARRAY -> new LazyJsonArray(this, node);
+            case STRING -> tape[node + 1] == tape[node + 2]? JsonString.EMPTY: JsonString.valueOf(string(node));
+            case NUMBER -> number(node);
+            case TRUE -> JsonBoolean.TRUE;
+            case FALSE -> JsonBoolean.FALSE;
+            default -> JsonNull.NULL;
+        };
+    }
+
+    String string(int node) {
+        int start = tape[node + 1];
+        int end = tape[node + 2];
+
+        if((tape[node] & ESCAPED) == 0)
+            return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+
+        //An escape is always at least as long as the UTF-8 it turns into, a lone surrogate becomes a single '?'
+        byte[] out = new byte[end - start];
+        int[] len = {0};
+        IntConsumer sink = b -> out[len[0]++] = (byte) b;
+        EscapeDecoder escapes = new EscapeDecoder();
+
+        for(int x = start; x < end; x++) {
+            byte b = bytes[x];
+
+            if(escapes.isActive()) {
+                int result = escapes.next(b, sink);
+
+                if(result == EscapeDecoder.INVALID_ESCAPE)
+                    throw error("Invalid character was escaped", x);
+                else if(result == EscapeDecoder.INVALID_UNICODE)
+                    throw error("Invalid unicode escape sequence", x);
+                else if(result == EscapeDecoder.CONSUMED)
+                    continue;
+            }
+
+            if(b == '\\')
+                escapes.begin();
+            else
+                out[len[0]++] = b;
+        }
+
+        //The closing quote finishes a trailing lone surrogate, anything else still active is a unicode escape cut short
+        if(escapes.isActive() && escapes.next((byte) '\"', sink) != EscapeDecoder.NOT_CONSUMED)
+            throw error("Unicode character literal started but never finished", end);
+
+        return new String(out, 0, len[0], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes a key node, going through the key cache unless it has escapes
+     */
+    String key(int node) {
+        if(keyCache == null || (tape[node] & ESCAPED) != 0)
+            return string(node);
+
+        return keyCache.get(bytes, tape[node + 1], tape[node + 2] - tape[node + 1]);
+    }
+
+    /**
+     * Compares a key node against a String without decoding it when the key is plain ASCII
+     */
+    boolean keyEquals(int node, String key) {
+        int start = tape[node + 1];
+        int len = tape[node + 2] - start;
+
+        if((tape[node] & ESCAPED) != 0)
+            return string(node).equals(key);
+        else if(key.length() > len)
+            return false;
+
+        for(int x = 0; x < key.length(); x++) {
+            char c = key.charAt(x);
+
+            if(c >= 0x80)
+                return string(node).equals(key);
+            else if(bytes[start + x] != c)
+                return false;
+        }
+
+        return len == key.length();
+    }
+
+    private JsonNumber number(int node) {
+        int start = tape[node + 1];
+        int len = tape[node + 2] - start;
+
+        //Scanning only checked the characters, the full syntax is checked once the number is actually used
+        if(!numbers.decode(bytes, start, len))
+            throw error("Invalid json value '" + new BufferSequence(bytes, start, len) + '\'', start);
+
+        return numbers.toJsonNumber();
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == 0 || Character.isWhitespace(b);
+    }
+
+    private IllegalArgumentException error(String message, int index) {
+        return new IllegalArgumentException(message + " at index " + index + ", json preview '" + JsonParser.getSurroundingSection(ByteBuffer.wrap(bytes), index) + '\'');
+    }
+}
@@ -0,0 +1,28 @@
+package edu.cbet.json;
+
+/**
+ * The tokens produced by {@link JsonReader#nextToken()}
+ */
+public enum JsonToken {
+    START_OBJECT,
+    END_OBJECT,
+    START_ARRAY,
+    END_ARRAY,
+    FIELD_NAME,
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL;
+
+    public boolean isScalar() {
+        return this == STRING || this == NUMBER || this == BOOLEAN || this == NULL;
+    }
+
+    public boolean isStart() {
+        return this == START_OBJECT || this == START_ARRAY;
+    }
+
+    public boolean isEnd() {
+        return this == END_OBJECT || this == END_ARRAY;
+    }
+}
@@ -1,5 +1,6 @@
 package edu.cbet.json;
 
+import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.Map;
 
@@ -72,6 +73,10 @@ public interface JsonValue {
         throw new IllegalStateException("JsonValue is of type '%s' not a number".formatted(getType()));
     }
 
+    default BigDecimal getAsBigDecimal() {
+        throw new IllegalStateException("JsonValue is of type '%s' not a number".formatted(getType()));
+    }
+
     default String getAsString() {
         throw new IllegalStateException("JsonValue is of type '%s' not a String".formatted(getType()));
     }
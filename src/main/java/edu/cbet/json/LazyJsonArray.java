@@ -0,0 +1,294 @@
+package edu.cbet.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link JsonArray} backed by a {@link JsonTape}, {@link #get(int)} and {@link #size()} are answered straight from the tape
+ * and only decode the elements they touch. Anything else, including every mutation, first inflates the array into the regular list storage
+ * @see LazyJsonObject
+ */
+class LazyJsonArray extends JsonArray {
+    private final JsonTape tape;
+    private final int node;
+    private int[] elements; //Tape index of each element, found on the first random access
+    private JsonValue[] values;
+    private boolean inflated;
+
+    LazyJsonArray(JsonTape tape, int node) {
+        this.tape = tape;
+        this.node = node;
+    }
+
+    private void inflate() {
+        if(inflated)
+            return;
+
+        int count = tape.count(node);
+
+        super.ensureCapacity(count);
+        for(int x = 0; x < count; x++)
+            super.add(element(x));
+
+        inflated = true;
+        elements = null;
+        values = null;
+    }
+
+    private JsonValue element(int index) {
+        if(elements == null) {
+            int count = tape.count(node);
+            elements = new int[count];
+            values = new JsonValue[count];
+
+            int element = node + JsonTape.NODE_SIZE;
+
+            for(int x = 0; x < count; x++) {
+                elements[x] = element;
+                element = tape.next(element);
+            }
+        }
+
+        JsonValue value = values[index];
+
+        if(value == null)
+            value = values[index] = tape.value(elements[index]);
+
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return inflated? super.size(): tape.count(node);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public JsonValue get(int index) {
+        if(inflated)
+            return super.get(index);
+
+        Objects.checkIndex(index, tape.count(node));
+        return element(index);
+    }
+
+    @Override
+    public void trimToSize() {
+        inflate();
+        super.trimToSize();
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        inflate();
+        super.ensureCapacity(minCapacity);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        inflate();
+        return super.contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        inflate();
+        return super.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        inflate();
+        return super.lastIndexOf(o);
+    }
+
+    @Override
+    public Object clone() {
+        inflate();
+        return super.clone();
+    }
+
+    @Override
+    public String getType() {
+        return JsonArray.class.getName();
+    }
+
+    @NotNull
+    @Override
+    public Object[] toArray() {
+        inflate();
+        return super.toArray();
+    }
+
+    @NotNull
+    @Override
+    public <T> T[] toArray(@NotNull T[] a) {
+        inflate();
+        return super.toArray(a);
+    }
+
+    @Override
+    public <T> T[] toArray(IntFunction<T[]> generator) {
+        inflate();
+        return super.toArray(generator);
+    }
+
+    @Override
+    public JsonValue set(int index, JsonValue value) {
+        inflate();
+        return super.set(index, value);
+    }
+
+    @Override
+    public boolean add(JsonValue value) {
+        inflate();
+        return super.add(value);
+    }
+
+    @Override
+    public void add(int index, JsonValue element) {
+        inflate();
+        super.add(index, element);
+    }
+
+    @Override
+    public JsonValue remove(int index) {
+        inflate();
+        return super.remove(index);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        inflate();
+        return super.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        inflated = true;
+        elements = null;
+        values = null;
+        super.clear();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends JsonValue> c) {
+        inflate();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends JsonValue> c) {
+        inflate();
+        return super.addAll(index, c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        inflate();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        inflate();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean containsAll(@NotNull Collection<?> c) {
+        inflate();
+        return super.containsAll(c);
+    }
+
+    @NotNull
+    @Override
+    public ListIterator<JsonValue> listIterator(int index) {
+        inflate();
+        return super.listIterator(index);
+    }
+
+    @NotNull
+    @Override
+    public ListIterator<JsonValue> listIterator() {
+        inflate();
+        return super.listIterator();
+    }
+
+    @NotNull
+    @Override
+    public Iterator<JsonValue> iterator() {
+        inflate();
+        return super.iterator();
+    }
+
+    @NotNull
+    @Override
+    public List<JsonValue> subList(int fromIndex, int toIndex) {
+        inflate();
+        return super.subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public void forEach(Consumer<? super JsonValue> action) {
+        inflate();
+        super.forEach(action);
+    }
+
+    @Override
+    public Spliterator<JsonValue> spliterator() {
+        inflate();
+        return super.spliterator();
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super JsonValue> filter) {
+        inflate();
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<JsonValue> operator) {
+        inflate();
+        super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super JsonValue> c) {
+        inflate();
+        super.sort(c);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        inflate();
+        return super.equals(o);
+    }
+
+    @Override
+    int groupHash(StructuralHash parent) {
+        inflate();
+        return super.groupHash(parent);
+    }
+
+    @Override
+    public String toString() {
+        inflate();
+        return super.toString();
+    }
+}
@@ -0,0 +1,275 @@
+package edu.cbet.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A {@link JsonObject} backed by a {@link JsonTape}, {@link #get(Object)}, {@link #containsKey(Object)} and {@link #size()}
+ * are answered straight from the tape and only decode the members they touch.
+ * Anything else, including every mutation, first inflates the object into the regular map storage, nested objects and arrays stay lazy.
+ * Like the rest of the json tree this isn't thread safe, not even for reads since members are cached as they are decoded
+ */
+class LazyJsonObject extends JsonObject {
+    private static final int LINEAR_LOOKUP_LIMIT = 16; //Larger objects are inflated on the first lookup instead of being scanned every time
+
+    private final JsonTape tape;
+    private final int node;
+    private JsonValue[] values;
+    private boolean inflated;
+
+    LazyJsonObject(JsonTape tape, int node) {
+        this.tape = tape;
+        this.node = node;
+    }
+
+    private void inflate() {
+        if(inflated)
+            return;
+
+        inflated = true;
+        int count = tape.count(node);
+        int key = node + JsonTape.NODE_SIZE;
+
+        for(int x = 0; x < count; x++) {
+            int value = key + JsonTape.NODE_SIZE;
+            super.put(tape.key(key), member(x, value));
+            key = tape.next(value);
+        }
+
+        values = null;
+    }
+
+    private JsonValue member(int ordinal, int valueNode) {
+        if(values == null)
+            values = new JsonValue[tape.count(node)];
+
+        JsonValue value = values[ordinal];
+
+        if(value == null)
+            value = values[ordinal] = tape.value(valueNode);
+
+        return value;
+    }
+
+    /**
+     * @return the ordinal of the last member with this name (duplicate names resolve the same way as a regular put), or -1
+     */
+    private int find(String name) {
+        int count = tape.count(node);
+        int key = node + JsonTape.NODE_SIZE;
+        int found = -1;
+
+        for(int x = 0; x < count; x++) {
+            if(tape.keyEquals(key, name))
+                found = x;
+
+            key = tape.next(key + JsonTape.NODE_SIZE);
+        }
+
+        return found;
+    }
+
+    private int valueNode(int ordinal) {
+        int key = node + JsonTape.NODE_SIZE;
+
+        for(int x = 0; x < ordinal; x++)
+            key = tape.next(key + JsonTape.NODE_SIZE);
+
+        return key + JsonTape.NODE_SIZE;
+    }
+
+    @Override
+    public int size() {
+        return inflated? super.size(): tape.count(node);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public JsonValue get(Object key) {
+        if(!inflated && tape.count(node) > LINEAR_LOOKUP_LIMIT)
+            inflate();
+
+        if(inflated)
+            return super.get(key);
+
+        if(!(key instanceof String name))
+            return null;
+
+        int ordinal = find(name);
+        return ordinal == -1? null: member(ordinal, valueNode(ordinal));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if(!inflated && tape.count(node) > LINEAR_LOOKUP_LIMIT)
+            inflate();
+
+        if(inflated)
+            return super.containsKey(key);
+
+        return key instanceof String name && find(name) != -1;
+    }
+
+    @Override
+    public JsonValue getOrDefault(Object key, JsonValue defaultValue) {
+        JsonValue value = get(key);
+        return value == null? defaultValue: value;
+    }
+
+    @Override
+    public JsonValue put(String key, JsonValue value) {
+        inflate();
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends JsonValue> m) {
+        inflate();
+        super.putAll(m);
+    }
+
+    @Override
+    public JsonValue remove(Object key) {
+        inflate();
+        return super.remove(key);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        inflate();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public void clear() {
+        inflated = true;
+        values = null;
+        super.clear();
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        inflate();
+        return super.containsValue(value);
+    }
+
+    @NotNull
+    @Override
+    public Set<String> keySet() {
+        inflate();
+        return super.keySet();
+    }
+
+    @NotNull
+    @Override
+    public Collection<JsonValue> values() {
+        inflate();
+        return super.values();
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<String, JsonValue>> entrySet() {
+        inflate();
+        return super.entrySet();
+    }
+
+    @Override
+    Set<Entry<String, JsonValue>> entries() {
+        inflate();
+        return super.entries();
+    }
+
+    @Override
+    public JsonValue putIfAbsent(String key, JsonValue value) {
+        inflate();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, JsonValue oldValue, JsonValue newValue) {
+        inflate();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public JsonValue replace(String key, JsonValue value) {
+        inflate();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public JsonValue computeIfAbsent(String key, @NotNull Function<? super String, ? extends JsonValue> mappingFunction) {
+        inflate();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public JsonValue computeIfPresent(String key, @NotNull BiFunction<? super String, ? super JsonValue, ? extends JsonValue> remappingFunction) {
+        inflate();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public JsonValue compute(String key, @NotNull BiFunction<? super String, ? super JsonValue, ? extends JsonValue> remappingFunction) {
+        inflate();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public JsonValue merge(String key, @NotNull JsonValue value, @NotNull BiFunction<? super JsonValue, ? super JsonValue, ? extends JsonValue> remappingFunction) {
+        inflate();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super JsonValue> action) {
+        inflate();
+        super.forEach(action);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super JsonValue, ? extends JsonValue> function) {
+        inflate();
+        super.replaceAll(function);
+    }
+
+    @Override
+    public Object clone() {
+        inflate();
+        return super.clone();
+    }
+
+    @Override
+    public String getType() {
+        return "JsonObject";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        inflate();
+        return super.equals(o);
+    }
+
+    @Override
+    int groupHash(StructuralHash parent) {
+        inflate();
+        return super.groupHash(parent);
+    }
+
+    @Override
+    public String toString() {
+        inflate();
+        return super.toString();
+    }
+}
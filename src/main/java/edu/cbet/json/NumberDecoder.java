@@ -0,0 +1,356 @@
+package edu.cbet.json;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Decodes json numbers straight from a byte array into primitives, {@link #decode(byte[], int, int)} leaves the result in
+ * {@link #isInteger()}, {@link #longValue()} and {@link #doubleValue()} so one instance can be reused for every number of a document.
+ * Integers are accumulated inline, floating-point numbers go through Clinger's fast path, then the Eisel-Lemire algorithm
+ * and only fall back to {@link Double#parseDouble(String)} in the rare cases that neither can round correctly.
+ * Non-integers whose digits fit in a long are kept exact and only rounded to a double when {@link #doubleValue()} is called
+ */
+final class NumberDecoder {
+    private static final int MIN_EXP10 = -348;
+    private static final int MAX_EXP10 = 347;
+    private static final int MAX_DIGITS = 19; //Every 19 digit number fits in an unsigned long
+    private static final int MAX_EXPONENT = 100_000; //Exponents are clamped here while reading, anything near it is sent to the fallback anyway
+
+    private static final double[] SMALL_POWERS = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * The 128-bit mantissas of the powers of ten from {@link #MIN_EXP10} to {@link #MAX_EXP10}, normalized so the top bit is set and rounded down,
+     * high word then low word
+     */
+    private static final long[] POWERS = new long[(MAX_EXP10 - MIN_EXP10 + 1) * 2];
+
+    static {
+        for(int e = MIN_EXP10; e <= MAX_EXP10; e++) {
+            BigInteger mantissa;
+
+            if(e >= 0) {
+                BigInteger power = BigInteger.TEN.pow(e);
+                int shift = power.bitLength() - 128;
+                mantissa = shift > 0? power.shiftRight(shift): power.shiftLeft(-shift);
+            } else {
+                BigInteger power = BigInteger.TEN.pow(-e);
+                mantissa = BigInteger.ONE.shiftLeft(127 + power.bitLength()).divide(power);
+            }
+
+            int index = (e - MIN_EXP10) * 2;
+            POWERS[index] = mantissa.shiftRight(64).longValue();
+            POWERS[index + 1] = mantissa.longValue();
+        }
+    }
+
+    private boolean integer;
+    private boolean decimal; //Exact as longValue * 10^exp10, the double is only worked out when asked for
+    private long longValue;
+    private int exp10;
+    private double doubleValue;
+    private byte[] text; //Copy of the numbers that are neither
+
+    /**
+     * Decodes the json number in {@code bytes[from, from + len)}, integers too large for a long are decoded as doubles
+     * @return false if the bytes aren't a valid json number, the previous result is left untouched
+     */
+    boolean decode(byte[] bytes, int from, int len) {
+        int end = from + len;
+        int x = from;
+        boolean negative = false;
+
+        if(x < end && bytes[x] == '-') {
+            negative = true;
+            x++;
+        }
+
+        int intStart = x;
+
+        if(x < end && bytes[x] == '0') {
+            x++;
+        } else {
+            while(x < end && isDigit(bytes[x]))
+                x++;
+        }
+
+        int intEnd = x;
+
+        if(intEnd == intStart)
+            return false;
+
+        int fracStart = x;
+        int fracEnd = x;
+
+        if(x < end && bytes[x] == '.') {
+            fracStart = ++x;
+
+            while(x < end && isDigit(bytes[x]))
+                x++;
+
+            fracEnd = x;
+
+            if(fracEnd == fracStart)
+                return false;
+        }
+
+        boolean hasExponent = false;
+        int exponent = 0;
+
+        if(x < end && (bytes[x] == 'e' || bytes[x] == 'E')) {
+            hasExponent = true;
+            boolean negativeExponent = false;
+
+            if(++x < end && (bytes[x] == '+' || bytes[x] == '-'))
+                negativeExponent = bytes[x++] == '-';
+
+            int expStart = x;
+
+            while(x < end && isDigit(bytes[x])) {
+                if(exponent < MAX_EXPONENT)
+                    exponent = exponent * 10 + (bytes[x] - '0');
+                x++;
+            }
+
+            if(x == expStart)
+                return false;
+
+            if(negativeExponent)
+                exponent = -exponent;
+        }
+
+        if(x != end)
+            return false;
+
+        if(!hasExponent && fracEnd == fracStart && decodeLong(bytes, intStart, intEnd, negative))
+            return true;
+
+        decodeDouble(bytes, from, len, intStart, intEnd, fracStart, fracEnd, exponent, negative);
+        return true;
+    }
+
+    boolean isInteger() {
+        return integer;
+    }
+
+    long longValue() {
+        return longValue;
+    }
+
+    double doubleValue() {
+        if(integer)
+            return (double) longValue;
+        else if(decimal)
+            return toDouble(longValue, exp10);
+
+        return doubleValue;
+    }
+
+    /**
+     * @return true if the decoded non-integer is exactly {@link #longValue()} * 10^{@link #exp10()}
+     */
+    boolean isDecimal() {
+        return decimal;
+    }
+
+    int exp10() {
+        return exp10;
+    }
+
+    JsonNumber toJsonNumber() {
+        if(integer)
+            return JsonNumber.valueOf(longValue);
+        else if(decimal)
+            return JsonNumber.decimal(longValue, exp10);
+        else if(text != null)
+            return JsonNumber.text(text, doubleValue);
+
+        return JsonNumber.valueOf(doubleValue);
+    }
+
+    /**
+     * @return the double closest to {@code unscaled * 10^exp10}
+     */
+    static double toDouble(long unscaled, int exp10) {
+        long mantissa = Math.abs(unscaled);
+
+        if(mantissa == 0)
+            return 0.0;
+
+        if(exp10 >= -22 && exp10 <= 22 && mantissa <= 1L << 53) {
+            double d = (double) mantissa;
+            d = exp10 < 0? d / SMALL_POWERS[-exp10]: d * SMALL_POWERS[exp10];
+            return unscaled < 0? -d: d;
+        }
+
+        long bits = eiselLemire(mantissa, exp10);
+
+        if(bits != -1)
+            return Double.longBitsToDouble(unscaled < 0? bits | Long.MIN_VALUE: bits);
+
+        return Double.parseDouble(unscaled + "E" + exp10);
+    }
+
+    /**
+     * Accumulated negatively the same way as {@link Long#parseLong(String)} so {@link Long#MIN_VALUE} doesn't overflow
+     * @return false if the value doesn't fit in a long
+     */
+    private boolean decodeLong(byte[] bytes, int from, int to, boolean negative) {
+        long limit = negative? Long.MIN_VALUE: -Long.MAX_VALUE;
+        long multiplyLimit = limit / 10;
+        long value = 0;
+
+        for(int x = from; x < to; x++) {
+            int digit = bytes[x] - '0';
+
+            if(value < multiplyLimit)
+                return false;
+
+            value *= 10;
+
+            if(value < limit + digit)
+                return false;
+
+            value -= digit;
+        }
+
+        integer = true;
+        decimal = false;
+        text = null;
+        longValue = negative? value: -value;
+        return true;
+    }
+
+    private void decodeDouble(byte[] bytes, int from, int len, int intStart, int intEnd, int fracStart, int fracEnd, int exponent, boolean negative) {
+        long mantissa = 0; //Unsigned
+        int digits = 0;
+        int dropped = 0;
+        boolean truncated = false;
+
+        for(int x = intStart; x < fracEnd; x++) {
+            if(x == intEnd)
+                x = fracStart;
+            if(x == fracEnd)
+                break;
+
+            int digit = bytes[x] - '0';
+
+            if(digits == 0 && digit == 0) {
+                continue;
+            } else if(digits < MAX_DIGITS) {
+                mantissa = mantissa * 10 + digit;
+                digits++;
+            } else {
+                dropped++;
+                truncated |= digit != 0;
+            }
+        }
+
+        integer = false;
+        decimal = false;
+        text = null;
+
+        if(mantissa == 0) {
+            doubleValue = negative? -0.0: 0.0;
+            return;
+        }
+
+        int exp10 = exponent - (fracEnd - fracStart) + dropped;
+
+        if(!truncated && mantissa > 0 && Math.abs(exponent) < MAX_EXPONENT) { //All the digits fit in a signed long
+            this.decimal = true;
+            this.longValue = negative? -mantissa: mantissa;
+            this.exp10 = exp10;
+            return;
+        }
+
+        text = Arrays.copyOfRange(bytes, from, from + len);
+
+        if(!truncated && Math.abs(exponent) < MAX_EXPONENT) { //Too large for the fast path, which needs at most 2^53
+            long bits = eiselLemire(mantissa, exp10);
+
+            if(bits != -1) {
+                doubleValue = Double.longBitsToDouble(negative? bits | Long.MIN_VALUE: bits);
+                return;
+            }
+        } else if(Math.abs(exponent) < MAX_EXPONENT) {
+            //The dropped digits put the real value somewhere between mantissa and mantissa + 1, if both round the same way so does the value
+            long bits = eiselLemire(mantissa, exp10);
+
+            if(bits != -1 && bits == eiselLemire(mantissa + 1, exp10)) {
+                doubleValue = Double.longBitsToDouble(negative? bits | Long.MIN_VALUE: bits);
+                return;
+            }
+        }
+
+        doubleValue = Double.parseDouble(new String(bytes, from, len, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * @param mantissa an unsigned, non-zero decimal mantissa
+     * @return the bits of the positive double closest to {@code mantissa * 10^exp10}, or -1 when the result can't be
+     * determined without more precision, or it is subnormal or infinite
+     */
+    private static long eiselLemire(long mantissa, int exp10) {
+        if(exp10 < MIN_EXP10 || exp10 > MAX_EXP10)
+            return -1;
+
+        int index = (exp10 - MIN_EXP10) * 2;
+        int clz = Long.numberOfLeadingZeros(mantissa);
+        mantissa <<= clz;
+
+        long exp2 = ((217706L * exp10) >> 16) + 64 + 1023 - clz; //217706 / 2^16 ~ log2(10)
+
+        long high = unsignedMultiplyHigh(mantissa, POWERS[index]);
+        long low = mantissa * POWERS[index];
+
+        //The rounded down power might not be precise enough, widen the product with the next 64 bits of the power
+        if((high & 0x1FF) == 0x1FF && Long.compareUnsigned(low + mantissa, mantissa) < 0) {
+            long lowerHigh = unsignedMultiplyHigh(mantissa, POWERS[index + 1]);
+            long lowerLow = mantissa * POWERS[index + 1];
+            long mergedHigh = high;
+            long mergedLow = low + lowerHigh;
+
+            if(Long.compareUnsigned(mergedLow, low) < 0)
+                mergedHigh++;
+
+            if((mergedHigh & 0x1FF) == 0x1FF && mergedLow == -1 && Long.compareUnsigned(lowerLow + mantissa, mantissa) < 0)
+                return -1;
+
+            high = mergedHigh;
+            low = mergedLow;
+        }
+
+        long msb = high >>> 63;
+        long result = high >>> (msb + 9);
+        exp2 -= 1 ^ msb;
+
+        //Exactly halfway between two doubles, round half to even needs the exact value
+        if(low == 0 && (high & 0x1FF) == 0 && (result & 3) == 1)
+            return -1;
+
+        result += result & 1;
+        result >>>= 1;
+
+        if(result >>> 53 > 0) {
+            result >>>= 1;
+            exp2++;
+        }
+
+        if(exp2 <= 0 || exp2 >= 0x7FF)
+            return -1;
+
+        return exp2 << 52 | result & 0x000FFFFFFFFFFFFFL;
+    }
+
+    private static long unsignedMultiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
@@ -0,0 +1,514 @@
+package edu.cbet.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
+
+/**
+ * The {@link JsonArray} produced by the parsers. As long as every element is an integer, every element a parsed decimal,
+ * or every element a double, they are held in primitive arrays and only boxed into a {@link JsonNumber} when read through {@link #get(int)},
+ * the bulk accessors and the serializer read the primitives directly.
+ * Parsed decimals are kept as their unscaled digits and exponent rather than as doubles, so {@code 1.50} or {@code 5e22} are written back
+ * the same way they would be from anywhere else in the tree.
+ * The first element of any other kind, and any mutation other than appending a matching number, moves the elements into the regular list storage for good
+ * @see CompactJsonObject
+ */
+class NumericJsonArray extends JsonArray {
+    private static final int INITIAL_CAPACITY = 10;
+
+    private long[] longs;
+    private double[] doubles;
+    private long[] decimals; //Unscaled, worth decimals[x] * 10^exponents[x]
+    private int[] exponents;
+    private int size;
+    private boolean inflated;
+
+    NumericJsonArray() {}
+
+    private void inflate() {
+        if(inflated)
+            return;
+
+        super.ensureCapacity(size);
+        for(int x = 0; x < size; x++)
+            super.add(element(x));
+
+        inflated = true;
+        longs = null;
+        doubles = null;
+        decimals = null;
+        exponents = null;
+        size = 0;
+    }
+
+    private JsonValue element(int index) {
+        if(longs != null)
+            return JsonNumber.valueOf(longs[index]);
+        else if(doubles != null)
+            return JsonNumber.valueOf(doubles[index]);
+
+        return JsonNumber.decimal(decimals[index], exponents[index]);
+    }
+
+    private double doubleAt(int index) {
+        if(longs != null)
+            return longs[index];
+        else if(doubles != null)
+            return doubles[index];
+
+        return NumberDecoder.toDouble(decimals[index], exponents[index]);
+    }
+
+    /**
+     * @return true while the elements are held as primitives, an empty array counts as either kind
+     */
+    boolean isPrimitive() {
+        return !inflated;
+    }
+
+    private void appendLong(long value) {
+        if(longs == null)
+            longs = new long[INITIAL_CAPACITY];
+        else if(size == longs.length)
+            longs = Arrays.copyOf(longs, Math.max(size + (size >> 1), INITIAL_CAPACITY));
+
+        mutated();
+        longs[size++] = value;
+        modCount++;
+    }
+
+    private void appendDouble(double value) {
+        if(doubles == null)
+            doubles = new double[INITIAL_CAPACITY];
+        else if(size == doubles.length)
+            doubles = Arrays.copyOf(doubles, Math.max(size + (size >> 1), INITIAL_CAPACITY));
+
+        mutated();
+        doubles[size++] = value;
+        modCount++;
+    }
+
+    private void appendDecimal(long unscaled, int exp10) {
+        if(decimals == null) {
+            decimals = new long[INITIAL_CAPACITY];
+            exponents = new int[INITIAL_CAPACITY];
+        } else if(size == decimals.length) {
+            int capacity = Math.max(size + (size >> 1), INITIAL_CAPACITY);
+            decimals = Arrays.copyOf(decimals, capacity);
+            exponents = Arrays.copyOf(exponents, capacity);
+        }
+
+        mutated();
+        decimals[size] = unscaled;
+        exponents[size++] = exp10;
+        modCount++;
+    }
+
+    /**
+     * Appends the number just decoded by the parser without boxing it, when it matches the kind of the elements before it
+     */
+    void add(NumberDecoder number) {
+        if(!inflated) {
+            if(number.isInteger() && doubles == null && decimals == null) {
+                appendLong(number.longValue());
+                return;
+            } else if(number.isDecimal() && longs == null && doubles == null) {
+                appendDecimal(number.longValue(), number.exp10());
+                return;
+            }
+        }
+
+        add(number.toJsonNumber());
+    }
+
+    @Override
+    public boolean add(JsonValue value) {
+        if(!inflated && value instanceof JsonNumber number) {
+            if(number.isLong() && doubles == null && decimals == null) {
+                appendLong(number.getAsLong());
+                return true;
+            } else if(number.isDecimal() && longs == null && doubles == null) {
+                appendDecimal(number.unscaledValue(), number.exp10());
+                return true;
+            } else if(number.isDouble() && longs == null && doubles == null && Double.doubleToRawLongBits(number.getAsDouble()) == 0) {
+                appendDecimal(0, -1); //A parsed zero is decoded as a double, 0.0 comes out the same either way
+                return true;
+            } else if(number.isDouble() && longs == null && decimals == null) {
+                appendDouble(number.getAsDouble());
+                return true;
+            }
+        }
+
+        inflate();
+        return super.add(value);
+    }
+
+    /**
+     * Writes the elements as a json array, only valid while {@link #isPrimitive()}
+     */
+    void appendTo(StringBuilder builder) {
+        builder.append('[');
+
+        for(int x = 0; x < size; x++) {
+            if(x != 0)
+                builder.append(',');
+
+            if(longs != null)
+                builder.append(longs[x]);
+            else if(doubles != null)
+                builder.append(doubles[x]);
+            else
+                builder.append(JsonNumber.decimalString(decimals[x], exponents[x]));
+        }
+
+        builder.append(']');
+    }
+
+    @Override
+    public long getLong(int index) {
+        if(inflated || longs == null)
+            return super.getLong(index);
+
+        Objects.checkIndex(index, size);
+        return longs[index];
+    }
+
+    @Override
+    public int getInt(int index) {
+        if(inflated || longs == null)
+            return super.getInt(index);
+
+        Objects.checkIndex(index, size);
+        return (int) longs[index];
+    }
+
+    @Override
+    public double getDouble(int index) {
+        if(inflated)
+            return super.getDouble(index);
+
+        Objects.checkIndex(index, size);
+        return doubleAt(index);
+    }
+
+    @NotNull
+    @Override
+    public long[] toLongArray() {
+        if(inflated || doubles != null || decimals != null)
+            return super.toLongArray();
+
+        return longs == null? new long[0]: Arrays.copyOf(longs, size);
+    }
+
+    @NotNull
+    @Override
+    public double[] toDoubleArray() {
+        if(inflated)
+            return super.toDoubleArray();
+        else if(doubles != null)
+            return Arrays.copyOf(doubles, size);
+
+        double[] array = new double[size];
+
+        for(int x = 0; x < size; x++)
+            array[x] = doubleAt(x);
+
+        return array;
+    }
+
+    @NotNull
+    @Override
+    public LongStream longStream() {
+        if(inflated || doubles != null || decimals != null)
+            return super.longStream();
+
+        return longs == null? LongStream.empty(): Arrays.stream(longs, 0, size);
+    }
+
+    @NotNull
+    @Override
+    public DoubleStream doubleStream() {
+        if(inflated)
+            return super.doubleStream();
+        else if(doubles != null)
+            return Arrays.stream(doubles, 0, size);
+        else if(decimals != null)
+            return Arrays.stream(toDoubleArray());
+
+        return longs == null? DoubleStream.empty(): Arrays.stream(longs, 0, size).asDoubleStream();
+    }
+
+    @Override
+    public int size() {
+        return inflated? super.size(): size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public JsonValue get(int index) {
+        if(inflated)
+            return super.get(index);
+
+        Objects.checkIndex(index, size);
+        return element(index);
+    }
+
+    @Override
+    public void trimToSize() {
+        if(inflated) {
+            super.trimToSize();
+        } else if(longs != null) {
+            longs = Arrays.copyOf(longs, size);
+        } else if(doubles != null) {
+            doubles = Arrays.copyOf(doubles, size);
+        } else if(decimals != null) {
+            decimals = Arrays.copyOf(decimals, size);
+            exponents = Arrays.copyOf(exponents, size);
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int minCapacity) {
+        inflate();
+        super.ensureCapacity(minCapacity);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        inflate();
+        return super.contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        inflate();
+        return super.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        inflate();
+        return super.lastIndexOf(o);
+    }
+
+    @Override
+    public Object clone() {
+        inflate();
+        return super.clone();
+    }
+
+    @Override
+    public String getType() {
+        return JsonArray.class.getName();
+    }
+
+    @NotNull
+    @Override
+    public Object[] toArray() {
+        inflate();
+        return super.toArray();
+    }
+
+    @NotNull
+    @Override
+    public <T> T[] toArray(@NotNull T[] a) {
+        inflate();
+        return super.toArray(a);
+    }
+
+    @Override
+    public <T> T[] toArray(IntFunction<T[]> generator) {
+        inflate();
+        return super.toArray(generator);
+    }
+
+    @Override
+    public JsonValue set(int index, JsonValue value) {
+        inflate();
+        return super.set(index, value);
+    }
+
+    @Override
+    public void add(int index, JsonValue element) {
+        inflate();
+        super.add(index, element);
+    }
+
+    @Override
+    public JsonValue remove(int index) {
+        inflate();
+        return super.remove(index);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        inflate();
+        return super.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        if(inflated) {
+            super.clear();
+        } else {
+            mutated();
+            longs = null;
+            doubles = null;
+            decimals = null;
+            exponents = null;
+            size = 0;
+            modCount++;
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends JsonValue> c) {
+        inflate();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends JsonValue> c) {
+        inflate();
+        return super.addAll(index, c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        inflate();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        inflate();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean containsAll(@NotNull Collection<?> c) {
+        inflate();
+        return super.containsAll(c);
+    }
+
+    @NotNull
+    @Override
+    public ListIterator<JsonValue> listIterator(int index) {
+        return inflated? super.listIterator(index): new View().listIterator(index);
+    }
+
+    @NotNull
+    @Override
+    public ListIterator<JsonValue> listIterator() {
+        return listIterator(0);
+    }
+
+    @NotNull
+    @Override
+    public Iterator<JsonValue> iterator() {
+        return inflated? super.iterator(): new View().iterator();
+    }
+
+    @NotNull
+    @Override
+    public List<JsonValue> subList(int fromIndex, int toIndex) {
+        inflate();
+        return super.subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public void forEach(Consumer<? super JsonValue> action) {
+        if(inflated) {
+            super.forEach(action);
+            return;
+        }
+
+        for(int x = 0; x < size; x++)
+            action.accept(element(x));
+    }
+
+    @Override
+    public Spliterator<JsonValue> spliterator() {
+        return inflated? super.spliterator(): new View().spliterator();
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super JsonValue> filter) {
+        inflate();
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<JsonValue> operator) {
+        inflate();
+        super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super JsonValue> c) {
+        inflate();
+        super.sort(c);
+    }
+
+    @Override
+    int structuralHash(StructuralHash group) {
+        if(inflated)
+            return super.structuralHash(group);
+
+        int hash = 1;
+
+        for(int x = 0; x < size; x++) //Hashed as primitives, boxing would hand out a new JsonNumber every time
+            hash = 31 * hash + JsonNumber.hash(doubleAt(x));
+
+        return hash;
+    }
+
+    /**
+     * Iterates the primitives through {@link #get(int)}, every change made through it goes back through this array
+     */
+    private final class View extends AbstractList<JsonValue> implements RandomAccess {
+        @Override
+        public JsonValue get(int index) {
+            return NumericJsonArray.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return NumericJsonArray.this.size();
+        }
+
+        @Override
+        public JsonValue set(int index, JsonValue element) {
+            return NumericJsonArray.this.set(index, element);
+        }
+
+        @Override
+        public void add(int index, JsonValue element) {
+            NumericJsonArray.this.add(index, element);
+        }
+
+        @Override
+        public JsonValue remove(int index) {
+            return NumericJsonArray.this.remove(index);
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package edu.cbet.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The counterpart of {@link ObjectSerializer}, binds json straight onto java objects from a {@link JsonReader}'s tokens without building a {@link JsonObject} first.
+ * Fields are found with the same rules as {@link JsonDescription} ({@link edu.cbet.json.annotations.JsonProperty}, {@link edu.cbet.json.annotations.JsonIgnore}),
+ * and fields marked {@link edu.cbet.json.annotations.JsonAsString} are parsed back from their string form. Primitive fields are set without boxing.
+ * The binding plan for each class is built once and cached, so unlike the serializer one instance can be shared between threads.
+ * Classes need a no argument constructor, and their package has to be opened to this module the same as for serialization
+ */
+@SuppressWarnings("unchecked")
+public class ObjectDeserializer {
+    private final ConcurrentHashMap<Class<?>, ClassBinding<?>> bindings = new ConcurrentHashMap<>();
+    private final StringCache keyCache = new StringCache();
+    private volatile JsonLimits limits = JsonLimits.NONE;
+
+    public <T> T deserialize(@NotNull String json, @NotNull Class<T> type) {
+        try {
+            return readDocument(reader(new ByteContainer(json), json.length()), type);
+        } catch (IOException e) { //Reading from a String can't fail
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public <T> T deserialize(@NotNull InputStream inputStream, @NotNull Class<T> type) throws IOException {
+        return readDocument(reader(new ByteContainer(inputStream), JsonParser.DEFAULT_BUFFER_SIZE), type);
+    }
+
+    public <T> T deserialize(@NotNull File file, @NotNull Class<T> type) throws IOException {
+        try(JsonReader reader = reader(new ByteContainer(new FileInputStream(file)), file.length())) {
+            return readDocument(reader, type);
+        }
+    }
+
+    /**
+     * Applies to the json read by the deserialize methods, a reader passed to {@link #readValue(JsonReader, Class)} keeps its own limits
+     */
+    public void setLimits(@NotNull JsonLimits limits) {
+        this.limits = Objects.requireNonNull(limits);
+    }
+
+    public JsonLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * No string in the json can be longer than the json itself, so small documents get a text buffer to match. It still grows if the length was off
+     */
+    private JsonReader reader(ByteContainer container, long length) {
+        JsonReader reader = new JsonReader(container, new byte[(int) Math.max(16, Math.min(JsonParser.DEFAULT_BUFFER_SIZE, length))], keyCache);
+        reader.setLimits(limits);
+        return reader;
+    }
+
+    private <T> T readDocument(JsonReader reader, Class<T> type) throws IOException {
+        T value = readValue(reader, type);
+        reader.nextToken(); //Throws if there's anything after the value
+
+        return value;
+    }
+
+    /**
+     * Binds the reader's current value, or the next one if the reader hasn't been started yet. Afterwards the reader is on the value's last token
+     */
+    public <T> T readValue(@NotNull JsonReader reader, @NotNull Class<T> type) throws IOException {
+        if(reader.currentToken() == null && reader.nextToken() == null)
+            throw new IllegalArgumentException("Json ended while expecting a value");
+
+        return (T) read(reader, type);
+    }
+
+    private Object read(JsonReader reader, Type type) throws IOException {
+        JsonToken token = reader.currentToken();
+        Class<?> raw = rawType(type);
+
+        if(token == JsonToken.NULL)
+            return raw.isPrimitive()? defaultValue(raw): null;
+        else if(JsonValue.class.isAssignableFrom(raw) || raw == Object.class)
+            return reader.readValue();
+        else if(raw == String.class)
+            return expectScalar(reader, raw).getString();
+        else if(raw == long.class || raw == Long.class)
+            return readLong(reader, raw);
+        else if(raw == int.class || raw == Integer.class)
+            return readInt(reader, raw);
+        else if(raw == short.class || raw == Short.class)
+            return (short) readLong(reader, raw, Short.MIN_VALUE, Short.MAX_VALUE);
+        else if(raw == byte.class || raw == Byte.class)
+            return (byte) readLong(reader, raw, Byte.MIN_VALUE, Byte.MAX_VALUE);
+        else if(raw == double.class || raw == Double.class)
+            return readDouble(reader, raw);
+        else if(raw == float.class || raw == Float.class)
+            return readFloat(reader, raw);
+        else if(raw == boolean.class || raw == Boolean.class)
+            return readBoolean(reader, raw);
+        else if(raw == char.class || raw == Character.class)
+            return readChar(reader, raw);
+        else if(raw.isEnum())
+            return Enum.valueOf(raw.asSubclass(Enum.class), expectScalar(reader, raw).getString());
+        else if(raw.isArray())
+            return readArray(reader, raw);
+        else if(Collection.class.isAssignableFrom(raw))
+            return readCollection(reader, raw, typeArgument(type, 0));
+        else if(Map.class.isAssignableFrom(raw))
+            return readMap(reader, raw, typeArgument(type, 1));
+        else
+            return readObject(reader, binding(raw));
+    }
+
+    private <T> T readObject(JsonReader reader, ClassBinding<T> binding) throws IOException {
+        expect(reader, JsonToken.START_OBJECT, binding.type);
+
+        T target = binding.newInstance();
+
+        while(reader.nextToken() == JsonToken.FIELD_NAME) {
+            FieldBinding field = binding.fields.get(reader.getString());
+            reader.nextToken();
+
+            if(field == null)
+                reader.skipChildren();
+            else
+                field.read(this, reader, target);
+        }
+
+        return target;
+    }
+
+    private Object readArray(JsonReader reader, Class<?> raw) throws IOException {
+        expect(reader, JsonToken.START_ARRAY, raw);
+
+        Class<?> component = raw.getComponentType();
+        Object array = Array.newInstance(component, 8);
+        int len = 0;
+
+        while(!reader.nextToken().isEnd()) {
+            if(len == Array.getLength(array)) {
+                Object grown = Array.newInstance(component, len << 1);
+                System.arraycopy(array, 0, grown, 0, len);
+                array = grown;
+            }
+
+            if(component == int.class)
+                Array.setInt(array, len++, readInt(reader, component));
+            else if(component == long.class)
+                Array.setLong(array, len++, readLong(reader, component));
+            else if(component == double.class)
+                Array.setDouble(array, len++, readDouble(reader, component));
+            else
+                Array.set(array, len++, read(reader, component));
+        }
+
+        Object result = Array.newInstance(component, len);
+        System.arraycopy(array, 0, result, 0, len);
+        return result;
+    }
+
+    private Collection<Object> readCollection(JsonReader reader, Class<?> raw, Type elementType) throws IOException {
+        expect(reader, JsonToken.START_ARRAY, raw);
+
+        Collection<Object> collection = raw.isInterface()? (Set.class.isAssignableFrom(raw)? new LinkedHashSet<>(): new ArrayList<>()): (Collection<Object>) instantiate(raw);
+
+        while(!reader.nextToken().isEnd())
+            collection.add(read(reader, elementType));
+
+        return collection;
+    }
+
+    private Map<String, Object> readMap(JsonReader reader, Class<?> raw, Type valueType) throws IOException {
+        expect(reader, JsonToken.START_OBJECT, raw);
+
+        Map<String, Object> map = raw.isInterface()? new LinkedHashMap<>(): (Map<String, Object>) instantiate(raw);
+
+        while(reader.nextToken() == JsonToken.FIELD_NAME) {
+            String key = reader.getString();
+            reader.nextToken();
+            map.put(key, read(reader, valueType));
+        }
+
+        return map;
+    }
+
+    private static long readLong(JsonReader reader, Class<?> type) throws IOException {
+        if(reader.currentToken() == JsonToken.STRING) //@JsonAsString numbers come back as strings
+            return Long.parseLong(reader.getString());
+
+        if(!expect(reader, JsonToken.NUMBER, type).isInteger())
+            throw new IllegalArgumentException("Expected an integer for " + type.getName() + " but got a floating-point number");
+
+        return reader.getLong();
+    }
+
+    /**
+     * Narrowing is range checked, a plain cast would silently wrap a number that doesn't fit
+     */
+    private static long readLong(JsonReader reader, Class<?> type, long min, long max) throws IOException {
+        long value = readLong(reader, type);
+
+        if(value < min || value > max)
+            throw new IllegalArgumentException("Number " + value + " is out of range for " + type.getName());
+
+        return value;
+    }
+
+    private static int readInt(JsonReader reader, Class<?> type) throws IOException {
+        return (int) readLong(reader, type, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    private static float readFloat(JsonReader reader, Class<?> type) throws IOException {
+        double value = readDouble(reader, type);
+
+        if(Double.isFinite(value) && Float.isInfinite((float) value))
+            throw new IllegalArgumentException("Number " + value + " is out of range for " + type.getName());
+
+        return (float) value;
+    }
+
+    private static double readDouble(JsonReader reader, Class<?> type) throws IOException {
+        if(reader.currentToken() == JsonToken.STRING)
+            return Double.parseDouble(reader.getString());
+
+        return expect(reader, JsonToken.NUMBER, type).getDouble();
+    }
+
+    private static boolean readBoolean(JsonReader reader, Class<?> type) throws IOException {
+        if(reader.currentToken() == JsonToken.STRING)
+            return Boolean.parseBoolean(reader.getString());
+
+        return expect(reader, JsonToken.BOOLEAN, type).getBoolean();
+    }
+
+    private static char readChar(JsonReader reader, Class<?> type) throws IOException {
+        if(reader.currentToken() == JsonToken.NUMBER)
+            return (char) readLong(reader, type, Character.MIN_VALUE, Character.MAX_VALUE);
+
+        String str = expect(reader, JsonToken.STRING, type).getString();
+
+        if(str.length() != 1)
+            throw new IllegalArgumentException("Expected a single character for " + type.getName() + " but got '" + str + '\'');
+
+        return str.charAt(0);
+    }
+
+    private static JsonReader expect(JsonReader reader, JsonToken token, Type type) {
+        if(reader.currentToken() != token)
+            throw new IllegalArgumentException("Expected " + token + " for " + type.getTypeName() + " but got " + reader.currentToken());
+
+        return reader;
+    }
+
+    private static JsonReader expectScalar(JsonReader reader, Type type) {
+        if(!reader.currentToken().isScalar())
+            throw new IllegalArgumentException("Expected a scalar value for " + type.getTypeName() + " but got " + reader.currentToken());
+
+        return reader;
+    }
+
+    private <T> ClassBinding<T> binding(Class<T> type) {
+        ClassBinding<T> binding = (ClassBinding<T>) bindings.get(type);
+
+        if(binding == null) { //Not computeIfAbsent, building a binding can recurse back here for nested classes
+            binding = new ClassBinding<>(type);
+            ClassBinding<T> previous = (ClassBinding<T>) bindings.putIfAbsent(type, binding);
+
+            if(previous != null)
+                binding = previous;
+        }
+
+        return binding;
+    }
+
+    private static Object instantiate(Class<?> type) {
+        try {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Couldn't create an instance of " + type.getName() + ", a no argument constructor is required", e);
+        }
+    }
+
+    private static Class<?> rawType(Type type) {
+        if(type instanceof Class<?> c)
+            return c;
+        else if(type instanceof ParameterizedType p)
+            return (Class<?>) p.getRawType();
+        else if(type instanceof WildcardType w)
+            return rawType(w.getUpperBounds()[0]);
+        else
+            return Object.class;
+    }
+
+    private static Type typeArgument(Type type, int index) {
+        if(type instanceof ParameterizedType p && index < p.getActualTypeArguments().length)
+            return p.getActualTypeArguments()[index];
+
+        return Object.class;
+    }
+
+    private static Object defaultValue(Class<?> primitive) {
+        return primitive == boolean.class? Boolean.FALSE: primitive == char.class? (Object) '\0': Array.get(Array.newInstance(primitive, 1), 0);
+    }
+
+    private static final class ClassBinding<T> {
+        private final Class<T> type;
+        private final Constructor<T> constructor;
+        private final HashMap<String, FieldBinding> fields = new HashMap<>();
+
+        private ClassBinding(Class<T> type) {
+            this.type = type;
+
+            try {
+                this.constructor = type.getDeclaredConstructor();
+                this.constructor.setAccessible(true);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Couldn't bind json to " + type.getName() + ", a no argument constructor is required", e);
+            }
+
+            for(JsonDescription.FieldDescriptor<T> descriptor: new JsonDescription<>(type).getFieldDescriptors()) {
+                if(!Modifier.isStatic(descriptor.getField().getModifiers()))
+                    fields.put(descriptor.getPropertyName(), new FieldBinding(descriptor.getField()));
+            }
+        }
+
+        private T newInstance() {
+            try {
+                return constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Couldn't create an instance of " + type.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Primitive fields are read and set through the typed {@link Field} setters so the value is never boxed
+     */
+    private static final class FieldBinding {
+        private final Field field;
+        private final Class<?> type;
+        private final Type genericType;
+
+        private FieldBinding(Field field) {
+            this.field = field;
+            this.type = field.getType();
+            this.genericType = field.getGenericType();
+        }
+
+        private void read(ObjectDeserializer deserializer, JsonReader reader, Object target) throws IOException {
+            try {
+                if(type.isPrimitive()) {
+                    if(reader.currentToken() == JsonToken.NULL)
+                        return; //Leaves the field at whatever the constructor set
+
+                    if(type == int.class)
+                        field.setInt(target, readInt(reader, type));
+                    else if(type == long.class)
+                        field.setLong(target, readLong(reader, type));
+                    else if(type == double.class)
+                        field.setDouble(target, readDouble(reader, type));
+                    else if(type == boolean.class)
+                        field.setBoolean(target, readBoolean(reader, type));
+                    else if(type == float.class)
+                        field.setFloat(target, readFloat(reader, type));
+                    else if(type == short.class)
+                        field.setShort(target, (short) readLong(reader, type, Short.MIN_VALUE, Short.MAX_VALUE));
+                    else if(type == byte.class)
+                        field.setByte(target, (byte) readLong(reader, type, Byte.MIN_VALUE, Byte.MAX_VALUE));
+                    else
+                        field.setChar(target, readChar(reader, type));
+                } else {
+                    field.set(target, deserializer.read(reader, genericType));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Couldn't set field " + field.getName() + " of " + field.getDeclaringClass().getName(), e);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Couldn't bind field '" + field.getName() + "' of " + field.getDeclaringClass().getName() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
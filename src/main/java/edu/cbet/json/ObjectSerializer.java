@@ -2,8 +2,16 @@ package edu.cbet.json;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * The object responsible for actually serializing java objects
@@ -19,6 +27,7 @@ public class ObjectSerializer {
     }
 
     private static final String NULL_VALUE = "null";
+    private static final int WRITE_BUFFER_SIZE = 8192;
 
     private final HashMap<Class<?>, JsonSerializer<?>> serializers;
     private final HashMap<Class<?>, List<Modifier<?>>> modifiers;
@@ -61,12 +70,31 @@ public class ObjectSerializer {
         return this.serializeValue0(builder, value).toString();
     }
 
+    /**
+     * Writes the value as UTF-8 json, the stream isn't closed
+     */
+    public <T> void serializeValue(T value, @NotNull OutputStream outputStream) throws IOException {
+        writeUtf8(this.serializeValue0(new StringBuilder(), value), outputStream);
+        outputStream.flush();
+    }
+
+    /**
+     * Writes the value as a gzip compressed json document that {@link JsonParser#parseCompressed(java.io.InputStream)} can read back, the stream isn't closed
+     */
+    public <T> void serializeCompressed(T value, @NotNull OutputStream outputStream) throws IOException {
+        try(GZIPOutputStream gzip = Compression.deflate(outputStream)) {
+            writeUtf8(this.serializeValue0(new StringBuilder(), value), gzip);
+        }
+    }
+
     @NotNull
     public <T> StringBuilder serializeValue0(StringBuilder builder, T value) {
         if(value == null) {
             builder.append(NULL_VALUE);
         } else if(value instanceof CharSequence cs) {
             appendFixedString(builder, cs);
+        } else if(value instanceof NumericJsonArray array && array.isPrimitive()) {
+            array.appendTo(builder);
         } else if(value instanceof Collection<?>) {
             boolean notFirst = false;
             builder.append('[');
@@ -163,7 +191,7 @@ public class ObjectSerializer {
             JsonObject obj = value.getAsObject();
             builder.append('{');
             if(fList != null) {
-                for (Map.Entry<String, JsonValue> entry : obj.entrySet()) {
+                for (Map.Entry<String, JsonValue> entry : obj.entries()) {
                     boolean notFiltered = true;
 
                     for(Filter filter: fList)
@@ -179,7 +207,7 @@ public class ObjectSerializer {
                     }
                 }
             } else {
-                for (Map.Entry<String, JsonValue> entry : obj.entrySet()) {
+                for (Map.Entry<String, JsonValue> entry : obj.entries()) {
                     if (notFirst)
                         builder.append(',');
 
@@ -190,6 +218,8 @@ public class ObjectSerializer {
             }
 
             builder.append('}');
+        } else if(value instanceof NumericJsonArray array && array.isPrimitive()) {
+            array.appendTo(builder);
         } else if(value.isArray()) {
             boolean notFirst = false;
             builder.append('[');
@@ -204,6 +234,8 @@ public class ObjectSerializer {
             builder.append(']');
         } else if(value.isString()) {
             appendFixedString(builder, value.getAsString());
+        } else if(value instanceof JsonNumber number) {
+            number.appendTo(builder);
         } else if(value.isNumber()) {
             builder.append(value.getAsNumber());
         } else if(value.isBoolean()) {
@@ -232,6 +264,31 @@ public class ObjectSerializer {
         return serializer;
     }
 
+    /**
+     * Encodes a window of chars at a time so the json is never held as one big byte array on top of the builder
+     */
+    private static void writeUtf8(StringBuilder json, OutputStream outputStream) throws IOException {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        char[] window = new char[WRITE_BUFFER_SIZE];
+        ByteBuffer bytes = ByteBuffer.allocate(WRITE_BUFFER_SIZE * 3); //A char never takes more than 3 bytes, pairs take 4 for 2 chars
+        int len = json.length();
+
+        for(int from = 0; from < len;) {
+            int to = Math.min(from + window.length, len);
+
+            if(to < len && Character.isHighSurrogate(json.charAt(to - 1))) //Keeps pairs in the same window
+                to--;
+
+            json.getChars(from, to, window, 0);
+            encoder.encode(CharBuffer.wrap(window, 0, to - from), bytes, to == len);
+            outputStream.write(bytes.array(), 0, bytes.position());
+            bytes.clear();
+            from = to;
+        }
+    }
+
     private static void appendFixedString(StringBuilder stringBuilder, CharSequence str) {
         stringBuilder.ensureCapacity(stringBuilder.length() + str.length()+2);
 
@@ -0,0 +1,394 @@
+package edu.cbet.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * An immutable {@link JsonArray} stored in a 32-way trie with the last block of elements kept apart as a tail.
+ * {@link #with(int, JsonValue)} copies only the path to the changed element and {@link #plus(JsonValue)} usually only the tail,
+ * every other block is shared with the version it was made from. Elements are read in O(log32 n), which is at most 7 array hops.
+ * Every method of the {@link java.util.ArrayList} that would change it throws {@link UnsupportedOperationException}
+ * @see PersistentJsonObject
+ */
+public final class PersistentJsonArray extends JsonArray {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentJsonArray EMPTY = new PersistentJsonArray(0, BITS, new Object[WIDTH], new Object[0]);
+
+    private final int size;
+    private final int shift;
+    private final Object[] root;
+    private final Object[] tail;
+    private int hash;
+    private boolean hashIsZero;
+
+    private PersistentJsonArray(int size, int shift, Object[] root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    @NotNull
+    public static PersistentJsonArray empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return a persistent copy of the elements, returns the collection as is if it's already persistent
+     */
+    @NotNull
+    public static PersistentJsonArray copyOf(@NotNull Collection<? extends JsonValue> collection) {
+        if(collection instanceof PersistentJsonArray persistent)
+            return persistent;
+
+        PersistentJsonArray array = EMPTY;
+
+        for(JsonValue value: collection)
+            array = array.plus(value);
+
+        return array;
+    }
+
+    private int tailOffset() {
+        return size - tail.length;
+    }
+
+    private Object[] blockFor(int index) {
+        if(index >= tailOffset())
+            return tail;
+
+        Object[] node = root;
+
+        for(int level = shift; level > 0; level -= BITS)
+            node = (Object[]) node[(index >>> level) & MASK];
+
+        return node;
+    }
+
+    /**
+     * @return a version with the element at the index replaced, an index equal to the size appends like {@link #plus(JsonValue)}
+     */
+    @NotNull
+    public PersistentJsonArray with(int index, JsonValue value) {
+        if(index == size)
+            return plus(value);
+
+        Objects.checkIndex(index, size);
+        value = PersistentJsonObject.immutable(value);
+
+        if(index >= tailOffset()) {
+            Object[] copy = tail.clone();
+            copy[index & MASK] = value;
+
+            return new PersistentJsonArray(size, shift, root, copy);
+        }
+
+        return new PersistentJsonArray(size, shift, replace(shift, root, index, value), tail);
+    }
+
+    private static Object[] replace(int level, Object[] node, int index, JsonValue value) {
+        Object[] copy = node.clone();
+
+        if(level == 0) {
+            copy[index & MASK] = value;
+        } else {
+            int child = (index >>> level) & MASK;
+            copy[child] = replace(level - BITS, (Object[]) node[child], index, value);
+        }
+
+        return copy;
+    }
+
+    /**
+     * @return a version with the value appended
+     */
+    @NotNull
+    public PersistentJsonArray plus(JsonValue value) {
+        value = PersistentJsonObject.immutable(value);
+
+        if(tail.length < WIDTH) {
+            Object[] copy = Arrays.copyOf(tail, tail.length + 1);
+            copy[tail.length] = value;
+
+            return new PersistentJsonArray(size + 1, shift, root, copy);
+        }
+
+        //The tail is full, it moves into the trie and a new one starts
+        Object[] newRoot;
+        int newShift = shift;
+
+        if((size >>> BITS) > (1 << shift)) {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = path(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root);
+        }
+
+        return new PersistentJsonArray(size + 1, newShift, newRoot, new Object[] {value});
+    }
+
+    private Object[] pushTail(int level, Object[] parent) {
+        int child = ((size - 1) >>> level) & MASK;
+        Object[] copy = parent.clone();
+
+        if(level == BITS)
+            copy[child] = tail;
+        else
+            copy[child] = parent[child] == null? path(level - BITS, tail): pushTail(level - BITS, (Object[]) parent[child]);
+
+        return copy;
+    }
+
+    private static Object[] path(int level, Object[] block) {
+        if(level == 0)
+            return block;
+
+        Object[] node = new Object[WIDTH];
+        node[0] = path(level - BITS, block);
+
+        return node;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public JsonValue get(int index) {
+        Objects.checkIndex(index, size);
+        return (JsonValue) blockFor(index)[index & MASK];
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) != -1;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return new View().indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return new View().lastIndexOf(o);
+    }
+
+    @Override
+    public boolean containsAll(@NotNull Collection<?> c) {
+        return new View().containsAll(c);
+    }
+
+    @NotNull
+    @Override
+    public Object[] toArray() {
+        return new View().toArray();
+    }
+
+    @NotNull
+    @Override
+    public <T> T[] toArray(@NotNull T[] a) {
+        return new View().toArray(a);
+    }
+
+    @Override
+    public <T> T[] toArray(IntFunction<T[]> generator) {
+        return new View().toArray(generator);
+    }
+
+    @NotNull
+    @Override
+    public Iterator<JsonValue> iterator() {
+        return new View().iterator();
+    }
+
+    @NotNull
+    @Override
+    public ListIterator<JsonValue> listIterator() {
+        return new View().listIterator();
+    }
+
+    @NotNull
+    @Override
+    public ListIterator<JsonValue> listIterator(int index) {
+        return new View().listIterator(index);
+    }
+
+    @NotNull
+    @Override
+    public List<JsonValue> subList(int fromIndex, int toIndex) {
+        return new View().subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public Spliterator<JsonValue> spliterator() {
+        return new View().spliterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super JsonValue> action) {
+        for(int x = 0; x < size; x += WIDTH) { //A block at a time instead of walking down the trie for every element
+            Object[] block = blockFor(x);
+
+            for(Object value: block)
+                action.accept((JsonValue) value);
+        }
+    }
+
+    /**
+     * Cached for good the first time since the elements can't change, racing threads just compute the same value
+     */
+    @Override
+    public int hashCode() {
+        int hash = this.hash;
+
+        if(hash == 0 && !hashIsZero) {
+            hash = structuralHash(null);
+
+            if(hash == 0)
+                hashIsZero = true;
+            else
+                this.hash = hash;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Needs no group, the elements can't change
+     */
+    @Override
+    int groupHash(StructuralHash parent) {
+        return hashCode();
+    }
+
+    @Override
+    boolean isHashCached() {
+        return hash != 0 || hashIsZero;
+    }
+
+    @Override
+    int structuralHash(StructuralHash group) {
+        return new View().hashCode();
+    }
+
+    @Override
+    public Object clone() {
+        return this;
+    }
+
+    @Override
+    public String getType() {
+        return JsonArray.class.getName();
+    }
+
+    @Override
+    public void trimToSize() {}
+
+    @Override
+    public void ensureCapacity(int minCapacity) {}
+
+    @Override
+    public boolean add(JsonValue value) {
+        throw new UnsupportedOperationException("PersistentJsonArray is immutable, use plus(JsonValue) instead");
+    }
+
+    @Override
+    public void add(int index, JsonValue element) {
+        throw new UnsupportedOperationException("PersistentJsonArray is immutable");
+    }
+
+    @Override
+    public JsonValue set(int index, JsonValue value) {
+        throw new UnsupportedOperationException("PersistentJsonArray is immutable, use with(int, JsonValue) instead");
+    }
+
+    @Override
+    public JsonValue remove(int index) {
+        throw new UnsupportedOperationException("PersistentJsonArray is immutable");
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("PersistentJsonArray is immutable");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("PersistentJsonArray is immutable, use empty() instead");
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends JsonValue> c) {
+        throw new UnsupportedOperationException("PersistentJsonArray is immutable");
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends JsonValue> c) {
+        throw new UnsupportedOperationException("PersistentJsonArray is immutable");
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        throw new UnsupportedOperationException("PersistentJsonArray is immutable");
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException("PersistentJsonArray is immutable");
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super JsonValue> filter) {
+        throw new UnsupportedOperationException("PersistentJsonArray is immutable");
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<JsonValue> operator) {
+        throw new UnsupportedOperationException("PersistentJsonArray is immutable");
+    }
+
+    @Override
+    public void sort(Comparator<? super JsonValue> c) {
+        throw new UnsupportedOperationException("PersistentJsonArray is immutable");
+    }
+
+    /**
+     * A read-only list over {@link #get(int)}, the inherited mutators of {@link AbstractList} already throw
+     */
+    private final class View extends AbstractList<JsonValue> implements RandomAccess {
+        @Override
+        public JsonValue get(int index) {
+            return PersistentJsonArray.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,602 @@
+package edu.cbet.json;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * An immutable {@link JsonObject} stored in a hash array mapped trie. {@link #with(String, JsonValue)} and {@link #without(String)} return a new
+ * version that copies only the path to the changed member and shares everything else with this one, so changing a copy is O(log n) instead of O(n).
+ * Nested objects and arrays are converted to persistent ones as they are added, which makes an instance safe to share between threads without locking.
+ * Every method of the {@link java.util.HashMap} that would change it throws {@link UnsupportedOperationException}
+ * @see PersistentJsonArray
+ */
+public final class PersistentJsonObject extends JsonObject {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentJsonObject EMPTY = new PersistentJsonObject(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+    private int hash;
+    private boolean hashIsZero;
+
+    private PersistentJsonObject(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @NotNull
+    public static PersistentJsonObject empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return a persistent copy of the map, returns it as is if it's already persistent
+     */
+    @NotNull
+    public static PersistentJsonObject copyOf(@NotNull Map<String, ? extends JsonValue> map) {
+        if(map instanceof PersistentJsonObject persistent)
+            return persistent;
+
+        PersistentJsonObject obj = EMPTY;
+
+        for(Entry<String, ? extends JsonValue> entry: map.entrySet())
+            obj = obj.with(entry.getKey(), entry.getValue());
+
+        return obj;
+    }
+
+    /**
+     * Objects and arrays that aren't persistent yet are deep copied, every other json value is already immutable
+     */
+    static JsonValue immutable(JsonValue value) {
+        if(value == null)
+            return JsonNull.NULL;
+        else if(value instanceof JsonObject obj)
+            return copyOf(obj);
+        else if(value instanceof JsonArray array)
+            return PersistentJsonArray.copyOf(array);
+
+        return value;
+    }
+
+    /**
+     * @return a version with the member set to the value, or this one if it already was
+     */
+    @NotNull
+    public PersistentJsonObject with(@NotNull String name, JsonValue value) {
+        boolean[] added = new boolean[1];
+        Node node = root.put(Objects.requireNonNull(name), name.hashCode(), immutable(value), 0, added);
+
+        return node == root? this: new PersistentJsonObject(node, added[0]? size + 1: size);
+    }
+
+    /**
+     * @return a version without the member, or this one if there was no such member
+     */
+    @NotNull
+    public PersistentJsonObject without(@NotNull String name) {
+        Node node = root.remove(name, name.hashCode(), 0);
+
+        if(node == root)
+            return this;
+
+        return node == null? EMPTY: new PersistentJsonObject(node, size - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public JsonValue get(Object key) {
+        return key instanceof String name? root.find(name, name.hashCode(), 0): null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public JsonValue getOrDefault(Object key, JsonValue defaultValue) {
+        JsonValue value = get(key);
+        return value == null? defaultValue: value;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for(JsonValue member: values()) {
+            if(member.equals(value))
+                return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super JsonValue> action) {
+        root.forEach(action);
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<String, JsonValue>> entrySet() {
+        return new AbstractSet<>() {
+            @NotNull
+            @Override
+            public Iterator<Entry<String, JsonValue>> iterator() {
+                return new MemberIterator<>() {
+                    @Override
+                    Entry<String, JsonValue> element(String name, JsonValue value) {
+                        return new AbstractMap.SimpleImmutableEntry<>(name, value);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Entry<?, ?> entry && entry.getValue() != null && entry.getValue().equals(get(entry.getKey()));
+            }
+        };
+    }
+
+    @Override
+    Set<Entry<String, JsonValue>> entries() {
+        return entrySet();
+    }
+
+    @NotNull
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<>() {
+            @NotNull
+            @Override
+            public Iterator<String> iterator() {
+                return new MemberIterator<>() {
+                    @Override
+                    String element(String name, JsonValue value) {
+                        return name;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public Collection<JsonValue> values() {
+        return new AbstractCollection<>() {
+            @NotNull
+            @Override
+            public Iterator<JsonValue> iterator() {
+                return new MemberIterator<>() {
+                    @Override
+                    JsonValue element(String name, JsonValue value) {
+                        return value;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Cached for good the first time since the members can't change, racing threads just compute the same value
+     */
+    @Override
+    public int hashCode() {
+        int hash = this.hash;
+
+        if(hash == 0 && !hashIsZero) {
+            hash = structuralHash(null);
+
+            if(hash == 0)
+                hashIsZero = true;
+            else
+                this.hash = hash;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Needs no group, the members can't change
+     */
+    @Override
+    int groupHash(StructuralHash parent) {
+        return hashCode();
+    }
+
+    @Override
+    boolean isHashCached() {
+        return hash != 0 || hashIsZero;
+    }
+
+    @Override
+    public Object clone() {
+        return this;
+    }
+
+    @Override
+    public String getType() {
+        return "JsonObject";
+    }
+
+    @Override
+    public JsonValue put(String key, JsonValue value) {
+        throw new UnsupportedOperationException("PersistentJsonObject is immutable, use with(String, JsonValue) instead");
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends JsonValue> m) {
+        throw new UnsupportedOperationException("PersistentJsonObject is immutable, use with(String, JsonValue) instead");
+    }
+
+    @Override
+    public JsonValue remove(Object key) {
+        throw new UnsupportedOperationException("PersistentJsonObject is immutable, use without(String) instead");
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        throw new UnsupportedOperationException("PersistentJsonObject is immutable, use without(String) instead");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("PersistentJsonObject is immutable, use empty() instead");
+    }
+
+    @Override
+    public JsonValue putIfAbsent(String key, JsonValue value) {
+        throw new UnsupportedOperationException("PersistentJsonObject is immutable");
+    }
+
+    @Override
+    public boolean replace(String key, JsonValue oldValue, JsonValue newValue) {
+        throw new UnsupportedOperationException("PersistentJsonObject is immutable");
+    }
+
+    @Override
+    public JsonValue replace(String key, JsonValue value) {
+        throw new UnsupportedOperationException("PersistentJsonObject is immutable");
+    }
+
+    @Override
+    public JsonValue computeIfAbsent(String key, @NotNull Function<? super String, ? extends JsonValue> mappingFunction) {
+        throw new UnsupportedOperationException("PersistentJsonObject is immutable");
+    }
+
+    @Override
+    public JsonValue computeIfPresent(String key, @NotNull BiFunction<? super String, ? super JsonValue, ? extends JsonValue> remappingFunction) {
+        throw new UnsupportedOperationException("PersistentJsonObject is immutable");
+    }
+
+    @Override
+    public JsonValue compute(String key, @NotNull BiFunction<? super String, ? super JsonValue, ? extends JsonValue> remappingFunction) {
+        throw new UnsupportedOperationException("PersistentJsonObject is immutable");
+    }
+
+    @Override
+    public JsonValue merge(String key, @NotNull JsonValue value, @NotNull BiFunction<? super JsonValue, ? super JsonValue, ? extends JsonValue> remappingFunction) {
+        throw new UnsupportedOperationException("PersistentJsonObject is immutable");
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super JsonValue, ? extends JsonValue> function) {
+        throw new UnsupportedOperationException("PersistentJsonObject is immutable");
+    }
+
+    /**
+     * Both kinds of node keep their members as name, value pairs in one array. In a {@link BitmapNode} a null name means the value is a child node
+     */
+    private abstract static class Node {
+        final Object[] array;
+
+        Node(Object[] array) {
+            this.array = array;
+        }
+
+        abstract JsonValue find(String name, int hash, int shift);
+
+        /**
+         * @return this node if nothing changed, otherwise a copy with the member set
+         */
+        abstract Node put(String name, int hash, JsonValue value, int shift, boolean[] added);
+
+        /**
+         * @return this node if nothing changed, otherwise a copy without the member or null if that leaves it empty
+         */
+        abstract Node remove(String name, int hash, int shift);
+
+        void forEach(BiConsumer<? super String, ? super JsonValue> action) {
+            for(int x = 0; x < array.length; x += 2) {
+                if(array[x] == null)
+                    ((Node) array[x + 1]).forEach(action);
+                else
+                    action.accept((String) array[x], (JsonValue) array[x + 1]);
+            }
+        }
+    }
+
+    private static final class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+
+        private BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1)) * 2;
+        }
+
+        @Override
+        JsonValue find(String name, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+
+            if((bitmap & bit) == 0)
+                return null;
+
+            int index = index(bit);
+            Object key = array[index];
+
+            if(key == null)
+                return ((Node) array[index + 1]).find(name, hash, shift + BITS);
+
+            return name.equals(key)? (JsonValue) array[index + 1]: null;
+        }
+
+        @Override
+        Node put(String name, int hash, JsonValue value, int shift, boolean[] added) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int index = index(bit);
+
+            if((bitmap & bit) == 0) {
+                Object[] copy = new Object[array.length + 2];
+                System.arraycopy(array, 0, copy, 0, index);
+                copy[index] = name;
+                copy[index + 1] = value;
+                System.arraycopy(array, index, copy, index + 2, array.length - index);
+
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, copy);
+            }
+
+            Object key = array[index];
+            Object current = array[index + 1];
+
+            if(key == null) {
+                Node child = ((Node) current).put(name, hash, value, shift + BITS, added);
+                return child == current? this: new BitmapNode(bitmap, set(index + 1, child));
+            } else if(name.equals(key)) {
+                return current == value? this: new BitmapNode(bitmap, set(index + 1, value));
+            }
+
+            //Two members in the same slot, push both down a level
+            added[0] = true;
+            Node child = pair((String) key, (JsonValue) current, name, hash, value, shift + BITS);
+            Object[] copy = set(index + 1, child);
+            copy[index] = null;
+
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private static Node pair(String name, JsonValue value, String otherName, int otherHash, JsonValue otherValue, int shift) {
+            int hash = name.hashCode();
+
+            if(hash == otherHash)
+                return new CollisionNode(hash, new Object[] {name, value, otherName, otherValue});
+
+            boolean[] added = new boolean[1];
+            return EMPTY.put(name, hash, value, shift, added).put(otherName, otherHash, otherValue, shift, added);
+        }
+
+        @Override
+        Node remove(String name, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+
+            if((bitmap & bit) == 0)
+                return this;
+
+            int index = index(bit);
+            Object key = array[index];
+
+            if(key == null) {
+                Node child = ((Node) array[index + 1]).remove(name, hash, shift + BITS);
+
+                if(child == array[index + 1])
+                    return this;
+                else if(child != null)
+                    return new BitmapNode(bitmap, set(index + 1, child));
+            } else if(!name.equals(key)) {
+                return this;
+            }
+
+            if(bitmap == bit)
+                return null;
+
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, index);
+            System.arraycopy(array, index + 2, copy, index, array.length - index - 2);
+
+            return new BitmapNode(bitmap ^ bit, copy);
+        }
+
+        private Object[] set(int index, Object value) {
+            Object[] copy = array.clone();
+            copy[index] = value;
+            return copy;
+        }
+    }
+
+    /**
+     * Members whose names have the exact same hash, searched linearly
+     */
+    private static final class CollisionNode extends Node {
+        private final int hash;
+
+        private CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        private int indexOf(String name) {
+            for(int x = 0; x < array.length; x += 2) {
+                if(name.equals(array[x]))
+                    return x;
+            }
+
+            return -1;
+        }
+
+        @Override
+        JsonValue find(String name, int hash, int shift) {
+            int index = indexOf(name);
+            return index == -1? null: (JsonValue) array[index + 1];
+        }
+
+        @Override
+        Node put(String name, int hash, JsonValue value, int shift, boolean[] added) {
+            if(hash != this.hash) { //Nest this node under a bitmap node that can tell the two hashes apart
+                Node parent = new BitmapNode(1 << ((this.hash >>> shift) & MASK), new Object[] {null, this});
+                return parent.put(name, hash, value, shift, added);
+            }
+
+            int index = indexOf(name);
+
+            if(index != -1) {
+                if(array[index + 1] == value)
+                    return this;
+
+                Object[] copy = array.clone();
+                copy[index + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+
+            Object[] copy = new Object[array.length + 2];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            copy[array.length] = name;
+            copy[array.length + 1] = value;
+
+            added[0] = true;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Node remove(String name, int hash, int shift) {
+            int index = indexOf(name);
+
+            if(index == -1)
+                return this;
+            else if(array.length == 2)
+                return null;
+
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, index);
+            System.arraycopy(array, index + 2, copy, index, array.length - index - 2);
+
+            return new CollisionNode(hash, copy);
+        }
+    }
+
+    /**
+     * Walks the trie depth first, a hash has at most 7 levels of bitmap nodes with a collision node under them
+     */
+    private abstract class MemberIterator<T> implements Iterator<T> {
+        private final Object[][] arrays = new Object[8][];
+        private final int[] positions = new int[8];
+        private int depth;
+        private String nextName;
+        private JsonValue nextValue;
+
+        MemberIterator() {
+            arrays[0] = root.array;
+            advance();
+        }
+
+        abstract T element(String name, JsonValue value);
+
+        private void advance() {
+            nextName = null;
+
+            while(depth >= 0) {
+                Object[] array = arrays[depth];
+                int position = positions[depth];
+
+                if(position >= array.length) {
+                    depth--;
+                    continue;
+                }
+
+                positions[depth] += 2;
+
+                if(array[position] == null) {
+                    depth++;
+                    arrays[depth] = ((Node) array[position + 1]).array;
+                    positions[depth] = 0;
+                } else {
+                    nextName = (String) array[position];
+                    nextValue = (JsonValue) array[position + 1];
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextName != null;
+        }
+
+        @Override
+        public T next() {
+            if(nextName == null)
+                throw new NoSuchElementException();
+
+            T element = element(nextName, nextValue);
+            advance();
+
+            return element;
+        }
+    }
+}
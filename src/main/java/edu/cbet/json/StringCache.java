@@ -0,0 +1,121 @@
+package edu.cbet.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed size cache from raw UTF-8 bytes to the decoded String, used by {@link JsonParser} so that field names repeated across
+ * a document (or across documents) resolve to the same String instance without being decoded again.
+ * Each slot holds a single entry and a colliding string simply replaces it. Entries are immutable and published through a plain
+ * array store, so one cache can be shared between parsers on different threads, at worst a racing lookup misses and decodes
+ */
+public class StringCache {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_LENGTH = 64;
+
+    private final Entry[] entries;
+    private final int mask;
+    private final int maxLength;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public StringCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two
+     * @param maxLength strings with more bytes than this are always decoded and never cached
+     */
+    public StringCache(int capacity, int maxLength) {
+        int size = tableSize(capacity);
+
+        this.entries = new Entry[size];
+        this.mask = size - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @return the String for {@code bytes[from, from + len)}, the same instance as previous calls with equal bytes when it's still cached
+     */
+    public String get(byte[] bytes, int from, int len) {
+        if(len == 0)
+            return "";
+
+        if(len > maxLength) {
+            misses.increment();
+            return new String(bytes, from, len, StandardCharsets.UTF_8);
+        }
+
+        int hash = hash(bytes, from, len);
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        Entry entry = entries[slot];
+
+        if(entry != null && entry.hash == hash && Arrays.equals(entry.bytes, 0, entry.bytes.length, bytes, from, from + len)) {
+            hits.increment();
+            return entry.value;
+        }
+
+        misses.increment();
+        String value = new String(bytes, from, len, StandardCharsets.UTF_8);
+        entries[slot] = new Entry(Arrays.copyOfRange(bytes, from, from + len), hash, value);
+
+        return value;
+    }
+
+    static int tableSize(int capacity) {
+        if(capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+
+        int size = Integer.highestOneBit(Math.min(capacity, 1 << 30));
+        if(size < capacity)
+            size <<= 1;
+
+        return size;
+    }
+
+    static int hash(byte[] bytes, int from, int len) {
+        int hash = 0;
+        for(int x = from; x < from + len; x++)
+            hash = 31 * hash + bytes[x];
+
+        return hash;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the fraction of lookups answered from the cache, 0 if there haven't been any
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+
+        return total == 0? 0: (double) hits / total;
+    }
+
+    public void clear() {
+        Arrays.fill(entries, null);
+        hits.reset();
+        misses.reset();
+    }
+
+    private static final class Entry {
+        private final byte[] bytes;
+        private final int hash;
+        private final String value;
+
+        private Entry(byte[] bytes, int hash, String value) {
+            this.bytes = bytes;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+}
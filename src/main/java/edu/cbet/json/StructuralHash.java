@@ -0,0 +1,68 @@
+package edu.cbet.json;
+
+/**
+ * The version cached {@link JsonObject} and {@link JsonArray} hashes are checked against. Every container that has been hashed belongs to a group,
+ * the containers hashed as part of it join the group of the one being hashed, so a tree that has been hashed shares a single version.
+ * A cached hash is only used while its group is still at the version it was computed in, and any change to a container that has been hashed
+ * moves its group forward. That invalidates the hash of the container and of every container holding it, without the containers needing links back
+ * to their parents, and without touching the hashes of any other tree.
+ * A container that was never hashed can't be part of a cached hash, so building a tree, like the parsers do, never touches a group
+ */
+final class StructuralHash {
+    private static final Object MERGE_LOCK = new Object(); //Only taken when a container that was hashed on its own ends up in another tree
+
+    private volatile StructuralHash parent; //Null for the group itself, set on the groups merged into it
+    private volatile long version = 1;
+
+    private StructuralHash root() {
+        StructuralHash root = this;
+
+        for(StructuralHash next = parent; next != null; next = next.parent)
+            root = next;
+
+        if(parent != null && parent != root) //Shortens the walk for next time, always pointing at an ancestor so racing walks are harmless
+            parent = root;
+
+        return root;
+    }
+
+    long version() {
+        return root().version;
+    }
+
+    void advance() {
+        StructuralHash root = root();
+        root.version++; //Changing a tree isn't thread safe to begin with
+    }
+
+    /**
+     * The merged group takes the higher of the two versions, so the hashes that were cached in either stay valid
+     * and no version a hash was cached at can come around again
+     */
+    void merge(StructuralHash other) {
+        if(root() == other.root())
+            return;
+
+        synchronized(MERGE_LOCK) { //Two threads merging the same groups the opposite way round would otherwise link them into a cycle
+            StructuralHash root = root();
+            StructuralHash merged = other.root();
+
+            if(root != merged) {
+                root.version = Math.max(root.version, merged.version);
+                merged.parent = root;
+            }
+        }
+    }
+
+    /**
+     * Hashes a value nested in a container of the group, containers that have to be hashed join it
+     */
+    static int hash(JsonValue value, StructuralHash group) {
+        if(value instanceof JsonArray array)
+            return array.groupHash(group);
+        else if(value instanceof JsonObject object)
+            return object.groupHash(group);
+
+        return value.hashCode();
+    }
+}
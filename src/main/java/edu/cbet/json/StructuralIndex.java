@@ -0,0 +1,111 @@
+package edu.cbet.json;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A stage-1 index over the current window of input, the bytes are classified a chunk at a time by {@link VectorByteClassifier}
+ * into bitmasks of quotes/backslashes, whitespace and non-ASCII bytes so the parser can jump over string contents and whitespace instead of looking at every byte.
+ * Only available when the jdk.incubator.vector module is resolved (e.g. --add-modules jdk.incubator.vector), see {@link #isAvailable()}
+ */
+final class StructuralIndex {
+    private static final int CHUNK_WORDS = 64;
+    private static final int CHUNK_SIZE = CHUNK_WORDS * 64;
+    private static final boolean AVAILABLE = probe();
+
+    private final long[] quotes = new long[CHUNK_WORDS];
+    private final long[] blanks = new long[CHUNK_WORDS];
+    private final long[] high = new long[CHUNK_WORDS];
+    private ByteBuffer buffer;
+    private int len;
+    private int chunkStart;
+    private int chunkEnd;
+    private boolean runAscii;
+
+    private static boolean probe() {
+        try {
+            VectorByteClassifier.classify(new byte[1], 0, 1, new long[1], new long[1], new long[1]);
+            return true;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    void reset(ByteBuffer buffer, int len) {
+        this.buffer = buffer;
+        this.len = len;
+        this.chunkStart = 0;
+        this.chunkEnd = 0;
+    }
+
+    /**
+     * @return the index of the first quote or backslash at or after from, or the window length if there isn't one.
+     * Whether the bytes skipped over were all ASCII is available from {@link #isRunAscii()} afterwards
+     */
+    int nextQuoteOrEscape(int from) {
+        return next(from, quotes, false);
+    }
+
+    /**
+     * @return the index of the first byte at or after from that isn't whitespace, or the window length if there isn't one
+     */
+    int nextNonWhitespace(int from) {
+        return next(from, blanks, true);
+    }
+
+    /**
+     * @return true if every byte the last {@link #nextQuoteOrEscape(int)} or {@link #nextNonWhitespace(int)} went past was ASCII
+     */
+    boolean isRunAscii() {
+        return runAscii;
+    }
+
+    private int next(int from, long[] masks, boolean invert) {
+        long nonAscii = 0;
+
+        while(from < len) {
+            if(from < chunkStart || from >= chunkEnd)
+                index(from);
+
+            int rel = from - chunkStart;
+            int word = rel >>> 6;
+            int words = (chunkEnd - chunkStart + 63) >>> 6;
+            long range = -1L << (rel & 63);
+            long bits = (invert? ~masks[word]: masks[word]) & range;
+
+            while(true) {
+                if(bits != 0) {
+                    runAscii = (nonAscii | high[word] & range & (Long.lowestOneBit(bits) - 1)) == 0;
+                    return Math.min(chunkStart + (word << 6) + Long.numberOfTrailingZeros(bits), len);
+                }
+
+                nonAscii |= high[word] & range;
+                range = -1L;
+
+                if(++word == words)
+                    break;
+
+                bits = invert? ~masks[word]: masks[word];
+            }
+
+            from = chunkEnd;
+        }
+
+        runAscii = nonAscii == 0;
+        return len;
+    }
+
+    private void index(int from) {
+        chunkStart = from;
+        chunkEnd = Math.min(from + CHUNK_SIZE, len);
+        int n = chunkEnd - chunkStart;
+
+        if(buffer.hasArray())
+            VectorByteClassifier.classify(buffer.array(), buffer.arrayOffset() + chunkStart, n, quotes, blanks, high);
+        else
+            VectorByteClassifier.classify(buffer, chunkStart, n, quotes, blanks, high);
+    }
+}
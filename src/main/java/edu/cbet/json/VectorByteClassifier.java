@@ -0,0 +1,84 @@
+package edu.cbet.json;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * The only class that touches the incubating Vector API, it is loaded through {@link StructuralIndex} so that when
+ * jdk.incubator.vector isn't resolved the parser falls back to its scalar loop instead of failing
+ */
+final class VectorByteClassifier {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private VectorByteClassifier() {}
+
+    /**
+     * Sets bit i of quotes when byte i is a quote or backslash, bit i of blanks when it is skipped as whitespace by the parser
+     * and bit i of high when it is over 0x7F, so part of a multi-byte UTF-8 sequence
+     */
+    static void classify(byte[] bytes, int offset, int len, long[] quotes, long[] blanks, long[] high) {
+        int words = (len + 63) >>> 6;
+        Arrays.fill(quotes, 0, words, 0);
+        Arrays.fill(blanks, 0, words, 0);
+        Arrays.fill(high, 0, words, 0);
+
+        int lanes = SPECIES.length();
+        int bound = SPECIES.loopBound(len);
+        int x = 0;
+
+        for(; x < bound; x += lanes)
+            classify(ByteVector.fromArray(SPECIES, bytes, offset + x), x, quotes, blanks, high);
+
+        for(; x < len; x++)
+            classify(bytes[offset + x], x, quotes, blanks, high);
+    }
+
+    /**
+     * Same as {@link #classify(byte[], int, int, long[], long[], long[])} but loads straight from a direct or mapped buffer instead of copying it to the heap first
+     */
+    static void classify(ByteBuffer buffer, int offset, int len, long[] quotes, long[] blanks, long[] high) {
+        int words = (len + 63) >>> 6;
+        Arrays.fill(quotes, 0, words, 0);
+        Arrays.fill(blanks, 0, words, 0);
+        Arrays.fill(high, 0, words, 0);
+
+        int lanes = SPECIES.length();
+        int bound = SPECIES.loopBound(len);
+        int x = 0;
+
+        for(; x < bound; x += lanes)
+            classify(ByteVector.fromByteBuffer(SPECIES, buffer, offset + x, ByteOrder.nativeOrder()), x, quotes, blanks, high);
+
+        for(; x < len; x++)
+            classify(buffer.get(offset + x), x, quotes, blanks, high);
+    }
+
+    private static void classify(ByteVector v, int x, long[] quotes, long[] blanks, long[] high) {
+        long q = v.compare(VectorOperators.EQ, (byte) '\"')
+                .or(v.compare(VectorOperators.EQ, (byte) '\\'))
+                .toLong();
+        long w = v.compare(VectorOperators.GE, (byte) 9).and(v.compare(VectorOperators.LE, (byte) 13))
+                .or(v.compare(VectorOperators.GE, (byte) 28).and(v.compare(VectorOperators.LE, (byte) 32)))
+                .or(v.compare(VectorOperators.EQ, (byte) 0))
+                .toLong();
+        long h = v.compare(VectorOperators.LT, (byte) 0).toLong();
+
+        quotes[x >>> 6] |= q << (x & 63);
+        blanks[x >>> 6] |= w << (x & 63);
+        high[x >>> 6] |= h << (x & 63);
+    }
+
+    private static void classify(byte b, int x, long[] quotes, long[] blanks, long[] high) {
+        if(b == '\"' || b == '\\')
+            quotes[x >>> 6] |= 1L << x;
+        else if(b == 0 || Character.isWhitespace(b))
+            blanks[x >>> 6] |= 1L << x;
+        else if(b < 0)
+            high[x >>> 6] |= 1L << x;
+    }
+}
@@ -3,6 +3,7 @@
  */
 module ObjectiveJSON {
     requires org.jetbrains.annotations;
+    requires static jdk.incubator.vector;
     exports edu.cbet.json;
     exports edu.cbet.json.annotations;
 }
\ No newline at end of file
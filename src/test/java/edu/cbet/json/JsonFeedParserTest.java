@@ -0,0 +1,91 @@
+package edu.cbet.json;
+
+import org.junit.jupiter.api.Test;
+import test.util.ExceptionTest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JsonFeedParserTest {
+
+    @Test
+    void testSplitAnywhere() {
+        String json = "{\"na\\u00e9me\": \"a\\\"b\\\\c\\ud83d\\ude00\\/\", \"n\": [-12.5e1, 0, true, null, {}, []], \"lone\": \"\\ud83dx\"}";
+        JsonValue expected = new JsonParser().parseJson(json);
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+        for(int split = 0; split <= bytes.length; split++) {
+            JsonFeedParser parser = new JsonFeedParser();
+            parser.feed(bytes, 0, split);
+            parser.feed(ByteBuffer.wrap(bytes, split, bytes.length - split));
+            parser.end();
+
+            assertEquals(expected, parser.poll());
+            assertNull(parser.poll());
+        }
+
+        JsonFeedParser parser = new JsonFeedParser();
+
+        for(byte b: bytes)
+            parser.feed(new byte[] {b});
+
+        assertEquals(expected, parser.poll());
+    }
+
+    @Test
+    void testMultipleValues() {
+        List<JsonValue> values = new ArrayList<>();
+        JsonFeedParser parser = new JsonFeedParser(values::add);
+
+        parser.feed("[1]{\"a\":\"b\"} 12".getBytes(StandardCharsets.UTF_8));
+        assertEquals(List.of(JsonArray.of(1), JsonObject.of("a", "b")), values);
+
+        parser.feed("3 \"x\"\n".getBytes(StandardCharsets.UTF_8));
+        parser.end();
+        assertEquals(List.of(JsonArray.of(1), JsonObject.of("a", "b"), JsonNumber.valueOf(123), JsonString.valueOf("x")), values);
+    }
+
+    @Test
+    void testErrors() {
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> {
+            JsonFeedParser parser = new JsonFeedParser();
+            parser.feed("[1, ".getBytes(StandardCharsets.UTF_8));
+            parser.feed("2 3]".getBytes(StandardCharsets.UTF_8));
+        }, "Expected ',' or ']' at index 6, json preview '2 3]'");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> {
+            JsonFeedParser parser = new JsonFeedParser();
+            parser.feed("{\"a\": [1".getBytes(StandardCharsets.UTF_8));
+            parser.end();
+        }, "Unclosed objects and/or arrays in json");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> new JsonFeedParser().feed("[\"\\u12x\"]".getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    @Test
+    void testLimits() {
+        JsonFeedParser parser = new JsonFeedParser();
+        parser.setLimits(JsonLimits.NONE.withMaxDepth(2).withMaxStringLength(8).withMaxArrayElements(3).withMaxDocumentSize(64));
+
+        parser.feed("[[1, 2], \"12345678\"]".getBytes(StandardCharsets.UTF_8));
+        parser.end();
+        assertEquals(JsonArray.of(JsonArray.of(1, 2), "12345678"), parser.poll());
+
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> feed(parser, "[[[]]]"), "Json is nested deeper than the limit of 2 at index 2, json preview '[[[]]]'");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> feed(parser, "[\"1234", "56789\"]"), "Json string or value is longer than the limit of 8 bytes");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> feed(parser, "[1, 2, 3, 4]"), "Array has more elements than the limit of 3");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> feed(parser, "[" + " ".repeat(40), " ".repeat(40) + "]"), "Json is larger than the limit of 64 bytes");
+    }
+
+    private static void feed(JsonFeedParser parser, String... fragments) {
+        parser.reset();
+
+        for(String fragment: fragments)
+            parser.feed(fragment.getBytes(StandardCharsets.UTF_8));
+
+        parser.end();
+    }
+}
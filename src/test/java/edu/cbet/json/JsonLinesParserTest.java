@@ -0,0 +1,104 @@
+package edu.cbet.json;
+
+import org.junit.jupiter.api.Test;
+import test.util.ExceptionTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonLinesParserTest {
+
+    private static ByteArrayInputStream input(String lines) {
+        return new ByteArrayInputStream(lines.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testParse() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        JsonLinesParser parser = new JsonLinesParser(pool, new JsonParserPool(), 16); //Small chunks so lines get split across reads
+        StringBuilder lines = new StringBuilder();
+        List<JsonValue> expected = new ArrayList<>();
+
+        for(int x = 0; x < 100; x++) {
+            lines.append("{\"id\": ").append(x).append(", \"text\": \"").append("x".repeat(x % 40)).append("\"}").append(x % 3 == 0? "\r\n": "\n");
+            expected.add(JsonObject.of("id", x, "text", "x".repeat(x % 40)));
+
+            if(x % 10 == 0)
+                lines.append("  \n");
+        }
+
+        assertEquals(expected, parser.parseAll(input(lines.toString())));
+        assertEquals(List.of(JsonArray.of(1)), parser.parseAll(input("[1]")));
+        assertEquals(List.of(JsonNumber.valueOf(1), JsonString.valueOf("a"), JsonBoolean.TRUE, JsonNull.NULL, JsonNumber.valueOf(-2.5d), JsonObject.of("a", 1)),
+                parser.parseAll(input("1\n \"a\"\ntrue\r\nnull\n-2.5\n{\"a\": 1}")));
+
+        List<JsonValue> unordered = Collections.synchronizedList(new ArrayList<>());
+        parser.parse(input(lines.toString()), unordered::add, false);
+        unordered.sort(Comparator.comparingLong(value -> value.getAsObject().getLong("id")));
+        assertEquals(expected, unordered);
+
+        pool.shutdown();
+    }
+
+    @Test
+    void testErrors() {
+        JsonLinesParser parser = new JsonLinesParser();
+
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> {
+            try {
+                parser.parseAll(input("{\"a\": 1}\n{\"a\": [2}\n"));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, "Invalid json on the line starting at byte 9: Expected object after closing curly bracket but got an array instead, json preview '{\"a\": [2}'");
+
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> {
+            try {
+                parser.parseAll(input("1\n2 3\n"));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, "Invalid json on the line starting at byte 2: Multiple values found at index 2, json preview '2 3'");
+    }
+
+    @Test
+    void testUnorderedFailureStopsConsumer() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        JsonLinesParser parser = new JsonLinesParser(pool, new JsonParserPool(), 64);
+        StringBuilder lines = new StringBuilder("{\"a\": [2}\n");
+
+        for(int x = 0; x < 2000; x++)
+            lines.append("{\"id\": ").append(x).append("}\n");
+
+        AtomicInteger consumed = new AtomicInteger();
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> {
+            try {
+                parser.parse(input(lines.toString()), value -> {
+                    consumed.incrementAndGet();
+                    LockSupport.parkNanos(1_000_000); //Slow enough that other chunks are still going when the first one fails
+                }, false);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, null);
+
+        //Once parse has thrown nothing reaches the consumer anymore
+        int afterFailure = consumed.get();
+        Thread.sleep(100);
+        assertEquals(afterFailure, consumed.get());
+        assertTrue(afterFailure < 2000);
+
+        pool.shutdown();
+    }
+}
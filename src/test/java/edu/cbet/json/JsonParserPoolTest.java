@@ -0,0 +1,52 @@
+package edu.cbet.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JsonParserPoolTest {
+
+    @Test
+    void testReuse() {
+        JsonParserPool pool = new JsonParserPool(1);
+        JsonParser first = pool.acquire();
+        JsonParser second = pool.acquire();
+
+        assertNotSame(first, second);
+        assertSame(first.getKeyCache(), second.getKeyCache());
+
+        pool.release(first);
+        pool.release(second);
+        assertEquals(1, pool.getIdleCount());
+        assertSame(first, pool.acquire());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    void testConcurrentParsing() throws Exception {
+        JsonParserPool pool = new JsonParserPool();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<JsonValue>> results = new ArrayList<>();
+
+            for(int x = 0; x < 200; x++) {
+                String json = "{\"id\": " + x + ", \"name\": \"" + "n".repeat(x) + "\", \"tags\": [" + x + ", 1.5]}";
+                results.add(executor.submit(() -> pool.parseJson(json)));
+            }
+
+            for(int x = 0; x < results.size(); x++)
+                assertEquals(JsonObject.of("id", x, "name", "n".repeat(x), "tags", JsonArray.of(x, 1.5d)), results.get(x).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -3,12 +3,25 @@ package edu.cbet.json;
 import org.junit.jupiter.api.Test;
 import test.util.ExceptionTest;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class JsonParserTest {
 
@@ -31,6 +44,24 @@ class JsonParserTest {
         assertEquals(JsonArray.of(1.4d), parser.parseJson("[1.4]"));
         assertEquals(JsonArray.of(1, 2, 1.4d), parser.parseJson("[ 1 ,   2 ,   1.4 ]  "));
         assertEquals(JsonArray.of(1.4d, 2, 1), parser.parseJson("\0[\r1.4  \t       ,     2, \n 1]"));
+        assertEquals(JsonObject.of("k\u00e9y", "plain", "key", "\u00fc\"\u00e9"), parser.parseJson("{\"k\u00e9y\": \"plain\", \"key\": \"\u00fc\\\"\\u00e9\"}"));
+    }
+
+    @Test
+    void testStringRuns() {
+        //A non-ASCII character at every spot relative to the vector lanes and the index's 4 KB chunks, so a run wrongly taken as ASCII gets decoded as Latin-1
+        for(int at: new int[] {0, 1, 15, 16, 31, 32, 63, 64, 65, 127, 4093, 4094, 4095, 4096, 5000}) {
+            String text = "a".repeat(at) + "\u00e9\u4e16" + "b".repeat(70);
+            String json = "[\"" + text + "\", \"" + "c".repeat(at) + "\"]";
+
+            for(boolean vector: new boolean[] {true, false}) {
+                JsonParser parser = new JsonParser();
+                parser.setVectorScanning(vector);
+
+                assertEquals(JsonArray.of(text, "c".repeat(at)), parser.parseJson(json));
+                assertEquals(JsonArray.of(text, "c".repeat(at)), parser.parseJson(json.getBytes(StandardCharsets.UTF_8)));
+            }
+        }
     }
 
     @Test
@@ -69,5 +100,283 @@ class JsonParserTest {
         JsonParser parser = new JsonParser();
 
         assertEquals(JsonObject.of(" ", JsonArray.of(1, 2, null, "4", 5), "inner", JsonObject.of("", 3, "1", null), "1", JsonObject.of("3", 2)), parser.parseJson(file));
+
+        parser.setMemoryMapping(true);
+        assertEquals(JsonObject.of(" ", JsonArray.of(1, 2, null, "4", 5), "inner", JsonObject.of("", 3, "1", null), "1", JsonObject.of("3", 2)), parser.parseJson(file));
+    }
+
+    @Test
+    void testIterateArray() throws IOException {
+        JsonParser parser = new JsonParser();
+
+        JsonArrayIterator iterator = parser.iterateArray("[{\"a\": 1}, [2, 3], \"four\", 5, null]");
+        assertEquals(JsonObject.of("a", 1), iterator.next());
+        assertEquals(JsonArray.of(2, 3), iterator.next());
+        assertEquals(JsonString.valueOf("four"), iterator.next());
+        assertEquals(JsonNumber.valueOf(5), iterator.next());
+        assertEquals(JsonNull.NULL, iterator.next());
+        assertFalse(iterator.hasNext());
+
+        assertEquals(6, parser.streamArray(new ByteArrayInputStream("[1, 2, 3]".getBytes(StandardCharsets.UTF_8))).mapToLong(JsonValue::getAsLong).sum());
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> parser.iterateArray("{}").hasNext(), "Expected the root of the json to be an array");
+    }
+
+    @Test
+    void testParseLazy() {
+        JsonParser parser = new JsonParser();
+        String json = "{\"id\": 7, \"name\": \"lazy \\\"one\\\"\", \"k\\u00e9y\": 1.5, \"items\": [1, {\"a\": null}, [true, false]], \"empty\": {}}";
+
+        JsonValue lazy = parser.parseLazy(json);
+        assertEquals(7, lazy.getAsObject().getLong("id"));
+        assertEquals("lazy \"one\"", lazy.getAsObject().getString("name"));
+        assertEquals(1.5, lazy.getAsObject().getDouble("k\u00e9y"));
+        assertEquals(3, lazy.getAsObject().getArray("items").size());
+        assertEquals(JsonNull.NULL, lazy.getAsObject().getArray("items").getObject(1).get("a"));
+        assertEquals(parser.parseJson(json), lazy);
+        assertEquals("JsonObject", lazy.getType());
+        assertEquals(JsonArray.class.getName(), lazy.getAsObject().getArray("items").getType());
+        ExceptionTest.expectException(IllegalStateException.class, () -> lazy.getAsArray(), "JsonValue is of type 'JsonObject' not an array");
+
+        JsonObject obj = parser.parseLazy(json).getAsObject();
+        obj.getArray("items").getObject(1).putInt("b", 2);
+        assertEquals(2, obj.getArray("items").getObject(1).getInt("b"));
+        obj.remove("id");
+        assertEquals(4, obj.size());
+
+        assertEquals(JsonNull.NULL, parser.parseLazy(""));
+        assertEquals(JsonArray.of(), parser.parseLazy(" [ ] "));
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseLazy, "[1 1]", "Expected ',' or ']' at index 3, json preview '[1 1]'");
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseLazy, "{\"a\": [1, 2}", null);
+    }
+
+    @Test
+    void testNumbers() {
+        JsonParser parser = new JsonParser();
+
+        assertEquals(JsonArray.of(Long.MIN_VALUE, 0, -0.0d, 1e-7d, 123.456e2d, 4.9e-324d, 1.7976931348623157e308d),
+                parser.parseJson("[%d, -0, -0.0, 1E-7, 123.456e+2, 4.9e-324, 1.7976931348623157e308]".formatted(Long.MIN_VALUE)));
+        assertEquals(JsonArray.of(9.223372036854775808e18d, 0.30000000000000004d), parser.parseJson("[9223372036854775808, 0.300000000000000044408920985006261616945266723632812500001]"));
+
+        JsonObject prices = parser.parseJson("{\"a\": 12345678901234.5678, \"b\": 0.300000000000000044408920985006261616945266723632812500001, \"c\": 1.0e1}").getAsObject();
+        assertEquals(new BigDecimal("12345678901234.5678"), prices.get("a").getAsBigDecimal());
+        assertEquals(new BigDecimal("0.300000000000000044408920985006261616945266723632812500001"), prices.get("b").getAsBigDecimal());
+        assertEquals(0.30000000000000004d, prices.getDouble("b"));
+        assertEquals("{\"a\":12345678901234.5678,\"b\":0.300000000000000044408920985006261616945266723632812500001,\"c\":10.0}", new ObjectSerializer().serializeValue(prices));
+
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseJson, "[01]", "Invalid json value at index 3, json preview '01'");
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseJson, "[1.]", null);
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseJson, "[1e+]", null);
+    }
+
+    @Test
+    void testByteParseJson() {
+        JsonParser parser = new JsonParser();
+        String json = "{\"text\": \"" + "a\\\"b ".repeat(2000) + "\", \"list\": [1, 2.5, true, null]}";
+        JsonValue expected = parser.parseJson(json);
+        byte[] bytes = ("xx" + json + "yy").getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(expected, parser.parseJson(bytes, 2, bytes.length - 4));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).position(2).limit(bytes.length - 2);
+
+        assertEquals(expected, parser.parseJson(direct));
+        assertEquals(2, direct.position());
+        assertEquals(expected, parser.parseJson(direct.asReadOnlyBuffer()));
+    }
+
+    @Test
+    void testCharParseJson() throws IOException {
+        JsonParser parser = new JsonParser();
+        String json = "{\"text\": \"" + "é😀 \\u00fc".repeat(3000) + "\", \"list\": [1, 2.5, true, null]}";
+        JsonValue expected = parser.parseJson(json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(expected, parser.parseJson(json));
+        assertEquals(expected, parser.parseJson(new StringBuilder(json)));
+        assertEquals(expected, parser.parseJson(("[]" + json).toCharArray(), 2, json.length()));
+        assertEquals(expected, parser.parseJson(new Reader() { //Hands out a char at a time so surrogate pairs get split
+            private final StringReader reader = new StringReader(json);
+
+            @Override
+            public int read(char[] buffer, int offset, int len) throws IOException {
+                return reader.read(buffer, offset, Math.min(len, 1));
+            }
+
+            @Override
+            public void close() {}
+        }));
+
+        String invalid = "[\"" + "a".repeat(20000) + "\", 1 1]";
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseJson, invalid, "Multiple values found at index 20008, json preview 'aaaa\", 1 1]'");
+    }
+
+    @Test
+    void testCompressed() throws IOException {
+        JsonParser parser = new JsonParser();
+        JsonObject expected = JsonObject.of("text", "compressed 😀 ".repeat(5000), "list", JsonArray.of(1, 2.5, true, null));
+
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        new ObjectSerializer().serializeCompressed(expected, gzip);
+        assertEquals(expected, parser.parseCompressed(new ByteArrayInputStream(gzip.toByteArray())));
+
+        ByteArrayOutputStream zlib = new ByteArrayOutputStream();
+        try(DeflaterOutputStream deflater = new DeflaterOutputStream(zlib)) {
+            new ObjectSerializer().serializeValue(expected, deflater);
+        }
+        assertEquals(expected, parser.parseCompressed(new ByteArrayInputStream(zlib.toByteArray())));
+    }
+
+    @Test
+    void testKeyCache() {
+        JsonParser parser = new JsonParser();
+        JsonArray array = parser.parseJson("[{\"name\": 1, \"id\": 2}, {\"name\": 3, \"id\": 4}]").getAsArray();
+
+        assertSame(array.get(0).getAsObject().keySet().stream().filter("name"::equals).findFirst().orElseThrow(),
+                array.get(1).getAsObject().keySet().stream().filter("name"::equals).findFirst().orElseThrow());
+        assertEquals(2, parser.getKeyCache().getHits());
+        assertEquals(2, parser.getKeyCache().getMisses());
+        assertEquals(0.5, parser.getKeyCache().getHitRate());
+
+        parser.setKeyCache(null);
+        assertEquals(JsonObject.of("a", 1), parser.parseJson("{\"a\": 1}"));
+    }
+
+    @Test
+    void testLimits() {
+        JsonParser parser = new JsonParser();
+        parser.setLimits(JsonLimits.NONE.withMaxDepth(2).withMaxStringLength(8).withMaxObjectKeys(2).withMaxArrayElements(3).withMaxDocumentSize(64));
+
+        assertEquals(JsonObject.of("a", JsonArray.of(1, 2, 3), "12345678", "12345678"), parser.parseJson("{\"a\": [1, 2, 3], \"12345678\": \"12345678\"}"));
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseJson, "[[[]]]", "Json is nested deeper than the limit of 2 at index 2, json preview '[[[]]]'");
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseJson, "[\"123456789\"]", "Json string or value is longer than the limit of 8 bytes");
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseJson, "[\"12345678\\n\"]", "Json string or value is longer than the limit of 8 bytes");
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseJson, "[123456789]", "Json string or value is longer than the limit of 8 bytes");
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseJson, "{\"a\": 1, \"b\": 2, \"c\": 3}", "Object has more keys than the limit of 2 at index 23, json preview ' 2, \"c\": 3}'");
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseJson, "[1, 2, 3, 4]", "Array has more elements than the limit of 3 at index 11, json preview '1, 2, 3, 4]'");
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseJson, "[" + " ".repeat(64) + "]", "Json is larger than the limit of 64 bytes");
+
+        //The same limits hold for every other way into the parser
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseLazy, "[[[]]]", "Json is nested deeper than the limit of 2 at index 2, json preview '[[[]]]'");
+        ExceptionTest.<String, JsonValue>expectException(IllegalArgumentException.class, parser::parseLazy, "[\"123456789\"]", "Json string or value is longer than the limit of 8 bytes");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> {
+            try {
+                parser.parseLazy(new ByteArrayInputStream(("[" + " ".repeat(64) + "]").getBytes(StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, "Json is larger than the limit of 64 bytes");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> parser.iterateArray("[[1], [[2]]]").forEachRemaining(value -> {}),
+                "Json is nested deeper than the limit of 2 at index 7, json preview '[[1], [[2]]]'");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> parser.streamArray(new ByteArrayInputStream("[\"a\", \"123456789\"]".getBytes(StandardCharsets.UTF_8))).count(),
+                "Json string or value is longer than the limit of 8 bytes");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> parser.select("{\"a\": [" + " ".repeat(64) + "]}", JsonPathFilter.of("$.a")),
+                "Json is larger than the limit of 64 bytes");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> parser.select("{\"a\": \"123456789\"}", JsonPath.compile("$.a")),
+                "Json string or value is longer than the limit of 8 bytes");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> parser.selectFirst("[[[1]]]", JsonPath.compile("$[0][0][0]")),
+                "Json is nested deeper than the limit of 2 at index 2, json preview '[[[1]]]'");
+    }
+
+    @Test
+    void testValueCache() {
+        JsonParser parser = new JsonParser();
+        parser.setValueCache(new JsonStringCache(1, 8));
+        JsonArray array = parser.parseJson("[\"USD\", \"USD\", \"USD\", \"id1\", \"id2\", \"USD\", \"\", \"longer than 8\"]").getAsArray();
+
+        assertEquals(JsonArray.of("USD", "USD", "USD", "id1", "id2", "USD", "", "longer than 8"), array);
+        assertSame(array.get(0), array.get(5)); //The one-off ids didn't push USD out
+        assertEquals(3, parser.getValueCache().getHits());
+        assertEquals(4, parser.getValueCache().getMisses());
+        assertEquals(3 * (64 + 8), parser.getValueCache().getBytesSaved());
+    }
+
+    @Test
+    void testCompactObject() {
+        JsonObject obj = new JsonParser().parseJson("{\"a\": 1, \"b\": [2], \"a\": 3}").getAsObject();
+
+        assertEquals(JsonObject.of("a", 3, "b", JsonArray.of(2)), obj);
+        assertEquals(new HashMap<>(obj).hashCode(), obj.hashCode());
+        assertEquals("{a=3, b=[2]}", obj.toString());
+        assertEquals("JsonObject", obj.getType());
+
+        obj.entrySet().iterator().next().setValue(JsonNumber.valueOf(4));
+        obj.keySet().remove("b");
+        assertEquals(JsonObject.of("a", 4), obj);
+
+        for(int x = 0; x < CompactJsonObject.MAX_COMPACT_SIZE * 2; x++)
+            obj.putInt("k" + x, x);
+
+        assertEquals(CompactJsonObject.MAX_COMPACT_SIZE * 2 + 1, obj.size());
+        assertEquals(4, obj.getInt("a"));
+        assertEquals(15, obj.getInt("k15"));
+        obj.values().removeIf(value -> value.getAsInteger() > 0);
+        assertEquals(JsonObject.of("k0", 0), obj);
+    }
+
+    @Test
+    void testNumericArray() {
+        JsonParser parser = new JsonParser();
+        JsonArray longs = parser.parseJson("[1, -2,3 ,4\n]").getAsArray();
+        JsonArray doubles = parser.parseJson("[[0.5, -1e3]]").getAsArray().getArray(0);
+
+        assertEquals(JsonArray.of(1, -2, 3, 4), longs);
+        assertArrayEquals(new long[] {1, -2, 3, 4}, longs.toLongArray());
+        assertEquals(6, longs.doubleStream().sum());
+        assertEquals(-2, longs.getInt(1));
+        assertEquals(JsonArray.class.getName(), longs.getType());
+        assertEquals("[0.5,-1E+3]", new ObjectSerializer().serializeValue(doubles)); //Written the way the source had it, same as an object member
+        assertArrayEquals(new double[] {0.5, -1000}, doubles.toDoubleArray());
+        ExceptionTest.expectException(IllegalStateException.class, () -> doubles.toLongArray(), "JsonValue is a floating-point number, conversion to an integer will always be lossy");
+
+        longs.addDouble(0.5);
+        longs.remove(0);
+        assertEquals(JsonArray.of(-2, 3, 4, 0.5d), longs);
+        assertEquals(JsonArray.of(1, 2.5d, "3", null), parser.parseJson("[1, 2.5, \"3\", null]"));
+        assertEquals(JsonArray.of(), parser.parseJson("[]"));
+    }
+
+    @Test
+    void testNumericArrayDecimals() {
+        JsonParser parser = new JsonParser();
+        ObjectSerializer serializer = new ObjectSerializer();
+
+        for(String json: new String[] {"[1.50]", "{\"a\":[0.10]}", "[5e22]", "[1.5,0.0,2.0E-3,-0.25,1E+400,1.0]", "{\"a\":1.50,\"b\":[1.50,[5e22]]}"}) {
+            JsonValue eager = parser.parseJson(json);
+            String lazy = serializer.serializeValue(parser.parseLazy(json));
+
+            assertEquals(lazy, serializer.serializeValue(eager), json);
+            assertEquals(eager, parser.parseJson(serializer.serializeValue(eager)), json);
+        }
+
+        JsonArray decimals = parser.parseJson("[1.50, 5e22, 0.0]").getAsArray();
+        assertEquals("[1.50,5E+22,0.0]", serializer.serializeValue(decimals));
+        assertEquals(new BigDecimal("1.50"), decimals.get(0).getAsBigDecimal());
+        assertArrayEquals(new double[] {1.5, 5e22, 0}, decimals.toDoubleArray());
+        assertEquals(JsonArray.of(1.5d, 5e22d, 0d), decimals);
+        assertEquals(JsonArray.of(1.5d, 5e22d, 0d).hashCode(), decimals.hashCode());
+    }
+
+    @Test
+    void testSelect() {
+        JsonParser parser = new JsonParser();
+        String json = "{\"meta\": {\"id\": 7, \"skip\": {\"deep\": [\"]}\", {}]}}, \"items\": [{\"price\": 1.5, \"name\": \"a\"}, {\"name\": \"b\"}, {\"price\": 3}], \"a/b\": [true]}";
+        Map<String, List<JsonValue>> selected = parser.select(json, JsonPathFilter.of("$.meta.id", "$.items[*].price", "/a~1b/0", "$.items[1]", "/meta", "/meta/skip/deep/0", "$.missing"));
+
+        assertEquals(List.of(JsonNumber.valueOf(7)), selected.get("$.meta.id"));
+        assertEquals(List.of(JsonNumber.valueOf(1.5d), JsonNumber.valueOf(3)), selected.get("$.items[*].price"));
+        assertEquals(List.of(JsonBoolean.TRUE), selected.get("/a~1b/0"));
+        assertEquals(List.of(JsonObject.of("name", "b")), selected.get("$.items[1]"));
+        assertEquals(List.of(JsonString.valueOf("]}")), selected.get("/meta/skip/deep/0"));
+        assertEquals(7, selected.get("/meta").get(0).getAsObject().getLong("id"));
+        assertEquals(List.of(), selected.get("$.missing"));
+
+        //A repeated expression, or one overlapping another, still gets every match once
+        JsonPathFilter repeated = JsonPathFilter.of("$.meta.id", "$.meta.id", "/meta/id", "$.items[*].price");
+        selected = parser.select(json, repeated);
+        assertEquals(List.of("$.meta.id", "/meta/id", "$.items[*].price"), repeated.getExpressions());
+        assertEquals(List.of(JsonNumber.valueOf(7)), selected.get("$.meta.id"));
+        assertEquals(List.of(JsonNumber.valueOf(7)), selected.get("/meta/id"));
+        assertEquals(List.of(JsonNumber.valueOf(1.5d), JsonNumber.valueOf(3)), selected.get("$.items[*].price"));
+        ExceptionTest.<String, JsonPathFilter>expectException(IllegalArgumentException.class, JsonPathFilter::of, "items.price", "Expected a json pointer starting with '/' or a path starting with '$', got 'items.price'");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package edu.cbet.json;
+
+import org.junit.jupiter.api.Test;
+import test.util.ExceptionTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonPatchTest {
+
+    private static JsonValue json(String json) {
+        return new JsonParser().parseJson(json);
+    }
+
+    private static JsonValue patch(String document, String patch) {
+        return JsonPatch.of(json(patch)).apply(json(document));
+    }
+
+    @Test
+    void testApply() {
+        //Examples from RFC 6902 appendix A
+        assertEquals(json("{\"baz\":\"qux\",\"foo\":\"bar\"}"), patch("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/baz\",\"value\":\"qux\"}]"));
+        assertEquals(json("{\"foo\":[\"bar\",\"qux\",\"baz\"]}"), patch("{\"foo\":[\"bar\",\"baz\"]}", "[{\"op\":\"add\",\"path\":\"/foo/1\",\"value\":\"qux\"}]"));
+        assertEquals(json("{\"foo\":\"bar\"}"), patch("{\"baz\":\"qux\",\"foo\":\"bar\"}", "[{\"op\":\"remove\",\"path\":\"/baz\"}]"));
+        assertEquals(json("{\"baz\":\"boo\",\"foo\":\"bar\"}"), patch("{\"baz\":\"qux\",\"foo\":\"bar\"}", "[{\"op\":\"replace\",\"path\":\"/baz\",\"value\":\"boo\"}]"));
+        assertEquals(json("{\"foo\":{\"bar\":\"baz\"},\"qux\":{\"corge\":\"grault\",\"thud\":\"fred\"}}"),
+                patch("{\"foo\":{\"bar\":\"baz\",\"waldo\":\"fred\"},\"qux\":{\"corge\":\"grault\"}}", "[{\"op\":\"move\",\"from\":\"/foo/waldo\",\"path\":\"/qux/thud\"}]"));
+        assertEquals(json("{\"foo\":[\"all\",\"cows\",\"eat\",\"grass\"]}"), patch("{\"foo\":[\"all\",\"grass\",\"cows\",\"eat\"]}", "[{\"op\":\"move\",\"from\":\"/foo/1\",\"path\":\"/foo/3\"}]"));
+        assertEquals(json("{\"foo\":[\"bar\",[\"abc\",\"def\"]]}"), patch("{\"foo\":[\"bar\"]}", "[{\"op\":\"add\",\"path\":\"/foo/-\",\"value\":[\"abc\",\"def\"]}]"));
+        assertEquals(json("{\"/\":1,\"m~n\":1}"), patch("{\"/\":1,\"m~n\":0}", "[{\"op\":\"test\",\"path\":\"/~1\",\"value\":1},{\"op\":\"copy\",\"from\":\"/~1\",\"path\":\"/m~0n\"}]"));
+        assertEquals(json("[1]"), patch("{\"a\":1}", "[{\"op\":\"replace\",\"path\":\"\",\"value\":[1]}]"));
+
+        ExceptionTest.expectException(IllegalStateException.class, () -> patch("{\"baz\":\"qux\"}", "[{\"op\":\"test\",\"path\":\"/baz\",\"value\":\"bar\"}]"),
+                "Json patch operation 0 (test '/baz') failed, the value at '/baz' isn't bar");
+        ExceptionTest.expectException(IllegalStateException.class, () -> patch("{\"foo\":\"bar\"}", "[{\"op\":\"add\",\"path\":\"/baz/bat\",\"value\":\"qux\"}]"),
+                "Json patch operation 0 (add '/baz/bat') failed, there's no value at '/baz'");
+        ExceptionTest.expectException(IllegalStateException.class, () -> patch("{\"foo\":[1]}", "[{\"op\":\"add\",\"path\":\"/foo/2\",\"value\":2}]"),
+                "Json patch operation 0 (add '/foo/2') failed, index '2' is out of bounds for an array of 1");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> JsonPatch.of(json("[{\"op\":\"move\",\"path\":\"/a\"}]")), "Json patch operation 0 is missing 'from'");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> JsonPatch.of(json("[{\"op\":\"add\",\"path\":\"a\",\"value\":1}]")), "Invalid json pointer at index 0, pointer 'a'");
+    }
+
+    @Test
+    void testDiff() {
+        JsonValue source = json("{\"name\":\"a\",\"tags\":[\"x\",\"y\"],\"items\":[{\"id\":1},{\"id\":2},{\"id\":3}],\"meta\":{\"a/b\":1,\"gone\":true}}");
+        JsonValue target = json("{\"name\":\"b\",\"tags\":[\"x\",\"y\"],\"items\":[{\"id\":0},{\"id\":1},{\"id\":2},{\"id\":3,\"new\":true}],\"meta\":{\"a/b\":2},\"added\":null}");
+        JsonPatch patch = JsonPatch.diff(source, target);
+
+        //An element inserted at the front is a single add, the changed element after it is diffed into
+        assertTrue(patch.toJson().contains(json("{\"op\":\"add\",\"path\":\"/items/0\",\"value\":{\"id\":0}}")));
+        assertTrue(patch.toJson().contains(json("{\"op\":\"add\",\"path\":\"/items/3/new\",\"value\":true}")));
+        assertTrue(patch.toJson().contains(json("{\"op\":\"replace\",\"path\":\"/meta/a~1b\",\"value\":2}")));
+        assertEquals(6, patch.size());
+
+        JsonValue patched = JsonPatch.of(json(patch.toString())).apply(JsonPatch.copy(source));
+        assertEquals(target, patched);
+        assertEquals(json("{\"name\":\"a\",\"tags\":[\"x\",\"y\"],\"items\":[{\"id\":1},{\"id\":2},{\"id\":3}],\"meta\":{\"a/b\":1,\"gone\":true}}"), source);
+
+        assertTrue(JsonPatch.diff(source, JsonPatch.copy(source)).isEmpty());
+        assertEquals(json("[{\"op\":\"replace\",\"path\":\"\",\"value\":[]}]"), JsonPatch.diff(source, new JsonArray()).toJson());
+    }
+
+    @Test
+    void testDiffLongArray() {
+        JsonArray source = new JsonArray();
+        JsonArray target = new JsonArray();
+
+        for(int x = 0; x < 200_000; x++) {
+            source.addInt(x);
+
+            if(x % 100 != 37) //2000 removals spread over the whole array
+                target.addInt(x);
+        }
+
+        JsonPatch patch = JsonPatch.diff(source, target);
+        assertEquals(2000, patch.size());
+        assertEquals(target, patch.apply(JsonPatch.copy(source)));
+
+        target.add(50_000, JsonString.valueOf("a"));
+        target.remove(150_000);
+        patch = JsonPatch.diff(source, target);
+        assertEquals(2002, patch.size());
+        assertEquals(target, patch.apply(JsonPatch.copy(source)));
+    }
+}
@@ -0,0 +1,88 @@
+package edu.cbet.json;
+
+import org.junit.jupiter.api.Test;
+import test.util.ExceptionTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JsonPathTest {
+    //The example from RFC 9535 section 1.5
+    private static final String STORE = """
+            { "store": {
+                "book": [
+                  { "category": "reference", "author": "Nigel Rees", "title": "Sayings of the Century", "price": 8.95 },
+                  { "category": "fiction", "author": "Evelyn Waugh", "title": "Sword of Honour", "price": 12.99 },
+                  { "category": "fiction", "author": "Herman Melville", "title": "Moby Dick", "isbn": "0-553-21311-3", "price": 8.99 },
+                  { "category": "fiction", "author": "J. R. R. Tolkien", "title": "The Lord of the Rings", "isbn": "0-395-19395-8", "price": 22.99 }
+                ],
+                "bicycle": { "color": "red", "price": 399 }
+              }
+            }""";
+
+    private static JsonValue json(String json) {
+        return new JsonParser().parseJson(json);
+    }
+
+    /**
+     * Runs the query over the tree and over the raw json, both have to agree
+     */
+    private static JsonArray select(String json, String path) {
+        List<JsonValue> matches = JsonPath.compile(path).select(json(json));
+        assertEquals(matches, new JsonParser().select(json, JsonPath.compile(path)));
+
+        return new JsonArray(matches);
+    }
+
+    @Test
+    void testSelect() {
+        assertEquals(json("[\"Nigel Rees\",\"Evelyn Waugh\",\"Herman Melville\",\"J. R. R. Tolkien\"]"), select(STORE, "$.store.book[*].author"));
+        assertEquals(json("[\"Nigel Rees\",\"Evelyn Waugh\",\"Herman Melville\",\"J. R. R. Tolkien\"]"), select(STORE, "$..author"));
+        assertEquals(json("[8.95,12.99,8.99,22.99,399]"), select(STORE, "$.store..price"));
+        assertEquals(json("[\"Moby Dick\"]"), select(STORE, "$..book[2].title"));
+        assertEquals(json("[\"The Lord of the Rings\"]"), select(STORE, "$..book[-1].title"));
+        assertEquals(json("[\"Sayings of the Century\",\"Sword of Honour\"]"), select(STORE, "$..book[:2].title"));
+        assertEquals(json("[\"Sayings of the Century\",\"Moby Dick\"]"), select(STORE, "$..book[0,2]['title']"));
+        assertEquals(json("[\"Moby Dick\",\"The Lord of the Rings\"]"), select(STORE, "$..book[?@.isbn].title"));
+        assertEquals(json("[\"Sayings of the Century\",\"Moby Dick\"]"), select(STORE, "$..book[?@.price < 10].title"));
+        assertEquals(json("[\"Sword of Honour\"]"), select(STORE, "$.store.book[?(@.category == 'fiction' && !@.isbn)].title"));
+        assertEquals(json("[\"red\"]"), select(STORE, "$.store[?@.price > 100].color"));
+        assertEquals(27, select(STORE, "$..*").size());
+
+        assertEquals(json("[\"b\",\"d\"]"), select("[\"a\",\"b\",\"c\",\"d\",\"e\"]", "$[1:5:2]"));
+        assertEquals(json("[\"d\",\"e\"]"), select("[\"a\",\"b\",\"c\",\"d\",\"e\"]", "$[-2:]"));
+        assertEquals(json("[\"b\",\"d\"]"), select("[\"a\",\"b\",\"c\",\"d\",\"e\"]", "$[3:0:-2]")); //Document order, not the order of the step
+        assertEquals(json("[\"a\"]"), select("[\"a\",\"b\"]", "$[0,0]")); //Selected once
+        assertEquals(json("[{\"a\":1}]"), select("[{\"a\":1},{\"a\":\"1\"},{\"a\":1.0e1}]", "$[?@.a == 1]"));
+        assertEquals(json("[{\"a\":1.0e1}]"), select("[{\"a\":1},{\"a\":\"1\"},{\"a\":1.0e1}]", "$[?@.a >= 1.5]"));
+        assertEquals(json("[2]"), select("{\"limit\":1,\"values\":[0,1,2]}", "$.values[?@ > $.limit]"));
+        assertEquals(json("[{\"a\":\"x\",\"b\":\"x\"}]"), select("[{\"a\":\"x\",\"b\":\"x\"},{\"a\":\"x\",\"b\":\"y\"},{\"a\":\"x\"}]", "$[?@.a == @.b]"));
+        assertEquals(json("[1]"), select("{\"a b\":1,\"c\":{\"d'\":2}}", "$['a b']"));
+    }
+
+    @Test
+    void testSelectFirst() throws Exception {
+        JsonPath path = JsonPath.compile("$..price");
+        assertEquals(json("[8.95]").getAsArray().get(0), path.selectFirst(json(STORE)));
+        assertEquals(json("[8.95]").getAsArray().get(0), new JsonParser().selectFirst(STORE, path));
+        assertNull(JsonPath.compile("$..missing").selectFirst(json(STORE)));
+
+        //Stops at the first match, the broken json after it is never read
+        assertEquals("b", JsonPath.compile("$[1]").selectFirst(new JsonReader("[\"a\",\"b\",\"c\"")).getAsString());
+    }
+
+    @Test
+    void testCompile() {
+        assertSame(JsonPath.compile("$.store.book[*]"), JsonPath.compile("$.store.book[*]"));
+        assertEquals("$.store.book[*]", JsonPath.compile("$.store.book[*]").toString());
+
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> JsonPath.compile("store"), "Invalid json path at index 0, path 'store'");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> JsonPath.compile("$.a["), "Invalid json path at index 4, path '$.a['");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> JsonPath.compile("$[01]"), "Invalid json path at index 2, path '$[01]'");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> JsonPath.compile("$[?@.a == ]"), "Invalid json path at index 10, path '$[?@.a == ]'");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> JsonPath.compile("$[?1]"), "Invalid json path at index 3, path '$[?1]'");
+    }
+}
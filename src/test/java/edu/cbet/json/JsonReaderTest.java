@@ -0,0 +1,123 @@
+package edu.cbet.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonReaderTest {
+
+    @Test
+    void testTokens() throws IOException {
+        JsonReader reader = new JsonReader(" { \"a\" : [1, 2.5, \"x\\ny\"], \"b\": {\"c\": true, \"d\": null}, \"e\\u00e9\": false } ");
+
+        assertEquals(JsonToken.START_OBJECT, reader.nextToken());
+        assertEquals(JsonToken.FIELD_NAME, reader.nextToken());
+        assertEquals("a", reader.getString());
+        assertEquals(JsonToken.START_ARRAY, reader.nextToken());
+        assertEquals(JsonToken.NUMBER, reader.nextToken());
+        assertTrue(reader.isInteger());
+        assertEquals(1, reader.getLong());
+        assertEquals(JsonToken.NUMBER, reader.nextToken());
+        assertFalse(reader.isInteger());
+        assertEquals(2.5, reader.getDouble());
+        assertEquals(JsonToken.STRING, reader.nextToken());
+        assertEquals("x\ny", reader.getString());
+        assertEquals(JsonToken.END_ARRAY, reader.nextToken());
+        assertEquals(JsonToken.FIELD_NAME, reader.nextToken());
+        assertEquals(JsonToken.START_OBJECT, reader.nextToken());
+        assertEquals(2, reader.getDepth());
+        assertEquals(JsonToken.FIELD_NAME, reader.nextToken());
+        assertEquals(JsonToken.BOOLEAN, reader.nextToken());
+        assertTrue(reader.getBoolean());
+        assertEquals(JsonToken.FIELD_NAME, reader.nextToken());
+        assertEquals(JsonToken.NULL, reader.nextToken());
+        assertEquals(JsonToken.END_OBJECT, reader.nextToken());
+        assertEquals(JsonToken.FIELD_NAME, reader.nextToken());
+        assertEquals("e\u00e9", reader.getString());
+        assertEquals(JsonToken.BOOLEAN, reader.nextToken());
+        assertFalse(reader.getBoolean());
+        assertEquals(JsonToken.END_OBJECT, reader.nextToken());
+        assertNull(reader.nextToken());
+    }
+
+    @Test
+    void testSkipChildren() throws IOException {
+        JsonReader reader = new JsonReader("{\"skip\": {\"a\": [\"]}\", {\"b\": \"\\\"}\"}]}, \"keep\": 42}");
+
+        assertEquals(JsonToken.START_OBJECT, reader.nextToken());
+        assertEquals(JsonToken.FIELD_NAME, reader.nextToken());
+        assertEquals(JsonToken.START_OBJECT, reader.nextToken());
+        reader.skipChildren();
+        assertEquals(JsonToken.END_OBJECT, reader.currentToken());
+        assertEquals(JsonToken.FIELD_NAME, reader.nextToken());
+        assertEquals("keep", reader.getString());
+        assertEquals(JsonToken.NUMBER, reader.nextToken());
+        assertEquals(42, reader.getLong());
+        assertEquals(JsonToken.END_OBJECT, reader.nextToken());
+        assertNull(reader.nextToken());
+    }
+
+    @Test
+    void testReadValueAcrossRefills() throws IOException {
+        StringBuilder builder = new StringBuilder("[");
+
+        for(int x = 0; x < 5000; x++) {
+            if(x != 0)
+                builder.append(',');
+            builder.append("{\"id\":").append(x).append(",\"name\":\"item ").append(x).append("\"}");
+        }
+
+        builder.append(']');
+
+        JsonReader reader = new JsonReader(new ByteArrayInputStream(builder.toString().getBytes(StandardCharsets.UTF_8)));
+        assertEquals(new JsonParser().parseJson(builder.toString()), reader.nextToken() == JsonToken.START_ARRAY? reader.readValue(): null);
+    }
+
+    @Test
+    void testErrors() {
+        assertThrows(IllegalArgumentException.class, () -> readAll("{\"a\" 1}"));
+        assertThrows(IllegalArgumentException.class, () -> readAll("[1 2]"));
+        assertThrows(IllegalArgumentException.class, () -> readAll("[1, 2"));
+        assertThrows(IllegalArgumentException.class, () -> readAll("[\"abc]"));
+        assertThrows(IllegalArgumentException.class, () -> readAll("[tru]"));
+    }
+
+    @Test
+    void testLimits() throws IOException {
+        JsonLimits limits = JsonLimits.NONE.withMaxDepth(2).withMaxStringLength(8).withMaxObjectKeys(2).withMaxArrayElements(3).withMaxDocumentSize(64);
+        JsonReader reader = new JsonReader("{\"a\": [1, 2, 3], \"12345678\": \"12345678\"}");
+        reader.setLimits(limits);
+        reader.nextToken();
+        assertEquals(JsonObject.of("a", JsonArray.of(1, 2, 3), "12345678", "12345678"), reader.readValue());
+
+        assertEquals("Json is nested deeper than the limit of 2 at index 2, json preview '[[[]]]'", readAll("[[[]]]", limits).getMessage());
+        assertEquals("Json string or value is longer than the limit of 8 bytes", readAll("[\"123456789\"]", limits).getMessage());
+        assertEquals("Json string or value is longer than the limit of 8 bytes", readAll("[123456789]", limits).getMessage());
+        assertEquals("Json is larger than the limit of 64 bytes", readAll("[" + " ".repeat(64) + "]", limits).getMessage());
+        assertEquals("Array has more elements than the limit of 3 at index 10, json preview '[1, 2, 3, 4]'", readAll("[1, 2, 3, 4]", limits).getMessage());
+    }
+
+    /**
+     * Reads the json as a tree with the limits set
+     * @return what was thrown
+     */
+    private static IllegalArgumentException readAll(String json, JsonLimits limits) {
+        JsonReader reader = new JsonReader(json);
+        reader.setLimits(limits);
+
+        return assertThrows(IllegalArgumentException.class, () -> {
+            reader.nextToken();
+            reader.readValue();
+        });
+    }
+
+    private static void readAll(String json) throws IOException {
+        JsonReader reader = new JsonReader(json);
+
+        while(reader.nextToken() != null);
+    }
+}
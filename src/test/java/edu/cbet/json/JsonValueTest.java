@@ -1,6 +1,11 @@
 package edu.cbet.json;
 
 import org.junit.jupiter.api.Test;
+import test.util.ExceptionTest;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SuppressWarnings("SimplifiableAssertion")
@@ -22,4 +27,137 @@ public class JsonValueTest {
         assertEquals(JsonBoolean.TRUE.toString(), "true");
         assertEquals(JsonBoolean.FALSE.toString(), "false");
     }
+
+    @Test
+    public void JsonNumberTest() {
+        assertSame(JsonNumber.valueOf(7), JsonNumber.valueOf(7));
+        assertSame(JsonNumber.valueOf(7L), JsonNumber.valueOf(7L));
+        assertEquals(JsonNumber.valueOf(7), JsonNumber.valueOf(7L));
+        assertEquals(7, JsonNumber.valueOf(7).getAsNumber());
+        assertEquals(7L, JsonNumber.valueOf(7L).getAsNumber());
+        assertEquals((short) 7, JsonNumber.valueOf((short) 7).getAsNumber());
+        assertEquals((byte) 7, JsonNumber.valueOf((Number) (byte) 7).getAsNumber());
+        assertEquals(70_000, JsonNumber.valueOf((Number) 70_000).getAsNumber());
+        assertEquals(7L, new JsonParser().parseJson("[7]").getAsArray().get(0).getAsNumber());
+        assertTrue(JsonNumber.valueOf(7).equals(JsonNumber.valueOf(7.0d)));
+        assertEquals("1.1", JsonNumber.valueOf(1.1f).toString());
+        assertEquals(new BigDecimal("5E+22"), JsonNumber.valueOf(5e22d).getAsBigDecimal());
+        assertEquals(new BigDecimal("0.1"), JsonNumber.valueOf(0.1d).getAsBigDecimal());
+        assertEquals(new BigDecimal("12.50"), JsonString.valueOf("12.50").getAsBigDecimal());
+        ExceptionTest.expectException(IllegalStateException.class, () -> JsonNumber.valueOf(1.5d).getAsLong(), "JsonValue is a floating-point number, conversion to an integer will always be lossy");
+    }
+
+    @Test
+    public void PersistentJsonObjectTest() {
+        PersistentJsonObject empty = PersistentJsonObject.empty();
+        PersistentJsonObject obj = empty;
+
+        for(int x = 0; x < 1000; x++)
+            obj = obj.with("key" + x, JsonNumber.valueOf(x));
+
+        PersistentJsonObject changed = obj.with("key5", JsonString.valueOf("five")).without("key6");
+        assertEquals(1000, obj.size());
+        assertEquals(999, changed.size());
+        assertEquals(JsonNumber.valueOf(5), obj.get("key5"));
+        assertEquals(JsonString.valueOf("five"), changed.get("key5"));
+        assertTrue(obj.containsKey("key6"));
+        assertFalse(changed.containsKey("key6"));
+        assertSame(obj, obj.without("missing"));
+        assertEquals(0, empty.size());
+
+        //"Aa" and "BB" have the same hash
+        PersistentJsonObject collision = empty.with("Aa", JsonBoolean.TRUE).with("BB", JsonBoolean.FALSE);
+        assertEquals(JsonBoolean.TRUE, collision.get("Aa"));
+        assertEquals(JsonBoolean.FALSE, collision.get("BB"));
+        assertEquals(JsonObject.of("BB", false), collision.without("Aa"));
+
+        JsonObject copy = new JsonObject(obj);
+        assertEquals(copy, obj);
+        assertEquals(obj, copy);
+        assertEquals(copy.hashCode(), obj.hashCode());
+
+        PersistentJsonObject nested = PersistentJsonObject.copyOf(JsonObject.of("inner", JsonObject.of("a", 1), "list", JsonArray.of(1, 2)));
+        assertTrue(nested.getObject("inner") instanceof PersistentJsonObject);
+        assertTrue(nested.getArray("list") instanceof PersistentJsonArray);
+        assertEquals("JsonObject", nested.getType());
+        assertEquals(JsonArray.class.getName(), nested.getArray("list").getType());
+        ExceptionTest.expectException(UnsupportedOperationException.class, () -> nested.putInt("a", 1), "PersistentJsonObject is immutable, use with(String, JsonValue) instead");
+        ExceptionTest.expectException(UnsupportedOperationException.class, () -> nested.keySet().remove("inner"), "remove");
+    }
+
+    @Test
+    public void PersistentJsonArrayTest() {
+        PersistentJsonArray array = PersistentJsonArray.empty();
+        JsonArray expected = new JsonArray();
+
+        for(int x = 0; x < 40_000; x++) {
+            array = array.plus(JsonNumber.valueOf(x));
+            expected.add(JsonNumber.valueOf(x));
+        }
+
+        PersistentJsonArray changed = array.with(0, JsonNull.NULL).with(33_000, JsonBoolean.TRUE).with(39_999, JsonString.valueOf("last"));
+        assertEquals(expected, array);
+        assertEquals(new JsonArray(array).hashCode(), array.hashCode());
+        assertEquals(JsonNumber.valueOf(33_000), array.get(33_000));
+        assertEquals(JsonBoolean.TRUE, changed.get(33_000));
+        assertEquals(JsonString.valueOf("last"), changed.get(39_999));
+        assertEquals(JsonNull.NULL, changed.get(0));
+        assertEquals(40_001, changed.with(40_000, JsonNull.NULL).size());
+        assertEquals(1234, array.indexOf(JsonNumber.valueOf(1234)));
+
+        long[] sum = new long[1];
+        array.forEach(value -> sum[0] += value.getAsLong());
+        assertEquals(40_000L * 39_999 / 2, sum[0]);
+
+        PersistentJsonArray finalArray = array;
+        assertThrows(IndexOutOfBoundsException.class, () -> finalArray.get(40_000));
+        ExceptionTest.expectException(UnsupportedOperationException.class, () -> finalArray.addInt(1), "PersistentJsonArray is immutable, use plus(JsonValue) instead");
+    }
+
+    @Test
+    public void StructuralHashTest() {
+        assertEquals(JsonNumber.valueOf(7).hashCode(), JsonNumber.valueOf(7.0d).hashCode());
+        assertEquals(JsonNumber.valueOf(0.0d).hashCode(), JsonNumber.valueOf(-0.0d).hashCode());
+        assertEquals(JsonString.valueOf("a").hashCode(), new JsonString("a").hashCode());
+
+        JsonObject obj = (JsonObject) new JsonParser().parseJson("{\"a\":[1,2,{\"b\":[1.5]}],\"c\":\"d\"}");
+        JsonObject copy = (JsonObject) new JsonParser().parseJson("{\"c\":\"d\",\"a\":[1.0,2,{\"b\":[1.5]}]}");
+        assertEquals(obj, copy);
+        assertEquals(obj.hashCode(), copy.hashCode());
+
+        int hash = obj.hashCode();
+        JsonArray inner = obj.getArray("a").getObject(2).getArray("b");
+        inner.addInt(2);
+        assertNotEquals(hash, obj.hashCode());
+        assertNotEquals(obj, copy);
+
+        inner.subList(1, 2).clear();
+        assertEquals(hash, obj.hashCode());
+        assertEquals(obj, copy);
+
+        obj.entrySet().iterator().next().setValue(JsonNull.NULL);
+        assertEquals(new HashMap<>(obj).hashCode(), obj.hashCode());
+        assertNotEquals(obj, copy);
+
+        copy.hashCode();
+        obj.putInt("e", 1);
+        assertTrue(copy.isHashCached());
+        assertFalse(obj.isHashCached());
+
+        JsonArray first = new JsonArray(List.of(1, 2));
+        JsonArray second = new JsonArray(List.of(1, 3));
+        assertNotEquals(first, second);
+        assertFalse(first.isHashCached());
+        assertFalse(second.isHashCached());
+
+        JsonArray shared = new JsonArray(List.of(1));
+        shared.hashCode();
+        first.add(shared);
+        second.add(shared);
+        int firstHash = first.hashCode();
+        int secondHash = second.hashCode();
+        shared.addInt(2);
+        assertNotEquals(firstHash, first.hashCode());
+        assertNotEquals(secondHash, second.hashCode());
+    }
 }
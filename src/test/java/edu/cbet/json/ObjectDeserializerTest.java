@@ -0,0 +1,155 @@
+package edu.cbet.json;
+
+import edu.cbet.json.annotations.JsonAsString;
+import edu.cbet.json.annotations.JsonIgnore;
+import edu.cbet.json.annotations.JsonProperty;
+import org.junit.jupiter.api.Test;
+import test.util.ExceptionTest;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ObjectDeserializerTest {
+
+    @Test
+    void testDeserialize() {
+        ObjectDeserializer deserializer = new ObjectDeserializer();
+
+        Outer outer = deserializer.deserialize("""
+                {
+                    "id": 12, "ratio": 0.25, "flag": true, "letter": "x", "long_name": "renamed",
+                    "asString": "99", "ignored": 5, "unknown": {"a": [1, {"b": 2}]},
+                    "inner": {"name": "first", "values": [1, 2, 3]},
+                    "inners": [{"name": "second", "values": []}, null],
+                    "counts": {"a": 1, "b": 2},
+                    "kind": "B", "nothing": null, "any": [true]
+                }""", Outer.class);
+
+        assertEquals(12, outer.id);
+        assertEquals(0.25, outer.ratio);
+        assertEquals(true, outer.flag);
+        assertEquals('x', outer.letter);
+        assertEquals("renamed", outer.renamed);
+        assertEquals(99, outer.asString);
+        assertEquals(-1, outer.ignored);
+        assertEquals("first", outer.inner.name);
+        assertArrayEquals(new int[] {1, 2, 3}, outer.inner.values);
+        assertEquals(2, outer.inners.size());
+        assertEquals("second", outer.inners.get(0).name);
+        assertNull(outer.inners.get(1));
+        assertEquals(Map.of("a", 1L, "b", 2L), outer.counts);
+        assertEquals(Kind.B, outer.kind);
+        assertEquals(7, outer.nothing);
+        assertEquals(new JsonParser().parseJson("[true]"), outer.any);
+    }
+
+    @Test
+    void testErrors() {
+        ObjectDeserializer deserializer = new ObjectDeserializer();
+
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> deserializer.deserialize("{\"id\": \"abc\"}", Outer.class),
+                "Couldn't bind field 'id' of edu.cbet.json.ObjectDeserializerTest$Outer: For input string: \"abc\"");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> deserializer.deserialize("{\"inner\": [1]}", Outer.class),
+                "Couldn't bind field 'inner' of edu.cbet.json.ObjectDeserializerTest$Outer: Expected START_OBJECT for edu.cbet.json.ObjectDeserializerTest$Inner but got START_ARRAY");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> deserializer.deserialize("{\"id\": 1.5}", Outer.class),
+                "Couldn't bind field 'id' of edu.cbet.json.ObjectDeserializerTest$Outer: Expected an integer for int but got a floating-point number");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> deserializer.deserialize("{\"id\": 1}]]]", Outer.class),
+                "Multiple values found at index 9, json preview '{\"id\": 1}]]]'");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> deserializer.deserialize("{\"id\": 1} {\"id\": 2}", Outer.class),
+                "Multiple values found at index 10, json preview '{\"id\": 1} {\"id\": 2}'");
+    }
+
+    @Test
+    void testLimits() {
+        ObjectDeserializer deserializer = new ObjectDeserializer();
+        deserializer.setLimits(JsonLimits.NONE.withMaxDepth(2).withMaxStringLength(8).withMaxDocumentSize(64));
+
+        assertArrayEquals(new int[] {1, 2, 3}, deserializer.deserialize("[1, 2, 3]", int[].class));
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> deserializer.deserialize("[[[1]]]", int[][][].class),
+                "Json is nested deeper than the limit of 2 at index 2, json preview '[[[1]]]'");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> deserializer.deserialize("\"123456789\"", String.class),
+                "Json string or value is longer than the limit of 8 bytes");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> deserializer.deserialize("[" + " ".repeat(64) + "]", int[].class),
+                "Json is larger than the limit of 64 bytes");
+    }
+
+    @Test
+    void testNarrowing() {
+        ObjectDeserializer deserializer = new ObjectDeserializer();
+        String prefix = "Couldn't bind field '%s' of edu.cbet.json.ObjectDeserializerTest$Narrow: ";
+
+        Narrow narrow = deserializer.deserialize("{\"i\": -2147483648, \"s\": 32767, \"b\": -128, \"c\": 65535, \"f\": 3.4e38, \"boxedInt\": 2147483647}", Narrow.class);
+        assertEquals(Integer.MIN_VALUE, narrow.i);
+        assertEquals(Short.MAX_VALUE, narrow.s);
+        assertEquals(Byte.MIN_VALUE, narrow.b);
+        assertEquals(Character.MAX_VALUE, narrow.c);
+        assertEquals(3.4e38f, narrow.f);
+        assertEquals(Integer.valueOf(Integer.MAX_VALUE), narrow.boxedInt);
+
+        //Every narrow type rejects what doesn't fit instead of wrapping it
+        String[][] outOfRange = {
+                {"i", "4294967297", "int"}, {"s", "32768", "short"}, {"b", "300", "byte"}, {"c", "-1", "char"}, {"c", "65536", "char"},
+                {"boxedInt", "-2147483649", "java.lang.Integer"}, {"boxedShort", "-32769", "java.lang.Short"}, {"boxedByte", "128", "java.lang.Byte"},
+                {"boxedChar", "70000", "java.lang.Character"}, {"ints", "[1, 2147483648]", "int"}
+        };
+
+        for(String[] field: outOfRange) {
+            String number = field[1].startsWith("[")? "2147483648": field[1];
+            ExceptionTest.expectException(IllegalArgumentException.class, () -> deserializer.deserialize("{\"" + field[0] + "\": " + field[1] + "}", Narrow.class),
+                    prefix.formatted(field[0]) + "Number " + number + " is out of range for " + field[2]);
+        }
+
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> deserializer.deserialize("{\"f\": 1e39}", Narrow.class),
+                prefix.formatted("f") + "Number 1.0E39 is out of range for float");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> deserializer.deserialize("{\"boxedFloat\": -1e39}", Narrow.class),
+                prefix.formatted("boxedFloat") + "Number -1.0E39 is out of range for java.lang.Float");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> deserializer.deserialize("4294967297", Integer.class),
+                "Number 4294967297 is out of range for java.lang.Integer");
+        ExceptionTest.expectException(IllegalArgumentException.class, () -> deserializer.deserialize("300", byte.class),
+                "Number 300 is out of range for byte");
+    }
+
+    enum Kind { A, B }
+
+    static class Outer {
+        private int id;
+        private double ratio;
+        private boolean flag;
+        private char letter;
+        @JsonProperty("long_name")
+        private String renamed;
+        @JsonAsString
+        private int asString;
+        @JsonIgnore
+        private int ignored = -1;
+        private Inner inner;
+        private List<Inner> inners;
+        private Map<String, Long> counts;
+        private Kind kind;
+        private int nothing = 7;
+        private JsonValue any;
+    }
+
+    static class Narrow {
+        private int i;
+        private short s;
+        private byte b;
+        private char c;
+        private float f;
+        private Integer boxedInt;
+        private Short boxedShort;
+        private Byte boxedByte;
+        private Character boxedChar;
+        private Float boxedFloat;
+        private int[] ints;
+    }
+
+    static class Inner {
+        private String name;
+        private int[] values;
+    }
+}
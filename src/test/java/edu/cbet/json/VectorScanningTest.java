@@ -0,0 +1,165 @@
+package edu.cbet.json;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Parses the same random corpus with the Vector API index on and off, each document is generated together with the tree it has to come out as
+ */
+class VectorScanningTest {
+    private static final int DOCUMENTS = 3000;
+    private static final String[] PIECES = {"a", "Z", "0", " ", "_", "é", "ü", "世", "😀", "\"", "\\", "/", "\n", "\t", "\u0001"};
+
+    /**
+     * The build sets this to whether jdk.incubator.vector was added, so a module that doesn't load isn't mistaken for the scalar run
+     */
+    @Test
+    void testVectorModule() {
+        String expected = System.getProperty("edu.cbet.json.vectorModule");
+
+        if(expected != null)
+            assertEquals(Boolean.parseBoolean(expected), StructuralIndex.isAvailable());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void testCorpus(boolean vector) throws IOException {
+        Random random = new Random(5);
+        JsonParser parser = new JsonParser();
+        parser.setVectorScanning(vector);
+        assertEquals(vector && StructuralIndex.isAvailable(), parser.isVectorScanning());
+
+        for(int x = 0; x < DOCUMENTS; x++) {
+            StringBuilder json = new StringBuilder();
+            JsonValue expected = random.nextBoolean()? object(random, json, 3): array(random, json, 3);
+            whitespace(random, json);
+
+            String text = json.toString();
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+
+            assertEquals(expected, parser.parseJson(text), text);
+            assertEquals(expected, parser.parseJson(bytes), text);
+            assertEquals(expected, parser.parseJson(direct), text);
+            assertEquals(expected, parser.parseJson(new ByteArrayInputStream(bytes)), text);
+        }
+    }
+
+    private static JsonValue value(Random random, StringBuilder json, int depth) {
+        whitespace(random, json);
+
+        switch(random.nextInt(depth > 0? 8: 6)) {
+            case 0, 1:
+                return string(random, json, "");
+            case 2: {
+                long l = random.nextInt(3) == 0? random.nextLong(): random.nextInt(1000) - 500;
+                json.append(l);
+                return JsonNumber.valueOf(l);
+            }
+            case 3: {
+                double d = random.nextBoolean()? (random.nextInt(2_000_000) - 1_000_000) / 100.0: random.nextDouble() * Math.pow(10, random.nextInt(40) - 20);
+                json.append(d);
+                return JsonNumber.valueOf(d);
+            }
+            case 4: {
+                boolean b = random.nextBoolean();
+                json.append(b);
+                return b? JsonBoolean.TRUE: JsonBoolean.FALSE;
+            }
+            case 5:
+                json.append("null");
+                return JsonNull.NULL;
+            case 6:
+                return object(random, json, depth - 1);
+            default:
+                return array(random, json, depth - 1);
+        }
+    }
+
+    private static JsonObject object(Random random, StringBuilder json, int depth) {
+        JsonObject object = new JsonObject();
+        int size = random.nextInt(6);
+        json.append('{');
+
+        for(int x = 0; x < size; x++) {
+            if(x > 0)
+                json.append(',');
+
+            whitespace(random, json);
+            String name = string(random, json, "#" + x).getAsString(); //The suffix keeps the names distinct
+            whitespace(random, json);
+            json.append(':');
+            object.put(name, value(random, json, depth));
+            whitespace(random, json);
+        }
+
+        json.append('}');
+        return object;
+    }
+
+    private static JsonArray array(Random random, StringBuilder json, int depth) {
+        JsonArray array = new JsonArray();
+        int size = random.nextInt(6);
+        json.append('[');
+
+        for(int x = 0; x < size; x++) {
+            if(x > 0)
+                json.append(',');
+
+            array.add(value(random, json, depth));
+            whitespace(random, json);
+        }
+
+        json.append(']');
+        return array;
+    }
+
+    /**
+     * Mostly short strings, now and then one long enough to cross the index's 4 KB chunks and the input stream's windows
+     */
+    private static JsonString string(Random random, StringBuilder json, String suffix) {
+        int length = switch(random.nextInt(10)) {
+            case 0 -> 0;
+            case 1 -> 64 + random.nextInt(9000);
+            default -> random.nextInt(40);
+        };
+        boolean ascii = random.nextBoolean();
+        StringBuilder value = new StringBuilder();
+        json.append('"');
+
+        while(value.length() < length) {
+            String piece = PIECES[random.nextInt(ascii? 5: PIECES.length)];
+            value.append(piece);
+
+            switch(piece) {
+                case "\"" -> json.append("\\\"");
+                case "\\" -> json.append("\\\\");
+                case "\n" -> json.append("\\n");
+                case "\t" -> json.append("\\t");
+                case "\u0001" -> json.append("\\u0001");
+                case "/" -> json.append(random.nextBoolean()? "\\/": "/");
+                case "ü" -> json.append(random.nextBoolean()? "\\u00FC": "ü");
+                default -> json.append(piece);
+            }
+        }
+
+        json.append(suffix).append('"');
+        return JsonString.valueOf(value.append(suffix).toString());
+    }
+
+    private static void whitespace(Random random, StringBuilder json) {
+        int length = random.nextInt(8) == 0? random.nextInt(200): random.nextInt(3);
+
+        for(int x = 0; x < length; x++)
+            json.append(" \t\n\r".charAt(random.nextInt(4)));
+    }
+}